@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.redis.kafka.connect.source.DataStructureConverter;
+import com.redis.spring.batch.common.DataStructure;
+
+import io.lettuce.core.ScoredValue;
+
+/**
+ * Conversion costs of the keys source connector for a data structure of the
+ * given {@code type} holding {@code size} fields or members. Run with the gc
+ * profiler to compare allocations per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeysSourceBenchmark {
+
+	@Param({ "hash", "list", "set", "zset" })
+	private String type;
+
+	@Param({ "10", "100", "1000" })
+	private int size;
+
+	private DataStructureConverter converter;
+	private DataStructure<String> dataStructure;
+
+	@Setup
+	public void setup() {
+		converter = new DataStructureConverter();
+		dataStructure = new DataStructure<>();
+		dataStructure.setKey(type + ":1234567");
+		switch (type) {
+		case "hash":
+			Map<String, String> hash = new LinkedHashMap<>();
+			for (int index = 0; index < size; index++) {
+				hash.put("field" + index, "value:" + index);
+			}
+			dataStructure.setType(DataStructure.HASH);
+			dataStructure.setValue(hash);
+			break;
+		case "list":
+			List<String> list = new ArrayList<>(size);
+			for (int index = 0; index < size; index++) {
+				list.add("element:" + index);
+			}
+			dataStructure.setType(DataStructure.LIST);
+			dataStructure.setValue(list);
+			break;
+		case "set":
+			Set<String> set = new LinkedHashSet<>();
+			for (int index = 0; index < size; index++) {
+				set.add("member:" + index);
+			}
+			dataStructure.setType(DataStructure.SET);
+			dataStructure.setValue(set);
+			break;
+		default:
+			List<ScoredValue<String>> zset = new ArrayList<>(size);
+			for (int index = 0; index < size; index++) {
+				zset.add(ScoredValue.just(index, "member:" + index));
+			}
+			dataStructure.setType(DataStructure.ZSET);
+			dataStructure.setValue(zset);
+			break;
+		}
+	}
+
+	@Benchmark
+	public Struct dataStructure() {
+		return converter.apply(dataStructure);
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.redis.kafka.connect.sink.JsonValueEncoder;
+import com.redis.kafka.connect.sink.SinkKeyBuilder;
+import com.redis.kafka.connect.sink.SinkRecordCompactor;
+import com.redis.kafka.connect.sink.StructHashEncoder;
+
+/**
+ * Encoding costs of the sink for a batch of {@code records} records whose
+ * values have {@code fields} fields: Redis keys, hash and stream message fields
+ * and JSON documents. Run with the gc profiler to compare allocations per
+ * operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SinkBenchmark {
+
+	private static final String TOPIC = "orders";
+
+	private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct().field("street", Schema.STRING_SCHEMA)
+			.field("city", Schema.STRING_SCHEMA).field("zip", Schema.INT32_SCHEMA).build();
+
+	@Param({ "4", "16", "64" })
+	private int fields;
+
+	@Param({ "1", "100" })
+	private int records;
+
+	private SinkKeyBuilder keyBuilder;
+	private StructHashEncoder hashEncoder;
+	private StructHashEncoder flatHashEncoder;
+	private JsonValueEncoder jsonEncoder;
+	private JsonConverter jsonConverter;
+	private SinkRecordCompactor compactor;
+	private List<SinkRecord> structRecords;
+	private List<SinkRecord> mapRecords;
+
+	@Setup
+	public void setup() {
+		keyBuilder = new SinkKeyBuilder("${topic}", ":", StandardCharsets.UTF_8);
+		hashEncoder = new StructHashEncoder(StandardCharsets.UTF_8, false);
+		flatHashEncoder = new StructHashEncoder(StandardCharsets.UTF_8, true);
+		jsonEncoder = new JsonValueEncoder();
+		jsonConverter = new JsonConverter();
+		jsonConverter.configure(Collections.singletonMap("schemas.enable", "false"), false);
+		compactor = new SinkRecordCompactor(r -> keyBuilder.key(r.topic(), r.key()), null);
+		Schema schema = schema(fields);
+		SinkRecord[] structs = new SinkRecord[records];
+		SinkRecord[] maps = new SinkRecord[records];
+		for (int index = 0; index < records; index++) {
+			// A quarter of the keys repeat so that compaction has records to drop
+			long id = 1234567L + index % Math.max(1, records * 3 / 4);
+			structs[index] = new SinkRecord(TOPIC, 0, Schema.INT64_SCHEMA, id, schema, struct(schema, index), index);
+			maps[index] = new SinkRecord(TOPIC, 0, Schema.STRING_SCHEMA, String.valueOf(id), null, map(fields, index),
+					index);
+		}
+		structRecords = Arrays.asList(structs);
+		mapRecords = Arrays.asList(maps);
+	}
+
+	/**
+	 * @return an order-like schema whose fields cycle through the primitive types
+	 *         and a nested struct
+	 */
+	private static Schema schema(int fieldCount) {
+		SchemaBuilder builder = SchemaBuilder.struct();
+		for (int index = 0; index < fieldCount; index++) {
+			builder.field("field" + index, fieldSchema(index));
+		}
+		return builder.build();
+	}
+
+	private static Schema fieldSchema(int index) {
+		switch (index % 6) {
+		case 0:
+			return Schema.INT64_SCHEMA;
+		case 1:
+			return Schema.STRING_SCHEMA;
+		case 2:
+			return Schema.INT32_SCHEMA;
+		case 3:
+			return Schema.FLOAT64_SCHEMA;
+		case 4:
+			return Schema.BOOLEAN_SCHEMA;
+		default:
+			return ADDRESS_SCHEMA;
+		}
+	}
+
+	private static Struct struct(Schema schema, int record) {
+		Struct struct = new Struct(schema);
+		for (int index = 0; index < schema.fields().size(); index++) {
+			struct.put("field" + index, fieldValue(index, record));
+		}
+		return struct;
+	}
+
+	private static Object fieldValue(int index, int record) {
+		switch (index % 6) {
+		case 0:
+			return 1234567L + record;
+		case 1:
+			return "customer:" + record;
+		case 2:
+			return record % 10;
+		case 3:
+			return 19.99 + record;
+		case 4:
+			return record % 2 == 0;
+		default:
+			return new Struct(ADDRESS_SCHEMA).put("street", record + " Main Street").put("city", "Springfield")
+					.put("zip", 12345);
+		}
+	}
+
+	private static Map<String, Object> map(int fieldCount, int record) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for (int index = 0; index < fieldCount; index++) {
+			Object value = fieldValue(index, record);
+			map.put("field" + index, value instanceof Struct ? "address:" + record : value);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public void key(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : structRecords) {
+			blackhole.consume(keyBuilder.key(sinkRecord.topic(), sinkRecord.key()));
+		}
+	}
+
+	@Benchmark
+	public void stringKey(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : mapRecords) {
+			blackhole.consume(keyBuilder.key(sinkRecord.topic(), sinkRecord.key()));
+		}
+	}
+
+	/**
+	 * Fields of HSET and XADD commands.
+	 */
+	@Benchmark
+	public void map(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : structRecords) {
+			blackhole.consume(hashEncoder.encode((Struct) sinkRecord.value()));
+		}
+	}
+
+	@Benchmark
+	public void mapFlatten(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : structRecords) {
+			blackhole.consume(flatHashEncoder.encode((Struct) sinkRecord.value()));
+		}
+	}
+
+	@Benchmark
+	public void jsonValue(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : structRecords) {
+			blackhole.consume(jsonEncoder.encode(sinkRecord.valueSchema(), sinkRecord.value()));
+		}
+	}
+
+	@Benchmark
+	public void jsonValueSchemaless(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : mapRecords) {
+			blackhole.consume(jsonEncoder.encode(null, sinkRecord.value()));
+		}
+	}
+
+	/**
+	 * Baseline for {@link #jsonValue(Blackhole)}: the converter previously used
+	 * for JSON documents.
+	 */
+	@Benchmark
+	public void jsonValueConverter(Blackhole blackhole) {
+		for (SinkRecord sinkRecord : structRecords) {
+			blackhole.consume(jsonConverter.fromConnectData(TOPIC, sinkRecord.valueSchema(), sinkRecord.value()));
+		}
+	}
+
+	@Benchmark
+	public List<SinkRecord> compact() {
+		return compactor.compact(structRecords);
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.redis.kafka.connect.source.RawStreamMessageConverter;
+import com.redis.kafka.connect.source.RedisStreamSourceConfig;
+import com.redis.kafka.connect.source.RedisStreamSourceConfigDef;
+import com.redis.kafka.connect.source.StreamMessageConverter;
+
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Conversion costs of the stream source connector for a batch of
+ * {@code records} messages with {@code fields} fields each, in each value
+ * format. Run with the gc profiler to compare allocations per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SourceBenchmark {
+
+	private static final String STREAM = "orders";
+
+	@Param({ "4", "16", "64" })
+	private int fields;
+
+	@Param({ "1", "100" })
+	private int records;
+
+	private StreamMessageConverter streamMessageConverter;
+	private RawStreamMessageConverter jsonConverter;
+	private RawStreamMessageConverter msgpackConverter;
+	private List<StreamMessage<String, String>> messages;
+	private List<StreamMessage<String, byte[]>> rawMessages;
+
+	@Setup
+	public void setup() {
+		streamMessageConverter = new StreamMessageConverter(Clock.systemUTC(),
+				config(RedisStreamSourceConfig.STREAM_FORMAT_STRUCT));
+		jsonConverter = new RawStreamMessageConverter(Clock.systemUTC(),
+				config(RedisStreamSourceConfig.STREAM_FORMAT_JSON));
+		msgpackConverter = new RawStreamMessageConverter(Clock.systemUTC(),
+				config(RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK));
+		messages = new ArrayList<>(records);
+		rawMessages = new ArrayList<>(records);
+		for (int index = 0; index < records; index++) {
+			Map<String, String> body = new LinkedHashMap<>();
+			Map<String, byte[]> rawBody = new LinkedHashMap<>();
+			for (int field = 0; field < fields; field++) {
+				String value = value(field, index);
+				body.put("field" + field, value);
+				rawBody.put("field" + field, value.getBytes(StandardCharsets.UTF_8));
+			}
+			String id = (1687000000000L + index) + "-0";
+			messages.add(new StreamMessage<>(STREAM, id, body));
+			rawMessages.add(new StreamMessage<>(STREAM, id, rawBody));
+		}
+	}
+
+	private static RedisStreamSourceConfig config(String format) {
+		Map<String, String> props = new HashMap<>();
+		props.put(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, STREAM);
+		props.put(RedisStreamSourceConfigDef.STREAM_FORMAT_CONFIG, format);
+		return new RedisStreamSourceConfig(props);
+	}
+
+	private static String value(int field, int record) {
+		switch (field % 4) {
+		case 0:
+			return String.valueOf(1234567 + record);
+		case 1:
+			return "customer:" + record;
+		case 2:
+			return String.valueOf(record % 10);
+		default:
+			return String.valueOf(19.99 + record);
+		}
+	}
+
+	@Benchmark
+	public void streamMessage(Blackhole blackhole) {
+		for (StreamMessage<String, String> message : messages) {
+			blackhole.consume(streamMessageConverter.apply(message));
+		}
+	}
+
+	@Benchmark
+	public void streamMessageJson(Blackhole blackhole) {
+		for (StreamMessage<String, byte[]> message : rawMessages) {
+			blackhole.consume(jsonConverter.apply(message));
+		}
+	}
+
+	@Benchmark
+	public void streamMessageMsgpack(Blackhole blackhole) {
+		for (StreamMessage<String, byte[]> message : rawMessages) {
+			blackhole.consume(msgpackConverter.apply(message));
+		}
+	}
+
+}
@@ -12,19 +12,194 @@
  */
 package com.redis.kafka.connect;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.kafka.connect.connector.Task;
+import org.apache.kafka.connect.errors.ConnectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.redis.kafka.connect.common.RedisClientRegistry;
 import com.redis.kafka.connect.source.AbstractRedisSourceConnector;
+import com.redis.kafka.connect.source.RedisStreamSourceConfig;
 import com.redis.kafka.connect.source.RedisStreamSourceConfigDef;
 import com.redis.kafka.connect.source.RedisStreamSourceTask;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.util.RedisModulesUtils;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.ScanIterator;
 
+/**
+ * Reads the streams named by {@link RedisStreamSourceConfigDef#STREAM_NAME_CONFIG}
+ * and the streams matching {@link RedisStreamSourceConfigDef#STREAM_PATTERN_CONFIG}.
+ * With at least as many streams as tasks each task reads its own share of the
+ * streams. Otherwise tasks share streams through the consumer group. Matching
+ * streams are rescanned every
+ * {@link RedisStreamSourceConfigDef#STREAM_PATTERN_INTERVAL_CONFIG} and tasks are
+ * reconfigured when they change.
+ */
 public class RedisStreamSourceConnector extends AbstractRedisSourceConnector {
 
+	private static final Logger log = LoggerFactory.getLogger(RedisStreamSourceConnector.class);
+
+	private static final String STREAM_TYPE = "stream";
+
+	/**
+	 * Default offset.flush.interval.ms of Kafka Connect workers, at which read
+	 * entries are acknowledged.
+	 */
+	private static final long OFFSET_FLUSH_INTERVAL_DEFAULT = 60000;
+
+	private Map<String, String> props;
+	private ScheduledExecutorService monitor;
+	private volatile List<String> assigned;
+
+	@Override
+	public void start(Map<String, String> props) {
+		super.start(props);
+		this.props = props;
+		RedisStreamSourceConfig config = new RedisStreamSourceConfig(props);
+		if (config.getStreamClaimIdle() > 0 && config.getStreamClaimIdle() <= OFFSET_FLUSH_INTERVAL_DEFAULT) {
+			log.warn("{}={} is not above the default worker offset.flush.interval.ms of {}: entries of other tasks "
+					+ "waiting for an offset commit may be claimed and written again",
+					RedisStreamSourceConfigDef.STREAM_CLAIM_IDLE_CONFIG, config.getStreamClaimIdle(),
+					OFFSET_FLUSH_INTERVAL_DEFAULT);
+		}
+		if (!config.getStreamPattern().isEmpty() && config.getStreamPatternInterval() > 0) {
+			monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "redis-stream-monitor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			monitor.scheduleWithFixedDelay(() -> rediscover(config), config.getStreamPatternInterval(),
+					config.getStreamPatternInterval(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void rediscover(RedisStreamSourceConfig config) {
+		List<String> current = assigned;
+		if (current == null) {
+			return;
+		}
+		List<String> streams;
+		try {
+			streams = streams(config);
+		} catch (RuntimeException e) {
+			log.warn("Could not rescan streams matching {}", config.getStreamPattern(), e);
+			return;
+		}
+		if (!streams.equals(current)) {
+			log.info("Streams matching {} changed from {} to {}, reconfiguring tasks", config.getStreamPattern(),
+					current, streams);
+			assigned = streams;
+			context.requestTaskReconfiguration();
+		}
+	}
+
+	@Override
+	public void stop() {
+		if (monitor != null) {
+			monitor.shutdownNow();
+			monitor = null;
+		}
+		super.stop();
+	}
+
 	@Override
 	public Class<? extends Task> taskClass() {
 		return RedisStreamSourceTask.class;
 	}
 
+	@Override
+	public List<Map<String, String>> taskConfigs(int maxTasks) {
+		RedisStreamSourceConfig config = new RedisStreamSourceConfig(props);
+		List<String> streams = streams(config);
+		assigned = streams;
+		if (streams.isEmpty()) {
+			if (config.getStreamPatternInterval() > 0) {
+				log.warn("No stream matches {}, tasks will start once one is created", config.getStreamPattern());
+			} else {
+				log.warn("No stream matches {}, restart the connector once one is created", config.getStreamPattern());
+			}
+			return Collections.emptyList();
+		}
+		List<Map<String, String>> taskConfigs = super.taskConfigs(maxTasks);
+		List<List<String>> assignments = assign(streams, taskConfigs.size());
+		for (int task = 0; task < taskConfigs.size(); task++) {
+			Map<String, String> taskConfig = taskConfigs.get(task);
+			taskConfig.put(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, String.join(",", assignments.get(task)));
+			int consumer = consumer(task, streams.size(), taskConfigs.size());
+			if (consumer != task) {
+				taskConfig.put(RedisStreamSourceTask.CONSUMER_ID, String.valueOf(consumer));
+			}
+			taskConfig.remove(RedisStreamSourceConfigDef.STREAM_PATTERN_CONFIG);
+		}
+		return taskConfigs;
+	}
+
+	/**
+	 * @return the streams each task reads: streams are dealt round-robin when
+	 *         there are at least as many as tasks, otherwise each task reads a
+	 *         single stream
+	 */
+	public static List<List<String>> assign(List<String> streams, int tasks) {
+		List<List<String>> assignments = new ArrayList<>(tasks);
+		for (int task = 0; task < tasks; task++) {
+			if (streams.size() < tasks) {
+				assignments.add(Collections.singletonList(streams.get(task % streams.size())));
+			} else {
+				List<String> assignment = new ArrayList<>();
+				for (int index = task; index < streams.size(); index += tasks) {
+					assignment.add(streams.get(index));
+				}
+				assignments.add(assignment);
+			}
+		}
+		return assignments;
+	}
+
+	/**
+	 * @return the index of the task among the tasks reading its streams. A task
+	 *         reading its own share of the streams is their only consumer and
+	 *         always uses the same name, so that the pending entries of a stream
+	 *         moved to another task when streams are rediscovered are read again
+	 *         by their new task.
+	 */
+	public static int consumer(int task, int streams, int tasks) {
+		return streams < tasks ? task / streams : 0;
+	}
+
+	private static List<String> streams(RedisStreamSourceConfig config) {
+		if (config.getStreamPattern().isEmpty()) {
+			return config.getStreamNames();
+		}
+		TreeSet<String> matches = new TreeSet<>();
+		AbstractRedisClient client = RedisClientRegistry.acquire(config);
+		try (StatefulRedisModulesConnection<String, String> connection = RedisModulesUtils.connection(client)) {
+			KeyScanArgs args = KeyScanArgs.Builder.type(STREAM_TYPE);
+			args.match(config.getStreamPattern());
+			ScanIterator.scan(connection.sync(), args).forEachRemaining(matches::add);
+		} catch (RedisException e) {
+			throw new ConnectException("Could not list streams matching " + config.getStreamPattern(), e);
+		} finally {
+			RedisClientRegistry.release(client);
+		}
+		List<String> streams = new ArrayList<>(config.getStreamNames());
+		matches.removeAll(streams);
+		streams.addAll(matches);
+		return streams;
+	}
+
 	@Override
 	public RedisStreamSourceConfigDef config() {
 		return new RedisStreamSourceConfigDef();
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.common;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.lettuce.core.AbstractRedisClient;
+
+/**
+ * Reference-counted Redis clients shared by all tasks of a worker. Tasks
+ * configured with the same connection settings share a single client, and so
+ * its event loops, computation threads and cluster topology. A client is shut
+ * down when the last task using it releases it.
+ */
+public final class RedisClientRegistry {
+
+	private static final Logger log = LoggerFactory.getLogger(RedisClientRegistry.class);
+
+	private static class Entry {
+
+		private final List<Object> settings;
+		private final AbstractRedisClient client;
+		private int references;
+
+		public Entry(List<Object> settings, AbstractRedisClient client) {
+			this.settings = settings;
+			this.client = client;
+		}
+
+	}
+
+	private static final Map<List<Object>, Entry> entries = new HashMap<>();
+	private static final Map<AbstractRedisClient, Entry> clients = new IdentityHashMap<>();
+
+	private RedisClientRegistry() {
+	}
+
+	/**
+	 * @return the client for the connection settings of the given config, created
+	 *         if no task currently uses these settings. Must be released with
+	 *         {@link #release(AbstractRedisClient)}.
+	 */
+	public static synchronized AbstractRedisClient acquire(RedisConfig config) {
+		List<Object> settings = config.clientSettings();
+		Entry entry = entries.get(settings);
+		if (entry == null) {
+			entry = new Entry(settings, config.client());
+			entries.put(settings, entry);
+			clients.put(entry.client, entry);
+		}
+		entry.references++;
+		return entry.client;
+	}
+
+	/**
+	 * Releases a client returned by {@link #acquire(RedisConfig)}, shutting it
+	 * down if it is no longer used.
+	 */
+	public static void release(AbstractRedisClient client) {
+		synchronized (RedisClientRegistry.class) {
+			Entry entry = clients.get(client);
+			if (entry == null) {
+				log.warn("Releasing unknown client {}", client);
+				return;
+			}
+			entry.references--;
+			if (entry.references > 0) {
+				return;
+			}
+			entries.remove(entry.settings);
+			clients.remove(client);
+		}
+		client.shutdown();
+		client.getResources().shutdown();
+	}
+
+	/**
+	 * @return the number of tasks using the given client
+	 */
+	public static synchronized int references(AbstractRedisClient client) {
+		Entry entry = clients.get(client);
+		return entry == null ? 0 : entry.references;
+	}
+
+}
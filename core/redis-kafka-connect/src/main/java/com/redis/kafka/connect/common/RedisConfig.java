@@ -17,6 +17,8 @@ package com.redis.kafka.connect.common;
 
 import java.io.File;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.kafka.common.config.AbstractConfig;
@@ -88,6 +90,25 @@ public abstract class RedisConfig extends AbstractConfig {
 		return client(uri());
 	}
 
+	/**
+	 * @return the settings that the client returned by {@link #client()} depends
+	 *         on: configs with equal settings may share a client
+	 */
+	List<Object> clientSettings() {
+		return Arrays.asList(getString(RedisConfigDef.URI_CONFIG), getString(RedisConfigDef.HOST_CONFIG),
+				getInt(RedisConfigDef.PORT_CONFIG), getBoolean(RedisConfigDef.INSECURE_CONFIG),
+				getBoolean(RedisConfigDef.TLS_CONFIG), getString(RedisConfigDef.USERNAME_CONFIG),
+				passwordValue(RedisConfigDef.PASSWORD_CONFIG), getLong(RedisConfigDef.TIMEOUT_CONFIG),
+				getBoolean(RedisConfigDef.CLUSTER_CONFIG), getString(RedisConfigDef.KEY_CONFIG),
+				getString(RedisConfigDef.KEY_CERT_CONFIG), passwordValue(RedisConfigDef.KEY_PASSWORD_CONFIG),
+				getString(RedisConfigDef.CACERT_CONFIG));
+	}
+
+	private String passwordValue(String key) {
+		Password password = getPassword(key);
+		return password == null ? null : password.value();
+	}
+
 	public PoolOptions poolOptions() {
 		return PoolOptions.builder().maxTotal(getInt(RedisConfigDef.POOL_MAX_CONFIG)).build();
 	}
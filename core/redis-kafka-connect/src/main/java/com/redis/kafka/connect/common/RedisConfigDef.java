@@ -38,7 +38,7 @@ public abstract class RedisConfigDef extends ConfigDef {
 
 	public static final String POOL_MAX_CONFIG = "redis.pool";
 	private static final int POOL_MAX_DEFAULT = PoolOptions.DEFAULT_MAX_TOTAL;
-	private static final String POOL_MAX_DOC = "Max pool connections";
+	private static final String POOL_MAX_DOC = "Max pool connections of the keys source connector. Deprecated and ignored by the sink connector, whose connections are set by redis.lanes";
 
 	public static final String TLS_CONFIG = "redis.tls";
 	private static final boolean TLS_DEFAULT = false;
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Additive-increase/multiplicative-decrease controller for the number of
+ * pipelined commands awaiting a reply. Each sample is the round trip of a
+ * pipeline chunk: the limit doubles until the first congestion signal (slow
+ * start), then grows by a constant step for each fast chunk. A chunk slower
+ * than the target latency or failing with a transient error halves the limit.
+ * Samples from chunks sent before the last decrease are ignored for decreases
+ * so that a single congestion event only backs off once.
+ * <p>
+ * Samples may be recorded from any thread.
+ */
+public class AdaptiveLimit {
+
+	public static final int DEFAULT_MIN_LIMIT = 16;
+
+	private static final Logger log = LoggerFactory.getLogger(AdaptiveLimit.class);
+
+	private static final int ADDITIVE_INCREASE = 8;
+	private static final double BACKOFF_RATIO = 0.5;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final long targetLatency;
+	private volatile int limit;
+	private boolean slowStart = true;
+	private boolean decreased;
+	private long lastDecrease;
+
+	public AdaptiveLimit(int minLimit, int maxLimit, Duration targetLatency) {
+		this.minLimit = Math.min(minLimit, maxLimit);
+		this.maxLimit = maxLimit;
+		this.targetLatency = targetLatency.toNanos();
+		this.limit = this.minLimit;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @param start   {@link System#nanoTime()} when the chunk was sent
+	 * @param latency round trip of the chunk in nanoseconds
+	 * @param error   whether the chunk failed with a transient error
+	 */
+	public synchronized void onSample(long start, long latency, boolean error) {
+		if (error || latency > targetLatency) {
+			if (!decreased || start - lastDecrease > 0) {
+				slowStart = false;
+				decreased = true;
+				lastDecrease = System.nanoTime();
+				limit = Math.max(minLimit, (int) (limit * BACKOFF_RATIO));
+				log.debug("Decreased limit to {} (latency: {} ms, error: {})", limit, latency / 1000000, error);
+			}
+			return;
+		}
+		int next = slowStart ? limit * 2 : limit + ADDITIVE_INCREASE;
+		limit = Math.min(maxLimit, Math.max(next, minLimit));
+	}
+
+}
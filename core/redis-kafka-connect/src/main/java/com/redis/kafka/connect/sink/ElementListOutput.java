@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+
+/**
+ * Array reply with one element per item of a command, such as TS.MADD. Errors
+ * of single elements are returned as {@link RedisCommandExecutionException}
+ * elements instead of failing the whole command, while an error reply in place
+ * of the array still fails it.
+ */
+class ElementListOutput extends CommandOutput<byte[], byte[], List<Object>> {
+
+	private boolean array;
+
+	public ElementListOutput() {
+		super(ByteArrayCodec.INSTANCE, new ArrayList<>());
+	}
+
+	@Override
+	public void multi(int count) {
+		array = true;
+	}
+
+	@Override
+	public void set(long integer) {
+		output.add(integer);
+	}
+
+	@Override
+	public void set(ByteBuffer bytes) {
+		output.add(bytes == null ? null : decodeAscii(bytes));
+	}
+
+	@Override
+	public void setError(ByteBuffer error) {
+		if (array) {
+			output.add(new RedisCommandExecutionException(decodeAscii(error)));
+		} else {
+			super.setError(error);
+		}
+	}
+
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Serializes Connect values to UTF-8 JSON the same way as the
+ * {@code JsonConverter} with schemas disabled, but without building an
+ * intermediate tree. Values are written straight into a buffer reused across
+ * calls, and the writers of each schema, including the encoded field names of
+ * structs, are computed once.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class JsonValueEncoder {
+
+	private static final int MAX_CACHED_SCHEMAS = 1000;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+	private static final byte[] NULL = ascii("null");
+	private static final byte[] TRUE = ascii("true");
+	private static final byte[] FALSE = ascii("false");
+	private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+	private interface ValueWriter {
+
+		void write(Object value);
+
+	}
+
+	private final Map<Schema, ValueWriter> identityWriters = new IdentityHashMap<>();
+	private final Map<Schema, ValueWriter> writers = new HashMap<>();
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	private int position;
+
+	private static byte[] ascii(String string) {
+		return string.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * @param schema schema of the value, or null to infer types from the value
+	 *               itself
+	 * @return the JSON encoding of the given value
+	 */
+	public byte[] encode(Schema schema, Object value) {
+		position = 0;
+		try {
+			if (schema == null) {
+				writeSchemaless(value);
+			} else {
+				writer(schema).write(value);
+			}
+		} catch (ClassCastException e) {
+			throw new DataException("Invalid value for schema " + schema + ": " + e.getMessage(), e);
+		}
+		byte[] json = Arrays.copyOf(buffer, position);
+		if (buffer.length > MAX_RETAINED_CAPACITY) {
+			buffer = new byte[INITIAL_CAPACITY];
+		}
+		return json;
+	}
+
+	/**
+	 * Schemas are looked up by identity first since converters usually reuse
+	 * schema instances, then by equality for converters that rebuild them for
+	 * every record.
+	 */
+	private ValueWriter writer(Schema schema) {
+		ValueWriter writer = identityWriters.get(schema);
+		if (writer == null) {
+			writer = writers.get(schema);
+			if (writer == null) {
+				if (writers.size() >= MAX_CACHED_SCHEMAS) {
+					writers.clear();
+				}
+				writer = create(schema);
+				writers.put(schema, writer);
+			}
+			if (identityWriters.size() >= MAX_CACHED_SCHEMAS) {
+				identityWriters.clear();
+			}
+			identityWriters.put(schema, writer);
+		}
+		return writer;
+	}
+
+	private ValueWriter create(Schema schema) {
+		ValueWriter writer = typeWriter(schema);
+		return value -> {
+			if (value != null) {
+				writer.write(value);
+			} else if (schema.defaultValue() != null) {
+				writer.write(schema.defaultValue());
+			} else if (schema.isOptional()) {
+				write(NULL);
+			} else {
+				throw new DataException(
+						"Conversion error: null value for field that is required and has no default value");
+			}
+		};
+	}
+
+	private ValueWriter typeWriter(Schema schema) {
+		if (schema.name() != null) {
+			switch (schema.name()) {
+			case Decimal.LOGICAL_NAME:
+				return value -> writeBase64(Decimal.fromLogical(schema, (BigDecimal) value));
+			case Date.LOGICAL_NAME:
+				return value -> writeLong(Date.fromLogical(schema, (java.util.Date) value));
+			case Time.LOGICAL_NAME:
+				return value -> writeLong(Time.fromLogical(schema, (java.util.Date) value));
+			case Timestamp.LOGICAL_NAME:
+				return value -> writeLong(Timestamp.fromLogical(schema, (java.util.Date) value));
+			default:
+				break;
+			}
+		}
+		switch (schema.type()) {
+		case INT8:
+		case INT16:
+		case INT32:
+		case INT64:
+			return value -> writeLong(((Number) value).longValue());
+		case FLOAT32:
+			return value -> writeFloat(((Number) value).floatValue());
+		case FLOAT64:
+			return value -> writeDouble(((Number) value).doubleValue());
+		case BOOLEAN:
+			return value -> write(((Boolean) value) ? TRUE : FALSE);
+		case STRING:
+			return value -> writeString(((CharSequence) value).toString());
+		case BYTES:
+			return this::writeBytes;
+		case ARRAY:
+			return arrayWriter(schema);
+		case MAP:
+			return mapWriter(schema);
+		case STRUCT:
+			return structWriter(schema);
+		default:
+			throw new DataException("Couldn't convert schema type " + schema.type() + " to JSON.");
+		}
+	}
+
+	private ValueWriter arrayWriter(Schema schema) {
+		ValueWriter elementWriter = create(schema.valueSchema());
+		return value -> {
+			write('[');
+			boolean first = true;
+			for (Object element : (Collection<?>) value) {
+				if (!first) {
+					write(',');
+				}
+				first = false;
+				elementWriter.write(element);
+			}
+			write(']');
+		};
+	}
+
+	private ValueWriter mapWriter(Schema schema) {
+		ValueWriter keyWriter = create(schema.keySchema());
+		ValueWriter valueWriter = create(schema.valueSchema());
+		if (schema.keySchema().type() == Schema.Type.STRING) {
+			return value -> {
+				write('{');
+				boolean first = true;
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					if (!first) {
+						write(',');
+					}
+					first = false;
+					writeString(String.valueOf(entry.getKey()));
+					write(':');
+					valueWriter.write(entry.getValue());
+				}
+				write('}');
+			};
+		}
+		return value -> {
+			write('[');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					write(',');
+				}
+				first = false;
+				write('[');
+				keyWriter.write(entry.getKey());
+				write(',');
+				valueWriter.write(entry.getValue());
+				write(']');
+			}
+			write(']');
+		};
+	}
+
+	private ValueWriter structWriter(Schema schema) {
+		List<Field> fields = schema.fields();
+		List<byte[]> names = new ArrayList<>(fields.size());
+		List<ValueWriter> fieldWriters = new ArrayList<>(fields.size());
+		for (Field field : fields) {
+			names.add(fieldName(field.name(), names.isEmpty()));
+			fieldWriters.add(create(field.schema()));
+		}
+		return value -> {
+			Struct struct = (Struct) value;
+			write('{');
+			for (int index = 0; index < fields.size(); index++) {
+				write(names.get(index));
+				fieldWriters.get(index).write(struct.get(fields.get(index)));
+			}
+			write('}');
+		};
+	}
+
+	/**
+	 * @return the encoded {@code "name":} prefix of a struct field, preceded by a
+	 *         comma unless it is the first field
+	 */
+	private byte[] fieldName(String name, boolean first) {
+		int start = position;
+		if (!first) {
+			write(',');
+		}
+		writeString(name);
+		write(':');
+		byte[] bytes = Arrays.copyOfRange(buffer, start, position);
+		position = start;
+		return bytes;
+	}
+
+	private void writeSchemaless(Object value) {
+		if (value == null) {
+			write(NULL);
+		} else if (value instanceof String) {
+			writeString((String) value);
+		} else if (value instanceof Boolean) {
+			write(((Boolean) value) ? TRUE : FALSE);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			writeLong(((Number) value).longValue());
+		} else if (value instanceof Float) {
+			writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			writeDouble((Double) value);
+		} else if (value instanceof byte[] || value instanceof ByteBuffer) {
+			writeBytes(value);
+		} else if (value instanceof Collection) {
+			writeSchemaless((Collection<?>) value);
+		} else if (value instanceof Map) {
+			writeSchemaless((Map<?, ?>) value);
+		} else if (value instanceof Struct) {
+			writer(((Struct) value).schema()).write(value);
+		} else {
+			throw new DataException("Java class " + value.getClass() + " does not have corresponding schema type.");
+		}
+	}
+
+	private void writeSchemaless(Collection<?> collection) {
+		write('[');
+		boolean first = true;
+		for (Object element : collection) {
+			if (!first) {
+				write(',');
+			}
+			first = false;
+			writeSchemaless(element);
+		}
+		write(']');
+	}
+
+	private void writeSchemaless(Map<?, ?> map) {
+		boolean object = true;
+		for (Object key : map.keySet()) {
+			if (!(key instanceof String)) {
+				object = false;
+				break;
+			}
+		}
+		write(object ? '{' : '[');
+		boolean first = true;
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			if (!first) {
+				write(',');
+			}
+			first = false;
+			if (object) {
+				writeString((String) entry.getKey());
+				write(':');
+				writeSchemaless(entry.getValue());
+			} else {
+				write('[');
+				writeSchemaless(entry.getKey());
+				write(',');
+				writeSchemaless(entry.getValue());
+				write(']');
+			}
+		}
+		write(object ? '}' : ']');
+	}
+
+	private void writeBytes(Object value) {
+		if (value instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			writeBase64(bytes);
+		} else {
+			writeBase64((byte[]) value);
+		}
+	}
+
+	private void writeBase64(byte[] bytes) {
+		write('"');
+		write(Base64.getEncoder().encode(bytes));
+		write('"');
+	}
+
+	private void writeFloat(float value) {
+		if (Float.isNaN(value) || Float.isInfinite(value)) {
+			writeString(Float.toString(value));
+		} else {
+			writeAscii(Float.toString(value));
+		}
+	}
+
+	private void writeDouble(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			writeString(Double.toString(value));
+		} else {
+			writeAscii(Double.toString(value));
+		}
+	}
+
+	private void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(String.valueOf(value));
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+			digits++;
+		}
+		for (int index = position + digits - 1; index >= position; index--) {
+			buffer[index] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		position += digits;
+	}
+
+	private void writeAscii(String string) {
+		int length = string.length();
+		ensureCapacity(length);
+		for (int index = 0; index < length; index++) {
+			buffer[position++] = (byte) string.charAt(index);
+		}
+	}
+
+	/**
+	 * Writes a quoted JSON string, escaping quotes, backslashes and control
+	 * characters, and encoding other characters as UTF-8.
+	 */
+	private void writeString(String string) {
+		int length = string.length();
+		ensureCapacity(length + 2);
+		buffer[position++] = '"';
+		for (int index = 0; index < length; index++) {
+			char c = string.charAt(index);
+			if (c < 0x80) {
+				writeAsciiChar(c);
+			} else if (c < 0x800) {
+				ensureCapacity(2);
+				buffer[position++] = (byte) (0xc0 | (c >> 6));
+				buffer[position++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && index + 1 < length
+						&& Character.isLowSurrogate(string.charAt(index + 1))) {
+					int codePoint = Character.toCodePoint(c, string.charAt(++index));
+					ensureCapacity(4);
+					buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+					buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+				} else {
+					write('?');
+				}
+			} else {
+				ensureCapacity(3);
+				buffer[position++] = (byte) (0xe0 | (c >> 12));
+				buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[position++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		write('"');
+	}
+
+	private void writeAsciiChar(char c) {
+		if (c >= 0x20 && c != '"' && c != '\\') {
+			write((byte) c);
+			return;
+		}
+		ensureCapacity(6);
+		buffer[position++] = '\\';
+		switch (c) {
+		case '"':
+		case '\\':
+			buffer[position++] = (byte) c;
+			break;
+		case '\b':
+			buffer[position++] = 'b';
+			break;
+		case '\t':
+			buffer[position++] = 't';
+			break;
+		case '\n':
+			buffer[position++] = 'n';
+			break;
+		case '\f':
+			buffer[position++] = 'f';
+			break;
+		case '\r':
+			buffer[position++] = 'r';
+			break;
+		default:
+			buffer[position++] = 'u';
+			buffer[position++] = '0';
+			buffer[position++] = '0';
+			buffer[position++] = HEX[c >> 4];
+			buffer[position++] = HEX[c & 0xf];
+			break;
+		}
+	}
+
+	private void write(char c) {
+		write((byte) c);
+	}
+
+	private void write(byte b) {
+		ensureCapacity(1);
+		buffer[position++] = b;
+	}
+
+	private void write(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private void ensureCapacity(int length) {
+		if (position + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.redis.kafka.connect.sink;
+
+import java.nio.charset.StandardCharsets;
+
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+/**
+ * Redis module commands dispatched by the sink. Dispatching them directly keeps
+ * the writer usable on any async command interface, including single cluster
+ * node connections which do not expose the module APIs.
+ */
+public enum ModuleCommandType implements ProtocolKeyword {
+
+	JSON_SET("JSON.SET"), JSON_MSET("JSON.MSET"), TS_ADD("TS.ADD"), TS_MADD("TS.MADD"), TS_CREATE("TS.CREATE");
+
+	private final byte[] bytes;
+
+	ModuleCommandType(String command) {
+		this.bytes = command.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Override
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+}
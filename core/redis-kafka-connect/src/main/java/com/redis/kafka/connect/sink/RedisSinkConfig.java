@@ -28,6 +28,10 @@ public class RedisSinkConfig extends RedisConfig {
 		HSET, JSONSET, TSADD, SET, XADD, LPUSH, RPUSH, SADD, ZADD, DEL
 	}
 
+	public enum TimestampSource {
+		KEY, RECORD, FIELD
+	}
+
 	private final Charset charset;
 	private final RedisCommand command;
 	private final String keyspace;
@@ -35,6 +39,26 @@ public class RedisSinkConfig extends RedisConfig {
 	private final boolean multiexec;
 	private final int waitReplicas;
 	private final Duration waitTimeout;
+	private final boolean async;
+	private final int maxInFlight;
+	private final int lanes;
+	private final boolean offsetAtomic;
+	private final boolean compact;
+	private final int coalesce;
+	private final boolean mset;
+	private final String timeSeriesKey;
+	private final TimestampSource timestampSource;
+	private final String timestampField;
+	private final String valueField;
+	private final boolean flatten;
+	private final boolean adaptive;
+	private final Duration adaptiveLatency;
+	private final Duration linger;
+	private final int batchMaxRecords;
+	private final long batchMaxBytes;
+	private final String deadLetterStream;
+	private final int maxRetries;
+	private final Duration retryBackoff;
 
 	public RedisSinkConfig(Map<?, ?> originals) {
 		super(new RedisSinkConfigDef(), originals);
@@ -46,6 +70,26 @@ public class RedisSinkConfig extends RedisConfig {
 		multiexec = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.MULTIEXEC_CONFIG));
 		waitReplicas = getInt(RedisSinkConfigDef.WAIT_REPLICAS_CONFIG);
 		waitTimeout = Duration.ofMillis(getLong(RedisSinkConfigDef.WAIT_TIMEOUT_CONFIG));
+		async = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.ASYNC_CONFIG));
+		maxInFlight = getInt(RedisSinkConfigDef.MAX_IN_FLIGHT_CONFIG);
+		lanes = getInt(RedisSinkConfigDef.LANES_CONFIG);
+		offsetAtomic = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.OFFSET_ATOMIC_CONFIG));
+		compact = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.COMPACT_CONFIG));
+		coalesce = getInt(RedisSinkConfigDef.COALESCE_CONFIG);
+		mset = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.MSET_CONFIG));
+		timeSeriesKey = getString(RedisSinkConfigDef.TS_KEY_CONFIG).trim();
+		timestampSource = TimestampSource.valueOf(getString(RedisSinkConfigDef.TS_TIMESTAMP_CONFIG).trim());
+		timestampField = getString(RedisSinkConfigDef.TS_TIMESTAMP_FIELD_CONFIG).trim();
+		valueField = getString(RedisSinkConfigDef.TS_VALUE_FIELD_CONFIG).trim();
+		flatten = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.FLATTEN_CONFIG));
+		adaptive = Boolean.TRUE.equals(getBoolean(RedisSinkConfigDef.ADAPTIVE_CONFIG));
+		adaptiveLatency = Duration.ofMillis(getLong(RedisSinkConfigDef.ADAPTIVE_LATENCY_CONFIG));
+		linger = Duration.ofMillis(getLong(RedisSinkConfigDef.LINGER_CONFIG));
+		batchMaxRecords = getInt(RedisSinkConfigDef.BATCH_MAX_RECORDS_CONFIG);
+		batchMaxBytes = getLong(RedisSinkConfigDef.BATCH_MAX_BYTES_CONFIG);
+		deadLetterStream = getString(RedisSinkConfigDef.DLQ_STREAM_CONFIG).trim();
+		maxRetries = getInt(RedisSinkConfigDef.MAX_RETRIES_CONFIG);
+		retryBackoff = Duration.ofMillis(getLong(RedisSinkConfigDef.RETRY_BACKOFF_CONFIG));
 	}
 
 	public Charset getCharset() {
@@ -76,12 +120,95 @@ public class RedisSinkConfig extends RedisConfig {
 		return waitTimeout;
 	}
 
+	public boolean isAsync() {
+		return async;
+	}
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public int getLanes() {
+		return lanes;
+	}
+
+	public boolean isOffsetAtomic() {
+		return offsetAtomic;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	public int getCoalesce() {
+		return coalesce;
+	}
+
+	public boolean isMset() {
+		return mset;
+	}
+
+	public String getTimeSeriesKey() {
+		return timeSeriesKey;
+	}
+
+	public TimestampSource getTimestampSource() {
+		return timestampSource;
+	}
+
+	public String getTimestampField() {
+		return timestampField;
+	}
+
+	public String getValueField() {
+		return valueField;
+	}
+
+	public boolean isFlatten() {
+		return flatten;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public Duration getAdaptiveLatency() {
+		return adaptiveLatency;
+	}
+
+	public Duration getLinger() {
+		return linger;
+	}
+
+	public int getBatchMaxRecords() {
+		return batchMaxRecords;
+	}
+
+	public long getBatchMaxBytes() {
+		return batchMaxBytes;
+	}
+
+	public String getDeadLetterStream() {
+		return deadLetterStream;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public Duration getRetryBackoff() {
+		return retryBackoff;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result
-				+ Objects.hash(charset, keyspace, separator, multiexec, command, waitReplicas, waitTimeout);
+				+ Objects.hash(charset, keyspace, separator, multiexec, command, waitReplicas, waitTimeout, async,
+						maxInFlight, lanes, offsetAtomic, compact, coalesce, mset, timeSeriesKey, timestampSource,
+						timestampField, valueField, flatten, adaptive, adaptiveLatency, linger, batchMaxRecords,
+						batchMaxBytes, deadLetterStream, maxRetries, retryBackoff);
 		return result;
 	}
 
@@ -96,7 +223,16 @@ public class RedisSinkConfig extends RedisConfig {
 		RedisSinkConfig other = (RedisSinkConfig) obj;
 		return Objects.equals(charset, other.charset) && Objects.equals(keyspace, other.keyspace)
 				&& Objects.equals(separator, other.separator) && multiexec == other.multiexec
-				&& command == other.command && waitReplicas == other.waitReplicas && waitTimeout == other.waitTimeout;
+				&& command == other.command && waitReplicas == other.waitReplicas && waitTimeout == other.waitTimeout
+				&& async == other.async && maxInFlight == other.maxInFlight && lanes == other.lanes
+				&& offsetAtomic == other.offsetAtomic && compact == other.compact && coalesce == other.coalesce
+				&& mset == other.mset && Objects.equals(timeSeriesKey, other.timeSeriesKey)
+				&& timestampSource == other.timestampSource && Objects.equals(timestampField, other.timestampField)
+				&& Objects.equals(valueField, other.valueField) && flatten == other.flatten && adaptive == other.adaptive
+				&& Objects.equals(adaptiveLatency, other.adaptiveLatency) && Objects.equals(linger, other.linger)
+				&& batchMaxRecords == other.batchMaxRecords && batchMaxBytes == other.batchMaxBytes
+				&& Objects.equals(deadLetterStream, other.deadLetterStream)
+				&& maxRetries == other.maxRetries && Objects.equals(retryBackoff, other.retryBackoff);
 	}
 
 }
@@ -11,10 +11,13 @@ import org.apache.kafka.common.config.ConfigValue;
 
 import com.redis.kafka.connect.common.RedisConfigDef;
 import com.redis.kafka.connect.sink.RedisSinkConfig.RedisCommand;
+import com.redis.kafka.connect.sink.RedisSinkConfig.TimestampSource;
 
 public class RedisSinkConfigDef extends RedisConfigDef {
 
 	public static final String TOKEN_TOPIC = "${topic}";
+	public static final String TOKEN_KEY = "${key}";
+	public static final String TOKEN_VALUE_FIELD = "${value.<field>}";
 
 	public static final String CHARSET_CONFIG = "redis.charset";
 	public static final String CHARSET_DEFAULT = Charset.defaultCharset().name();
@@ -43,6 +46,86 @@ public class RedisSinkConfigDef extends RedisConfigDef {
 	public static final String WAIT_TIMEOUT_DEFAULT = "1000";
 	public static final String WAIT_TIMEOUT_DOC = "Timeout in millis for WAIT command.";
 
+	public static final String ASYNC_CONFIG = "redis.async";
+	public static final String ASYNC_DEFAULT = "false";
+	public static final String ASYNC_DOC = "Whether to write asynchronously: put() returns as soon as commands are pipelined and flush() waits for them to complete before offsets are committed.";
+
+	public static final String MAX_IN_FLIGHT_CONFIG = "redis.inflight";
+	public static final String MAX_IN_FLIGHT_DEFAULT = "10000";
+	public static final String MAX_IN_FLIGHT_DOC = "Maximum number of pipelined commands awaiting a reply. Writes block once this limit is reached.";
+
+	public static final String LANES_CONFIG = "redis.lanes";
+	public static final String LANES_DEFAULT = "1";
+	public static final String LANES_DOC = "Number of writer lanes of each task. Every lane has its own connection and thread, and the records of a batch are spread across lanes by hash of their Redis key so that writes to a key keep their order.";
+
+	public static final String ADAPTIVE_CONFIG = "redis.adaptive";
+	public static final String ADAPTIVE_DEFAULT = "false";
+	public static final String ADAPTIVE_DOC = "Whether to size the in-flight window and pipeline chunks from observed latency and errors, up to " + MAX_IN_FLIGHT_CONFIG + " commands.";
+
+	public static final String ADAPTIVE_LATENCY_CONFIG = "redis.adaptive.latency";
+	public static final String ADAPTIVE_LATENCY_DEFAULT = "50";
+	public static final String ADAPTIVE_LATENCY_DOC = "Round trip in millis of a pipeline chunk above which the adaptive in-flight window is halved.";
+
+	public static final String OFFSET_ATOMIC_CONFIG = "redis.offset.atomic";
+	public static final String OFFSET_ATOMIC_DEFAULT = "false";
+	public static final String OFFSET_ATOMIC_DOC = "Whether to write sink offsets in the same pipeline as the records they cover, and in the same transaction when multi/exec is enabled. Otherwise offsets are written on flush.";
+
+	public static final String COMPACT_CONFIG = "redis.compact";
+	public static final String COMPACT_DEFAULT = "false";
+	public static final String COMPACT_DOC = "Whether to only write the last record for each key in a batch. Hash fields of records with the same key are merged.";
+
+	public static final String COALESCE_CONFIG = "redis.coalesce";
+	public static final String COALESCE_DEFAULT = "1000";
+	public static final String COALESCE_DOC = "Maximum number of records written with a single variadic command (SADD, SREM, ZADD, ZREM, LPUSH, RPUSH) when records of a batch target the same key. Use 1 to write each record with its own command.";
+
+	public static final String MSET_CONFIG = "redis.mset";
+	public static final String MSET_DEFAULT = "false";
+	public static final String MSET_DOC = "Whether to write the records of a batch with MSET (SET), JSON.MSET (JSONSET, requires RedisJSON 2.6 or later) or TS.MADD (TSADD) holding up to " + COALESCE_CONFIG + " records, instead of one command per record. With Redis Cluster records are grouped by hash slot.";
+
+	public static final String TS_KEY_CONFIG = "redis.ts.key";
+	public static final String TS_KEY_DEFAULT = "";
+	public static final String TS_KEY_DOC = "A format string for time series keys (TSADD only), which may contain '" + TOKEN_TOPIC + "', '" + TOKEN_KEY + "' for the record key and '" + TOKEN_VALUE_FIELD + "' for a field of struct or map record values, so that a topic can feed many series. For example ``metrics:${value.host}:${value.metric}``. Leave empty to use the " + KEY_CONFIG + " key.";
+
+	public static final String TS_TIMESTAMP_CONFIG = "redis.ts.timestamp";
+	public static final TimestampSource TS_TIMESTAMP_DEFAULT = TimestampSource.KEY;
+	public static final String TS_TIMESTAMP_DOC = "Source of time series sample timestamps: KEY (the record key), RECORD (the Kafka record timestamp) or FIELD (the field of struct or map record values named by redis.ts.timestamp.field). Samples without a timestamp are added at the Redis server time.";
+
+	public static final String TS_TIMESTAMP_FIELD_CONFIG = "redis.ts.timestamp.field";
+	public static final String TS_TIMESTAMP_FIELD_DEFAULT = "";
+	public static final String TS_TIMESTAMP_FIELD_DOC = "Field of struct or map record values holding the sample timestamp in milliseconds when " + TS_TIMESTAMP_CONFIG + " is FIELD.";
+
+	public static final String TS_VALUE_FIELD_CONFIG = "redis.ts.value.field";
+	public static final String TS_VALUE_FIELD_DEFAULT = "";
+	public static final String TS_VALUE_FIELD_DOC = "Field of struct or map record values holding the sample value. Leave empty if record values are numbers.";
+
+	public static final String FLATTEN_CONFIG = "redis.flatten";
+	public static final String FLATTEN_DEFAULT = "false";
+	public static final String FLATTEN_DOC = "Whether to write the fields of nested structs as separate hash or stream fields named <parent>.<child> (HSET and XADD only).";
+
+	public static final String LINGER_CONFIG = "redis.linger";
+	public static final String LINGER_DEFAULT = "0";
+	public static final String LINGER_DOC = "Time in millis to buffer records across put() calls before writing them. Use 0 to write the records of each put() call right away.";
+
+	public static final String BATCH_MAX_RECORDS_CONFIG = "redis.batch.records";
+	public static final String BATCH_MAX_RECORDS_DEFAULT = "1000";
+	public static final String BATCH_MAX_RECORDS_DOC = "Number of buffered records that triggers a write before the linger time has elapsed.";
+
+	public static final String BATCH_MAX_BYTES_CONFIG = "redis.batch.bytes";
+	public static final String BATCH_MAX_BYTES_DEFAULT = "1048576";
+	public static final String BATCH_MAX_BYTES_DOC = "Estimated size in bytes of buffered record keys and values that triggers a write before the linger time has elapsed.";
+
+	public static final String MAX_RETRIES_CONFIG = "redis.retries";
+	public static final String MAX_RETRIES_DEFAULT = "10";
+	public static final String MAX_RETRIES_DOC = "Maximum number of consecutive times a batch is retried after a transient error (timeout, lost connection, cluster redirection, ...) before the task fails.";
+
+	public static final String RETRY_BACKOFF_CONFIG = "redis.retry.backoff";
+	public static final String RETRY_BACKOFF_DEFAULT = "100";
+	public static final String RETRY_BACKOFF_DOC = "Time in millis to wait before the first retry of a batch. The wait doubles with each consecutive retry.";
+
+	public static final String DLQ_STREAM_CONFIG = "redis.dlq.stream";
+	public static final String DLQ_STREAM_DEFAULT = "";
+	public static final String DLQ_STREAM_DOC = "Name of the Redis stream that records which cannot be written (e.g. conversion errors or WRONGTYPE replies) are added to. If empty such records are sent to the Connect errant record reporter when available, and otherwise logged and skipped.";
+
 	public static final String COMMAND_CONFIG = "redis.command";
 	public static final RedisCommand COMMAND_DEFAULT = RedisCommand.XADD;
 	public static final String COMMAND_DOC = "Destination data structure: "
@@ -52,6 +135,13 @@ public class RedisSinkConfigDef extends RedisConfigDef {
 			.of(RedisCommand.XADD, RedisCommand.LPUSH, RedisCommand.RPUSH, RedisCommand.SADD, RedisCommand.ZADD)
 			.collect(Collectors.toSet());
 
+	protected static final Set<RedisCommand> COMPACT_COMMANDS = Stream
+			.of(RedisCommand.HSET, RedisCommand.JSONSET, RedisCommand.SET, RedisCommand.DEL)
+			.collect(Collectors.toSet());
+
+	protected static final Set<RedisCommand> MSET_COMMANDS = Stream
+			.of(RedisCommand.SET, RedisCommand.JSONSET, RedisCommand.TSADD).collect(Collectors.toSet());
+
 	public RedisSinkConfigDef() {
 		define();
 	}
@@ -69,6 +159,35 @@ public class RedisSinkConfigDef extends RedisConfigDef {
 		define(MULTIEXEC_CONFIG, Type.BOOLEAN, MULTIEXEC_DEFAULT, Importance.MEDIUM, MULTIEXEC_DOC);
 		define(WAIT_REPLICAS_CONFIG, Type.INT, WAIT_REPLICAS_DEFAULT, Importance.MEDIUM, WAIT_REPLICAS_DOC);
 		define(WAIT_TIMEOUT_CONFIG, Type.LONG, WAIT_TIMEOUT_DEFAULT, Importance.MEDIUM, WAIT_TIMEOUT_DOC);
+		define(ASYNC_CONFIG, Type.BOOLEAN, ASYNC_DEFAULT, Importance.MEDIUM, ASYNC_DOC);
+		define(COMPACT_CONFIG, Type.BOOLEAN, COMPACT_DEFAULT, Importance.MEDIUM, COMPACT_DOC);
+		define(COALESCE_CONFIG, Type.INT, COALESCE_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW, COALESCE_DOC);
+		define(MSET_CONFIG, Type.BOOLEAN, MSET_DEFAULT, Importance.LOW, MSET_DOC);
+		define(TS_KEY_CONFIG, Type.STRING, TS_KEY_DEFAULT, Importance.MEDIUM, TS_KEY_DOC);
+		define(TS_TIMESTAMP_CONFIG, Type.STRING, TS_TIMESTAMP_DEFAULT.name(),
+				ConfigDef.ValidString.in(Stream.of(TimestampSource.values()).map(Enum::name).toArray(String[]::new)),
+				Importance.MEDIUM, TS_TIMESTAMP_DOC);
+		define(TS_TIMESTAMP_FIELD_CONFIG, Type.STRING, TS_TIMESTAMP_FIELD_DEFAULT, Importance.MEDIUM,
+				TS_TIMESTAMP_FIELD_DOC);
+		define(TS_VALUE_FIELD_CONFIG, Type.STRING, TS_VALUE_FIELD_DEFAULT, Importance.MEDIUM, TS_VALUE_FIELD_DOC);
+		define(FLATTEN_CONFIG, Type.BOOLEAN, FLATTEN_DEFAULT, Importance.LOW, FLATTEN_DOC);
+		define(OFFSET_ATOMIC_CONFIG, Type.BOOLEAN, OFFSET_ATOMIC_DEFAULT, Importance.LOW, OFFSET_ATOMIC_DOC);
+		define(MAX_IN_FLIGHT_CONFIG, Type.INT, MAX_IN_FLIGHT_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW,
+				MAX_IN_FLIGHT_DOC);
+		define(LANES_CONFIG, Type.INT, LANES_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW, LANES_DOC);
+		define(ADAPTIVE_CONFIG, Type.BOOLEAN, ADAPTIVE_DEFAULT, Importance.LOW, ADAPTIVE_DOC);
+		define(ADAPTIVE_LATENCY_CONFIG, Type.LONG, ADAPTIVE_LATENCY_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW,
+				ADAPTIVE_LATENCY_DOC);
+		define(LINGER_CONFIG, Type.LONG, LINGER_DEFAULT, ConfigDef.Range.atLeast(0), Importance.MEDIUM, LINGER_DOC);
+		define(BATCH_MAX_RECORDS_CONFIG, Type.INT, BATCH_MAX_RECORDS_DEFAULT, ConfigDef.Range.atLeast(1),
+				Importance.LOW, BATCH_MAX_RECORDS_DOC);
+		define(BATCH_MAX_BYTES_CONFIG, Type.LONG, BATCH_MAX_BYTES_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW,
+				BATCH_MAX_BYTES_DOC);
+		define(DLQ_STREAM_CONFIG, Type.STRING, DLQ_STREAM_DEFAULT, Importance.MEDIUM, DLQ_STREAM_DOC);
+		define(MAX_RETRIES_CONFIG, Type.INT, MAX_RETRIES_DEFAULT, ConfigDef.Range.atLeast(0), Importance.LOW,
+				MAX_RETRIES_DOC);
+		define(RETRY_BACKOFF_CONFIG, Type.LONG, RETRY_BACKOFF_DEFAULT, ConfigDef.Range.atLeast(0), Importance.LOW,
+				RETRY_BACKOFF_DOC);
 	}
 
 	@Override
@@ -85,6 +204,37 @@ public class RedisSinkConfigDef extends RedisConfigDef {
 			results.get(MULTIEXEC_CONFIG)
 					.addErrorMessage("multi/exec is only supported with these data structures: " + supportedTypes);
 		}
+		if (multiexec.equalsIgnoreCase("true")
+				&& props.getOrDefault(CLUSTER_CONFIG, "false").trim().equalsIgnoreCase("true")) {
+			results.get(MULTIEXEC_CONFIG).addErrorMessage("multi/exec is not supported with Redis Cluster");
+		}
+		Object lanes = results.get(LANES_CONFIG).value();
+		if (lanes instanceof Integer && (Integer) lanes > 1) {
+			if (multiexec.equalsIgnoreCase("true")) {
+				results.get(LANES_CONFIG).addErrorMessage("multi/exec is not supported with several writer lanes");
+			}
+			if (props.getOrDefault(OFFSET_ATOMIC_CONFIG, OFFSET_ATOMIC_DEFAULT).trim().equalsIgnoreCase("true")) {
+				results.get(LANES_CONFIG).addErrorMessage("atomic offsets are not supported with several writer lanes");
+			}
+		}
+		String compact = props.getOrDefault(COMPACT_CONFIG, COMPACT_DEFAULT).trim();
+		if (compact.equalsIgnoreCase("true") && !COMPACT_COMMANDS.contains(command)) {
+			String supportedTypes = String.join(", ", COMPACT_COMMANDS.stream().map(Enum::name).toArray(String[]::new));
+			results.get(COMPACT_CONFIG)
+					.addErrorMessage("compaction is only supported with these data structures: " + supportedTypes);
+		}
+		String mset = props.getOrDefault(MSET_CONFIG, MSET_DEFAULT).trim();
+		if (mset.equalsIgnoreCase("true") && !MSET_COMMANDS.contains(command)) {
+			String supportedTypes = String.join(", ", MSET_COMMANDS.stream().map(Enum::name).toArray(String[]::new));
+			results.get(MSET_CONFIG)
+					.addErrorMessage("multi-key writes are only supported with these data structures: " + supportedTypes);
+		}
+		String timestampSource = props.getOrDefault(TS_TIMESTAMP_CONFIG, TS_TIMESTAMP_DEFAULT.name()).trim();
+		if (timestampSource.equalsIgnoreCase(TimestampSource.FIELD.name())
+				&& props.getOrDefault(TS_TIMESTAMP_FIELD_CONFIG, TS_TIMESTAMP_FIELD_DEFAULT).trim().isEmpty()) {
+			results.get(TS_TIMESTAMP_FIELD_CONFIG).addErrorMessage(
+					"a timestamp field is required when " + TS_TIMESTAMP_CONFIG + " is " + TimestampSource.FIELD);
+		}
 		String charsetName = props.getOrDefault(CHARSET_CONFIG, CHARSET_DEFAULT).trim();
 		try {
 			Charset.forName(charsetName);
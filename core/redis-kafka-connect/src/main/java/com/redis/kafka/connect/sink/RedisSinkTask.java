@@ -15,104 +15,142 @@
  */
 package com.redis.kafka.connect.sink;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.errors.DataException;
-import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.ErrantRecordReporter;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.apache.kafka.connect.sink.SinkTask;
-import org.apache.kafka.connect.storage.Converter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.item.ExecutionContext;
 import org.springframework.util.Assert;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redis.kafka.connect.common.ManifestVersionProvider;
+import com.redis.kafka.connect.common.RedisClientRegistry;
 import com.redis.lettucemod.api.StatefulRedisModulesConnection;
 import com.redis.lettucemod.util.RedisModulesUtils;
-import com.redis.spring.batch.RedisItemWriter;
-import com.redis.spring.batch.RedisItemWriter.WriterBuilder;
-import com.redis.spring.batch.common.Operation;
-import com.redis.spring.batch.convert.SampleConverter;
-import com.redis.spring.batch.convert.ScoredValueConverter;
-import com.redis.spring.batch.writer.operation.Del;
-import com.redis.spring.batch.writer.operation.Hset;
-import com.redis.spring.batch.writer.operation.JsonSet;
-import com.redis.spring.batch.writer.operation.Lpush;
-import com.redis.spring.batch.writer.operation.Rpush;
-import com.redis.spring.batch.writer.operation.Sadd;
-import com.redis.spring.batch.writer.operation.Set;
-import com.redis.spring.batch.writer.operation.TsAdd;
-import com.redis.spring.batch.writer.operation.Xadd;
-import com.redis.spring.batch.writer.operation.Zadd;
 
 import io.lettuce.core.AbstractRedisClient;
-import io.lettuce.core.KeyValue;
-import io.lettuce.core.XAddArgs;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.CommandArgs;
 import io.netty.util.internal.StringUtil;
 
 public class RedisSinkTask extends SinkTask {
 
 	private static final Logger log = LoggerFactory.getLogger(RedisSinkTask.class);
-	private static final String OFFSET_KEY_FORMAT = "com.redis.kafka.connect.sink.offset.%s.%s";
+	private static final String JSON_ROOT_PATH = "$";
+	private static final String TIMESTAMP_AUTO = "*";
+	private static final int MAX_BACKOFF_SHIFT = 10;
+	private static final int MAX_CREATED_SERIES = 10000;
+	private static final String TS_EXISTS = "key already exists";
 
-	private static final ObjectMapper objectMapper = objectMapper();
+	public static final String DLQ_FIELD_TOPIC = "topic";
+	public static final String DLQ_FIELD_PARTITION = "partition";
+	public static final String DLQ_FIELD_OFFSET = "offset";
+	public static final String DLQ_FIELD_KEY = "key";
+	public static final String DLQ_FIELD_VALUE = "value";
+	public static final String DLQ_FIELD_ERROR = "error";
 
 	private RedisSinkConfig config;
 	private AbstractRedisClient client;
 	private StatefulRedisModulesConnection<String, String> connection;
-	private Converter jsonConverter;
-	private RedisItemWriter<byte[], byte[], SinkRecord> writer;
+	/*
+	 * Converters are not thread-safe and writer lanes convert records
+	 * concurrently: each thread gets its own.
+	 */
+	private ThreadLocal<JsonValueEncoder> jsonEncoder;
+	private StripedSinkWriter writer;
+	private SinkOffsetStore offsetStore;
+	private SinkRecordCompactor compactor;
+	private ThreadLocal<SinkKeyBuilder> keyBuilder;
+	private ThreadLocal<StructHashEncoder> structEncoder;
+	private ThreadLocal<TimeSeriesMapper> timeSeries;
+	/**
+	 * Offsets of the records written since the last flush, stored in Redis by
+	 * {@link RedisSinkTask#flush(Map)}.
+	 */
+	private final Map<TopicPartition, Long> pendingOffsets = new HashMap<>();
+	private ErrantRecordReporter reporter;
+	private int retries;
+	/**
+	 * Set when pipelined writes were discarded after a transient error in async
+	 * mode: the next {@link RedisSinkTask#flush(Map)} fails so that Connect
+	 * rewinds to the last committed offsets.
+	 */
+	private boolean rewind;
+	/**
+	 * Records received since the last write, written once a batch threshold is
+	 * reached or on flush.
+	 */
+	private final List<SinkRecord> buffer = new ArrayList<>();
+	private long bufferBytes;
+	private long bufferStart;
 
 	@Override
 	public String version() {
 		return ManifestVersionProvider.getVersion();
 	}
 
-	private static ObjectMapper objectMapper() {
-		ObjectMapper mapper = new ObjectMapper();
-		mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-		mapper.configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true);
-		mapper.configure(DeserializationFeature.USE_LONG_FOR_INTS, true);
-		return mapper;
-	}
-
 	@Override
 	public void start(final Map<String, String> props) {
 		config = new RedisSinkConfig(props);
-		jsonConverter = new JsonConverter();
-		jsonConverter.configure(Collections.singletonMap("schemas.enable", "false"), false);
-		this.client = config.client();
+		if (props.containsKey(RedisSinkConfigDef.POOL_MAX_CONFIG)) {
+			log.warn("{} is deprecated and ignored by the sink, whose connections are set by {}",
+					RedisSinkConfigDef.POOL_MAX_CONFIG, RedisSinkConfigDef.LANES_CONFIG);
+		}
+		jsonEncoder = ThreadLocal.withInitial(JsonValueEncoder::new);
+		keyBuilder = ThreadLocal.withInitial(
+				() -> new SinkKeyBuilder(config.getKeyspace(), config.getSeparator(), config.getCharset()));
+		structEncoder = ThreadLocal.withInitial(() -> new StructHashEncoder(config.getCharset(), config.isFlatten()));
+		timeSeries = ThreadLocal.withInitial(() -> new TimeSeriesMapper(
+				config.getTimeSeriesKey().isEmpty() ? config.getKeyspace() : config.getTimeSeriesKey(),
+				config.getCharset(), config.getTimestampSource(), config.getTimestampField(), config.getValueField()));
+		this.client = RedisClientRegistry.acquire(config);
 		this.connection = RedisModulesUtils.connection(client);
-		writer = new WriterBuilder(client).multiExec(config.isMultiexec()).waitReplicas(config.getWaitReplicas())
-				.waitTimeout(config.getWaitTimeout()).operation(ByteArrayCodec.INSTANCE, operation());
-		writer.open(new ExecutionContext());
-		writer.setPoolOptions(config.poolOptions());
+		List<RedisSinkWriter> lanes = new ArrayList<>(config.getLanes());
+		for (int index = 0; index < config.getLanes(); index++) {
+			lanes.add(lane());
+		}
+		writer = new StripedSinkWriter(lanes, keyFunction());
+		writer.open();
+		if (config.isCompact()) {
+			compactor = new SinkRecordCompactor(this::key,
+					config.getCommand() == RedisSinkConfig.RedisCommand.HSET ? this::map : null);
+		}
+		reporter = errantRecordReporter();
+		offsetStore = new SinkOffsetStore(connection);
 		final java.util.Set<TopicPartition> assignment = this.context.assignment();
 		if (!assignment.isEmpty()) {
 			Map<TopicPartition, Long> partitionOffsets = new HashMap<>(assignment.size());
-			for (SinkOffsetState state : offsetStates(assignment)) {
-				partitionOffsets.put(state.topicPartition(), state.offset());
-				log.info("Requesting offset {} for {}", state.offset(), state.topicPartition());
+			for (Map.Entry<TopicPartition, Long> offset : offsetStore.read(assignment).entrySet()) {
+				partitionOffsets.put(offset.getKey(), offset.getValue());
+				log.info("Requesting offset {} for {}", offset.getValue(), offset.getKey());
 			}
 			for (TopicPartition topicPartition : assignment) {
 				partitionOffsets.putIfAbsent(topicPartition, 0L);
@@ -121,54 +159,396 @@ public class RedisSinkTask extends SinkTask {
 		}
 	}
 
-	private Collection<SinkOffsetState> offsetStates(java.util.Set<TopicPartition> assignment) {
-		Collection<SinkOffsetState> offsetStates = new ArrayList<>();
-		String[] partitionKeys = assignment.stream().map(a -> offsetKey(a.topic(), a.partition()))
-				.toArray(String[]::new);
-		List<KeyValue<String, String>> values = connection.sync().mget(partitionKeys);
-		for (KeyValue<String, String> value : values) {
-			if (value.hasValue()) {
-				try {
-					offsetStates.add(objectMapper.readValue(value.getValue(), SinkOffsetState.class));
-				} catch (IOException e) {
-					throw new DataException(e);
-				}
-			}
+	private RedisSinkWriter lane() {
+		RedisSinkWriter lane = new RedisSinkWriter(client, operation(), keyFunction());
+		lane.setMultiExec(config.isMultiexec());
+		lane.setWaitReplicas(config.getWaitReplicas());
+		lane.setWaitTimeout(config.getWaitTimeout());
+		lane.setMaxInFlight(config.getMaxInFlight());
+		if (isVariadic()) {
+			lane.setCoalescer(new VariadicCoalescer(), config.getCoalesce());
+		} else if (config.isMset()) {
+			lane.setCoalescer(new MultiSetCoalescer(), config.getCoalesce());
+		}
+		if (config.isAdaptive()) {
+			lane.setAdaptiveLimit(new AdaptiveLimit(AdaptiveLimit.DEFAULT_MIN_LIMIT, config.getMaxInFlight(),
+					config.getAdaptiveLatency()));
 		}
-		return offsetStates;
+		return lane;
 	}
 
-	private String offsetKey(String topic, Integer partition) {
-		return String.format(OFFSET_KEY_FORMAT, topic, partition);
+	private ErrantRecordReporter errantRecordReporter() {
+		try {
+			return context.errantRecordReporter();
+		} catch (NoSuchMethodError | NoClassDefFoundError e) {
+			// Connect runtime older than 2.6
+			return null;
+		}
 	}
 
-	private Operation<byte[], byte[], SinkRecord, ?> operation() {
+	private RedisSinkWriter.Operation operation() {
 		switch (config.getCommand()) {
 		case HSET:
-			return new Hset<>(this::key, this::map);
+			return this::hset;
 		case JSONSET:
-			return new JsonSet<>(this::key, this::jsonValue);
+			return this::jsonSet;
 		case SET:
-			return new Set<>(this::key, this::value);
+			return this::set;
 		case XADD:
-			return new Xadd<>(this::collectionKey, this::map, m -> new XAddArgs());
+			return this::xadd;
 		case LPUSH:
-			return new Lpush<>(this::collectionKey, this::member);
+			return this::lpush;
 		case RPUSH:
-			return new Rpush<>(this::collectionKey, this::member);
+			return this::rpush;
 		case SADD:
-			return new Sadd<>(this::collectionKey, this::member);
+			return this::sadd;
 		case TSADD:
-			return new TsAdd<>(this::collectionKey, new SampleConverter<>(this::longMember, this::doubleValue));
+			return this::tsAdd;
 		case ZADD:
-			return new Zadd<>(this::collectionKey, new ScoredValueConverter<>(this::member, this::doubleValue));
+			return this::zadd;
 		case DEL:
-			return new Del<>(this::key);
+			return (commands, sinkRecord) -> commands.del(key(sinkRecord));
 		default:
 			throw new ConfigException(RedisSinkConfigDef.COMMAND_CONFIG, config.getCommand());
 		}
 	}
 
+	/**
+	 * @return the function returning the Redis key each record is written to
+	 */
+	private Function<SinkRecord, byte[]> keyFunction() {
+		if (config.getCommand() == RedisSinkConfig.RedisCommand.TSADD) {
+			return r -> timeSeries.get().key(r);
+		}
+		return isCollection() ? this::collectionKey : this::key;
+	}
+
+	private boolean isCollection() {
+		switch (config.getCommand()) {
+		case XADD:
+		case LPUSH:
+		case RPUSH:
+		case SADD:
+		case TSADD:
+		case ZADD:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private boolean isVariadic() {
+		switch (config.getCommand()) {
+		case LPUSH:
+		case RPUSH:
+		case SADD:
+		case ZADD:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the members of records pushed or added to the same collection with a
+	 * single LPUSH, RPUSH, SADD, SREM, ZADD or ZREM command. Removals from lists
+	 * (LREM) take a single element and are not coalesced.
+	 */
+	private class VariadicCoalescer implements RedisSinkWriter.Coalescer {
+
+		private final Object add = new Object();
+		private final Object remove = new Object();
+
+		@Override
+		public Object kind(SinkRecord sinkRecord) {
+			member(sinkRecord);
+			switch (config.getCommand()) {
+			case LPUSH:
+			case RPUSH:
+				return sinkRecord.value() == null ? null : add;
+			case ZADD:
+				return doubleValue(sinkRecord) == null ? remove : add;
+			default:
+				return sinkRecord.value() == null ? remove : add;
+			}
+		}
+
+		@Override
+		public RedisFuture<?> execute(RedisClusterAsyncCommands<byte[], byte[]> commands, List<SinkRecord> records) {
+			byte[] key = collectionKey(records.get(0));
+			byte[][] members = new byte[records.size()][];
+			for (int index = 0; index < members.length; index++) {
+				members[index] = member(records.get(index));
+			}
+			boolean removal = records.get(0).value() == null;
+			switch (config.getCommand()) {
+			case LPUSH:
+				return commands.lpush(key, members);
+			case RPUSH:
+				return commands.rpush(key, members);
+			case SADD:
+				return removal ? commands.srem(key, members) : commands.sadd(key, members);
+			case ZADD:
+				if (removal) {
+					return commands.zrem(key, members);
+				}
+				Object[] scoresAndMembers = new Object[members.length * 2];
+				for (int index = 0; index < members.length; index++) {
+					scoresAndMembers[index * 2] = doubleValue(records.get(index));
+					scoresAndMembers[index * 2 + 1] = members[index];
+				}
+				return commands.zadd(key, scoresAndMembers);
+			default:
+				throw new IllegalStateException("Unsupported variadic command: " + config.getCommand());
+			}
+		}
+
+	}
+
+	/**
+	 * Writes the values of records set in the same batch, or in the same hash slot
+	 * with Redis Cluster, with a single MSET, JSON.MSET or TS.MADD command.
+	 * Deletions (null values) are written on their own.
+	 */
+	private class MultiSetCoalescer implements RedisSinkWriter.Coalescer {
+
+		private final Object set = new Object();
+		private final Object batch = new Object();
+		private final boolean cluster = client instanceof RedisClusterClient;
+		/**
+		 * Series created by this task. Unlike TS.ADD, TS.MADD does not create
+		 * missing series. Series that could not be created are removed again by the
+		 * reply handler.
+		 */
+		private final Set<ByteBuffer> series = ConcurrentHashMap.newKeySet();
+
+		@Override
+		public Object kind(SinkRecord sinkRecord) {
+			return sinkRecord.value() == null ? null : set;
+		}
+
+		@Override
+		public Object scope(byte[] key) {
+			return cluster ? SlotHash.getSlot(key) : batch;
+		}
+
+		@Override
+		public CompletionStage<?> execute(RedisClusterAsyncCommands<byte[], byte[]> commands,
+				List<SinkRecord> records) {
+			if (config.getCommand() == RedisSinkConfig.RedisCommand.TSADD) {
+				return tsMadd(commands, records);
+			}
+			if (config.getCommand() == RedisSinkConfig.RedisCommand.JSONSET) {
+				CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+				for (SinkRecord sinkRecord : records) {
+					args.addKey(key(sinkRecord)).add(JSON_ROOT_PATH).addValue(jsonValue(sinkRecord));
+				}
+				return commands.dispatch(ModuleCommandType.JSON_MSET, new StatusOutput<>(ByteArrayCodec.INSTANCE),
+						args);
+			}
+			Map<byte[], byte[]> map = new LinkedHashMap<>(records.size() * 4 / 3 + 1);
+			for (SinkRecord sinkRecord : records) {
+				map.put(key(sinkRecord), value(sinkRecord));
+			}
+			return commands.mset(map);
+		}
+
+		/**
+		 * Samples are converted before any command is issued, except for TS.CREATE
+		 * of new series which is harmless if the samples are then written one by
+		 * one. Records whose series could not be created or whose sample is
+		 * rejected fail on their own.
+		 */
+		private CompletionStage<?> tsMadd(RedisClusterAsyncCommands<byte[], byte[]> commands,
+				List<SinkRecord> records) {
+			List<SinkRecord> samples = new ArrayList<>(records.size());
+			List<byte[]> keys = new ArrayList<>(records.size());
+			List<Long> timestamps = new ArrayList<>(records.size());
+			List<Double> values = new ArrayList<>(records.size());
+			TimeSeriesMapper mapper = timeSeries.get();
+			for (SinkRecord sinkRecord : records) {
+				Double value = mapper.value(sinkRecord);
+				if (value != null) {
+					samples.add(sinkRecord);
+					keys.add(mapper.key(sinkRecord));
+					timestamps.add(mapper.timestamp(sinkRecord));
+					values.add(value);
+				}
+			}
+			if (keys.isEmpty()) {
+				return null;
+			}
+			Map<ByteBuffer, CompletableFuture<Throwable>> creates = new HashMap<>();
+			CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE);
+			for (int index = 0; index < keys.size(); index++) {
+				byte[] key = keys.get(index);
+				CompletableFuture<Throwable> create = create(commands, key);
+				if (create != null) {
+					creates.put(ByteBuffer.wrap(key), create);
+				}
+				args.addKey(key);
+				Long timestamp = timestamps.get(index);
+				if (timestamp == null) {
+					args.add(TIMESTAMP_AUTO);
+				} else {
+					args.add(timestamp);
+				}
+				args.add(values.get(index));
+			}
+			CompletableFuture<List<Object>> madd = commands
+					.dispatch(ModuleCommandType.TS_MADD, new ElementListOutput(), args).toCompletableFuture();
+			List<CompletableFuture<?>> futures = new ArrayList<>(creates.values());
+			futures.add(madd);
+			return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+					.handle((result, error) -> result(samples, keys, creates, madd.join()));
+		}
+
+		/**
+		 * @param replies TS.MADD reply, with one element per sample
+		 * @return the reply, or the records whose series could not be created or
+		 *         whose sample was rejected
+		 */
+		private Object result(List<SinkRecord> samples, List<byte[]> keys,
+				Map<ByteBuffer, CompletableFuture<Throwable>> creates, List<Object> replies) {
+			List<RedisSinkWriter.Failure> failures = new ArrayList<>();
+			for (int index = 0; index < samples.size(); index++) {
+				CompletableFuture<Throwable> create = creates.get(ByteBuffer.wrap(keys.get(index)));
+				Throwable error = create == null ? null : create.join();
+				if (error == null && index < replies.size() && replies.get(index) instanceof Throwable) {
+					error = (Throwable) replies.get(index);
+				}
+				if (error != null) {
+					failures.add(new RedisSinkWriter.Failure(samples.get(index), error));
+				}
+			}
+			return failures.isEmpty() ? replies : new RedisSinkWriter.PartialFailure(failures);
+		}
+
+		/**
+		 * Creates the given series unless this task did already. TS.CREATE fails if
+		 * the series exists, which is expected. On any other error the series is
+		 * created again by the next samples.
+		 *
+		 * @return the error creating the series, or null if it was not created
+		 */
+		private CompletableFuture<Throwable> create(RedisClusterAsyncCommands<byte[], byte[]> commands, byte[] key) {
+			if (series.size() >= MAX_CREATED_SERIES) {
+				series.clear();
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(key);
+			if (!series.add(buffer)) {
+				return null;
+			}
+			return commands.dispatch(ModuleCommandType.TS_CREATE, new StatusOutput<>(ByteArrayCodec.INSTANCE),
+					new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(key)).handle((result, error) -> {
+						if (error == null || isSeriesExists(error)) {
+							return null;
+						}
+						series.remove(buffer);
+						return error;
+					}).toCompletableFuture();
+		}
+
+		private boolean isSeriesExists(Throwable error) {
+			return error.getMessage() != null && error.getMessage().contains(TS_EXISTS);
+		}
+
+	}
+
+	private RedisFuture<?> hset(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = key(sinkRecord);
+		Map<byte[], byte[]> map = map(sinkRecord);
+		if (map == null) {
+			return commands.del(key);
+		}
+		if (map.isEmpty()) {
+			return null;
+		}
+		return commands.hset(key, map);
+	}
+
+	private RedisFuture<?> jsonSet(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = key(sinkRecord);
+		byte[] json = jsonValue(sinkRecord);
+		if (json == null) {
+			return commands.del(key);
+		}
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(key).add(JSON_ROOT_PATH)
+				.addValue(json);
+		return commands.dispatch(ModuleCommandType.JSON_SET, new StatusOutput<>(ByteArrayCodec.INSTANCE), args);
+	}
+
+	private RedisFuture<?> set(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = key(sinkRecord);
+		byte[] value = value(sinkRecord);
+		if (value == null) {
+			return commands.del(key);
+		}
+		return commands.set(key, value);
+	}
+
+	private RedisFuture<?> xadd(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		Map<byte[], byte[]> body = map(sinkRecord);
+		if (body == null || body.isEmpty()) {
+			return null;
+		}
+		return commands.xadd(collectionKey(sinkRecord), body);
+	}
+
+	private RedisFuture<?> lpush(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = collectionKey(sinkRecord);
+		byte[] member = member(sinkRecord);
+		if (sinkRecord.value() == null) {
+			return commands.lrem(key, 0, member);
+		}
+		return commands.lpush(key, member);
+	}
+
+	private RedisFuture<?> rpush(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = collectionKey(sinkRecord);
+		byte[] member = member(sinkRecord);
+		if (sinkRecord.value() == null) {
+			return commands.lrem(key, 0, member);
+		}
+		return commands.rpush(key, member);
+	}
+
+	private RedisFuture<?> sadd(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = collectionKey(sinkRecord);
+		byte[] member = member(sinkRecord);
+		if (sinkRecord.value() == null) {
+			return commands.srem(key, member);
+		}
+		return commands.sadd(key, member);
+	}
+
+	private RedisFuture<?> zadd(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		byte[] key = collectionKey(sinkRecord);
+		byte[] member = member(sinkRecord);
+		Double score = doubleValue(sinkRecord);
+		if (score == null) {
+			return commands.zrem(key, member);
+		}
+		return commands.zadd(key, score, member);
+	}
+
+	private RedisFuture<?> tsAdd(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord) {
+		TimeSeriesMapper mapper = timeSeries.get();
+		Double value = mapper.value(sinkRecord);
+		if (value == null) {
+			return null;
+		}
+		CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(mapper.key(sinkRecord));
+		Long timestamp = mapper.timestamp(sinkRecord);
+		if (timestamp == null) {
+			args.add(TIMESTAMP_AUTO);
+		} else {
+			args.add(timestamp);
+		}
+		args.add(value);
+		return commands.dispatch(ModuleCommandType.TS_ADD, new IntegerOutput<>(ByteArrayCodec.INSTANCE), args);
+	}
+
 	private byte[] value(SinkRecord sinkRecord) {
 		return bytes("value", sinkRecord.value());
 	}
@@ -184,19 +564,7 @@ public class RedisSinkTask extends SinkTask {
 		if (value instanceof String) {
 			return ((String) value).getBytes(config.getCharset());
 		}
-		return jsonConverter.fromConnectData(sinkRecord.topic(), sinkRecord.valueSchema(), value);
-	}
-
-	private Long longMember(SinkRecord sinkRecord) {
-		Object key = sinkRecord.key();
-		if (key == null) {
-			return null;
-		}
-		if (key instanceof Number) {
-			return ((Number) key).longValue();
-		}
-		throw new DataException(
-				"The key for the record must be a number. Consider using a single message transformation to transform the data before it is written to Redis.");
+		return jsonEncoder.get().encode(sinkRecord.valueSchema(), value);
 	}
 
 	private Double doubleValue(SinkRecord sinkRecord) {
@@ -212,22 +580,16 @@ public class RedisSinkTask extends SinkTask {
 	}
 
 	private byte[] key(SinkRecord sinkRecord) {
-		if (config.getKeyspace().isEmpty()) {
+		if (keyBuilder.get().isPassthrough()) {
 			return bytes("key", sinkRecord.key());
 		}
-		String keyspace = keyspace(sinkRecord);
-		String key = keyspace + config.getSeparator() + String.valueOf(sinkRecord.key());
-		return key.getBytes(config.getCharset());
+		return keyBuilder.get().key(sinkRecord.topic(), sinkRecord.key());
 	}
 
 	private byte[] member(SinkRecord sinkRecord) {
 		return bytes("key", sinkRecord.key());
 	}
 
-	private String keyspace(SinkRecord sinkRecord) {
-		return config.getKeyspace().replace(RedisSinkConfigDef.TOKEN_TOPIC, sinkRecord.topic());
-	}
-
 	private byte[] bytes(String source, Object input) {
 		if (input == null) {
 			return null;
@@ -244,7 +606,7 @@ public class RedisSinkTask extends SinkTask {
 	}
 
 	private byte[] collectionKey(SinkRecord sinkRecord) {
-		return keyspace(sinkRecord).getBytes(config.getCharset());
+		return keyBuilder.get().keyspace(sinkRecord.topic());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -253,15 +615,11 @@ public class RedisSinkTask extends SinkTask {
 		if (value == null) {
 			return null;
 		}
+		if (value instanceof SinkRecordCompactor.MergedHash) {
+			return ((SinkRecordCompactor.MergedHash) value).getFields();
+		}
 		if (value instanceof Struct) {
-			Map<byte[], byte[]> body = new LinkedHashMap<>();
-			Struct struct = (Struct) value;
-			for (Field field : struct.schema().fields()) {
-				Object fieldValue = struct.get(field);
-				body.put(field.name().getBytes(config.getCharset()),
-						fieldValue == null ? null : fieldValue.toString().getBytes(config.getCharset()));
-			}
-			return body;
+			return structEncoder.get().encode((Struct) value);
 		}
 		if (value instanceof Map) {
 			Map<String, Object> map = (Map<String, Object>) value;
@@ -286,8 +644,7 @@ public class RedisSinkTask extends SinkTask {
 			connection = null;
 		}
 		if (client != null) {
-			client.shutdown();
-			client.getResources().shutdown();
+			RedisClientRegistry.release(client);
 			client = null;
 		}
 	}
@@ -295,39 +652,218 @@ public class RedisSinkTask extends SinkTask {
 	@Override
 	public void put(final Collection<SinkRecord> records) {
 		log.debug("Processing {} records", records.size());
-		try {
-			writer.write(new ArrayList<>(records));
-			log.info("Wrote {} records", records.size());
-		} catch (Exception e) {
-			log.warn("Could not write {} records", records.size(), e);
-		}
-		Map<TopicPartition, Long> data = new ConcurrentHashMap<>(100);
+		int mark = buffer.size();
 		for (SinkRecord sinkRecord : records) {
 			Assert.isTrue(!StringUtil.isNullOrEmpty(sinkRecord.topic()), "topic cannot be null or empty.");
 			Assert.notNull(sinkRecord.kafkaPartition(), "partition cannot be null.");
 			Assert.isTrue(sinkRecord.kafkaOffset() >= 0, "offset must be greater than or equal 0.");
+			buffer(sinkRecord);
+		}
+		if (!isBatchReady()) {
+			return;
+		}
+		try {
+			write();
+		} catch (RedisException e) {
+			if (config.isAsync()) {
+				pendingOffsets.clear();
+				clearBuffer();
+				rewind = true;
+			} else {
+				// Connect delivers the current records again, keep only the earlier ones
+				buffer.subList(mark, buffer.size()).clear();
+				bufferBytes = buffer.stream().mapToLong(RedisSinkTask::size).sum();
+			}
+			throw retry(e, records.size());
+		}
+	}
+
+	private void buffer(SinkRecord sinkRecord) {
+		if (buffer.isEmpty()) {
+			bufferStart = System.currentTimeMillis();
+		}
+		buffer.add(sinkRecord);
+		bufferBytes += size(sinkRecord);
+	}
+
+	private void clearBuffer() {
+		buffer.clear();
+		bufferBytes = 0;
+	}
+
+	private boolean isBatchReady() {
+		if (buffer.isEmpty()) {
+			return false;
+		}
+		return config.getLinger().isZero() || buffer.size() >= config.getBatchMaxRecords()
+				|| bufferBytes >= config.getBatchMaxBytes()
+				|| System.currentTimeMillis() - bufferStart >= config.getLinger().toMillis();
+	}
+
+	/**
+	 * Writes the buffered records, waiting for the replies unless writes are
+	 * asynchronous.
+	 */
+	private void write() {
+		Map<TopicPartition, Long> data = new HashMap<>();
+		for (SinkRecord sinkRecord : buffer) {
 			TopicPartition partition = new TopicPartition(sinkRecord.topic(), sinkRecord.kafkaPartition());
 			long current = data.getOrDefault(partition, Long.MIN_VALUE);
 			if (sinkRecord.kafkaOffset() > current) {
 				data.put(partition, sinkRecord.kafkaOffset());
 			}
 		}
-		List<SinkOffsetState> offsetData = data.entrySet().stream()
-				.map(e -> SinkOffsetState.of(e.getKey(), e.getValue())).collect(Collectors.toList());
-		if (!offsetData.isEmpty()) {
-			Map<String, String> offsets = new LinkedHashMap<>(offsetData.size());
-			for (SinkOffsetState e : offsetData) {
-				String key = offsetKey(e.topic(), e.partition());
-				String value;
-				try {
-					value = objectMapper.writeValueAsString(e);
-				} catch (JsonProcessingException e1) {
-					throw new DataException(e1);
+		Collection<SinkRecord> writes = compactor == null ? buffer : compactor.compact(buffer);
+		if (config.isOffsetAtomic()) {
+			writer.write(writes, data.isEmpty() ? null : offsetStore.operation(data));
+		} else {
+			writer.write(writes);
+		}
+		if (!config.isAsync()) {
+			report(writer.flush());
+		}
+		retries = 0;
+		if (!config.isOffsetAtomic()) {
+			pendingOffsets.putAll(data);
+		}
+		log.info("Wrote {} records", buffer.size());
+		clearBuffer();
+	}
+
+	/**
+	 * @return an estimate of the number of bytes the key and value of the given
+	 *         record take in Redis
+	 */
+	private static long size(SinkRecord sinkRecord) {
+		return size(sinkRecord.key()) + size(sinkRecord.value());
+	}
+
+	private static long size(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		}
+		if (value instanceof CharSequence) {
+			return ((CharSequence) value).length();
+		}
+		if (value instanceof Struct) {
+			Struct struct = (Struct) value;
+			long size = 0;
+			for (Field field : struct.schema().fields()) {
+				size += field.name().length() + size(struct.get(field));
+			}
+			return size;
+		}
+		if (value instanceof Map) {
+			long size = 0;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				size += size(entry.getKey()) + size(entry.getValue());
+			}
+			return size;
+		}
+		if (value instanceof Collection) {
+			long size = 0;
+			for (Object element : (Collection<?>) value) {
+				size += size(element);
+			}
+			return size;
+		}
+		return Long.BYTES;
+	}
+
+	/**
+	 * Asks Connect to deliver the current batch again after a backoff that
+	 * doubles with each consecutive attempt.
+	 */
+	private RetriableException retry(RedisException e, int count) {
+		if (retries >= config.getMaxRetries()) {
+			throw new ConnectException(String.format("Could not write %s records after %s retries", count, retries), e);
+		}
+		long backoff = config.getRetryBackoff().toMillis() << Math.min(retries, MAX_BACKOFF_SHIFT);
+		retries++;
+		log.warn("Could not write {} records, retrying in {} ms ({}/{})", count, backoff, retries,
+				config.getMaxRetries(), e);
+		context.timeout(backoff);
+		return new RetriableException(e);
+	}
+
+	/**
+	 * Reports the given failures. Dead letters are pipelined and awaited
+	 * together.
+	 */
+	private void report(List<RedisSinkWriter.Failure> failures) {
+		List<RedisFuture<String>> deadLetters = new ArrayList<>();
+		for (RedisSinkWriter.Failure failure : failures) {
+			Object value = failure.getRecord().value();
+			if (value instanceof SinkRecordCompactor.MergedHash) {
+				// Report the records that were merged rather than the synthetic one
+				for (SinkRecord sinkRecord : ((SinkRecordCompactor.MergedHash) value).getRecords()) {
+					report(sinkRecord, failure.getError(), deadLetters);
 				}
-				offsets.put(key, value);
-				log.trace("put() - Setting offset: {}", e);
+			} else {
+				report(failure.getRecord(), failure.getError(), deadLetters);
+			}
+		}
+		if (!deadLetters.isEmpty()) {
+			LettuceFutures.awaitAll(connection.getTimeout(), deadLetters.toArray(new RedisFuture[0]));
+		}
+	}
+
+	private void report(SinkRecord sinkRecord, Throwable error, List<RedisFuture<String>> deadLetters) {
+		if (!config.getDeadLetterStream().isEmpty()) {
+			deadLetters.add(connection.async().xadd(config.getDeadLetterStream(), deadLetter(sinkRecord, error)));
+		} else if (reporter != null) {
+			reporter.report(sinkRecord, error);
+		} else {
+			log.error("Skipping record {}-{}@{} that could not be written", sinkRecord.topic(),
+					sinkRecord.kafkaPartition(), sinkRecord.kafkaOffset(), error);
+		}
+	}
+
+	private Map<String, String> deadLetter(SinkRecord sinkRecord, Throwable error) {
+		Map<String, String> body = new LinkedHashMap<>();
+		body.put(DLQ_FIELD_TOPIC, sinkRecord.topic());
+		body.put(DLQ_FIELD_PARTITION, String.valueOf(sinkRecord.kafkaPartition()));
+		body.put(DLQ_FIELD_OFFSET, String.valueOf(sinkRecord.kafkaOffset()));
+		if (sinkRecord.key() != null) {
+			body.put(DLQ_FIELD_KEY, deadLetterString(sinkRecord.key()));
+		}
+		if (sinkRecord.value() != null) {
+			body.put(DLQ_FIELD_VALUE, deadLetterString(sinkRecord.value()));
+		}
+		body.put(DLQ_FIELD_ERROR, String.valueOf(error));
+		return body;
+	}
+
+	private String deadLetterString(Object value) {
+		if (value instanceof byte[]) {
+			return new String((byte[]) value, config.getCharset());
+		}
+		return String.valueOf(value);
+	}
+
+	@Override
+	public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+		if (rewind) {
+			rewind = false;
+			throw new ConnectException("Pipelined writes were discarded after a transient error");
+		}
+		try {
+			if (!buffer.isEmpty()) {
+				write();
 			}
-			connection.sync().mset(offsets);
+			report(writer.flush());
+		} catch (RedisException e) {
+			pendingOffsets.clear();
+			clearBuffer();
+			throw new ConnectException("Could not write pending records", e);
+		}
+		if (!pendingOffsets.isEmpty()) {
+			log.trace("flush() - Setting offsets: {}", pendingOffsets);
+			offsetStore.write(pendingOffsets);
+			pendingOffsets.clear();
 		}
 	}
 
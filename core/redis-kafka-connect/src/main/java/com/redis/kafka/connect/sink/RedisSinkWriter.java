@@ -0,0 +1,631 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisTransactionalAsyncCommands;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.codec.ByteArrayCodec;
+
+/**
+ * Writes sink records to Redis as pipelined asynchronous commands. At most
+ * {@code maxInFlight} commands are awaiting a reply at any time: once the
+ * window is full {@link #write(Collection)} blocks until the oldest command
+ * completes. {@link #flush()} waits for every pending command.
+ * <p>
+ * Against Redis Cluster each batch is split by the primary node owning the
+ * hash slot of each record key, and every node's sub-batch is written and
+ * flushed on that node's own connection so that all shards work in parallel.
+ * <p>
+ * Replies are checked per record: records whose command fails with a
+ * non-transient error (e.g. WRONGTYPE) are returned by {@link #flush()} while
+ * the rest of the batch proceeds. Transient errors (timeouts, lost
+ * connections, redirections, ...) abort the batch with a
+ * {@link RedisException} so that it can be retried as a whole.
+ * <p>
+ * With a {@link Coalescer}, records of a batch issuing the same kind of command
+ * in the same scope (by default their key) are written with a single variadic
+ * command, in record order and with at most {@code maxCoalesce} records per
+ * command. A record issuing a different command in that scope ends the group so
+ * that commands on a key are applied in record order.
+ */
+public class RedisSinkWriter implements AutoCloseable {
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+
+	private static final int CHUNKS_PER_WINDOW = 4;
+
+	private static final String[] TRANSIENT_ERRORS = { "MOVED", "ASK", "TRYAGAIN", "CLUSTERDOWN", "LOADING", "BUSY",
+			"MASTERDOWN", "READONLY", "NOREPLICAS", "OOM" };
+
+	/**
+	 * Issues the command(s) for a single sink record.
+	 */
+	public interface Operation {
+
+		/**
+		 * @return the future of the last command issued for the record, or null if
+		 *         the record results in no command
+		 */
+		RedisFuture<?> execute(RedisClusterAsyncCommands<byte[], byte[]> commands, SinkRecord sinkRecord);
+
+	}
+
+	/**
+	 * Issues commands at the end of a batch, after the commands for its records.
+	 */
+	public interface BatchOperation {
+
+		Collection<RedisFuture<?>> execute(RedisClusterAsyncCommands<byte[], byte[]> commands);
+
+	}
+
+	/**
+	 * Issues a single variadic command for several records.
+	 */
+	public interface Coalescer {
+
+		/**
+		 * @return the kind of command issued for the given record, or null if the
+		 *         record must be written on its own. Records of the same kind
+		 *         written in the same scope may share a command.
+		 */
+		Object kind(SinkRecord sinkRecord);
+
+		/**
+		 * @return the scope of records that may share a command with records
+		 *         written to the given key
+		 */
+		default Object scope(byte[] key) {
+			return ByteBuffer.wrap(key);
+		}
+
+		/**
+		 * @param records at least two records of the same kind written in the same
+		 *                scope, in record order
+		 * @return the future of the command issued for the records, which
+		 *         completes with a {@link PartialFailure} if only some of the
+		 *         records could not be written
+		 * @throws RuntimeException if a record cannot be converted, before any
+		 *                          command is issued. The records are then written
+		 *                          one by one so that only the faulty ones fail.
+		 */
+		CompletionStage<?> execute(RedisClusterAsyncCommands<byte[], byte[]> commands, List<SinkRecord> records);
+
+	}
+
+	/**
+	 * A record that could not be written because of an error specific to it.
+	 */
+	public static class Failure {
+
+		private final SinkRecord sinkRecord;
+		private final Throwable error;
+
+		public Failure(SinkRecord sinkRecord, Throwable error) {
+			this.sinkRecord = sinkRecord;
+			this.error = error;
+		}
+
+		public SinkRecord getRecord() {
+			return sinkRecord;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+
+	}
+
+	/**
+	 * Result of a coalesced command that wrote some of its records but failed for
+	 * others, e.g. a TS.MADD reply with error elements.
+	 */
+	public static class PartialFailure {
+
+		private final List<Failure> failures;
+
+		public PartialFailure(List<Failure> failures) {
+			this.failures = failures;
+		}
+
+		public List<Failure> getFailures() {
+			return failures;
+		}
+
+	}
+
+	private static class Pending {
+
+		private final Future<?> future;
+		private final List<SinkRecord> records;
+
+		public Pending(Future<?> future, List<SinkRecord> records) {
+			this.future = future;
+			this.records = records;
+		}
+
+	}
+
+	private final AbstractRedisClient client;
+	private final Operation operation;
+	private final Function<SinkRecord, byte[]> keyFunction;
+	private Coalescer coalescer;
+	private int maxCoalesce = 1;
+	private final Deque<Pending> inFlight = new ArrayDeque<>();
+	private final List<Failure> failures = new ArrayList<>();
+	private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+	private AdaptiveLimit adaptiveLimit;
+	private CompletionStage<?> lastCommand;
+	private int unflushed;
+	private boolean multiExec;
+	private int waitReplicas;
+	private Duration waitTimeout = Duration.ofSeconds(1);
+	private StatefulConnection<byte[], byte[]> connection;
+	private RedisClusterAsyncCommands<byte[], byte[]> commands;
+	private StatefulRedisClusterConnection<byte[], byte[]> clusterConnection;
+
+	/**
+	 * @param keyFunction returns the Redis key a record is written to, used to
+	 *                    route records to cluster nodes
+	 */
+	public RedisSinkWriter(AbstractRedisClient client, Operation operation, Function<SinkRecord, byte[]> keyFunction) {
+		this.client = client;
+		this.operation = operation;
+		this.keyFunction = keyFunction;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * @param adaptiveLimit controller sizing the in-flight window and pipeline
+	 *                      chunks from observed latency, or null to use the fixed
+	 *                      {@code maxInFlight} window
+	 */
+	public void setAdaptiveLimit(AdaptiveLimit adaptiveLimit) {
+		this.adaptiveLimit = adaptiveLimit;
+	}
+
+	/**
+	 * @param coalescer   issues variadic commands for records written to the same
+	 *                    key, or null to write each record with its own command
+	 * @param maxCoalesce maximum number of records written with a single command
+	 */
+	public void setCoalescer(Coalescer coalescer, int maxCoalesce) {
+		this.coalescer = coalescer;
+		this.maxCoalesce = maxCoalesce;
+	}
+
+	public void setMultiExec(boolean multiExec) {
+		this.multiExec = multiExec;
+	}
+
+	public void setWaitReplicas(int waitReplicas) {
+		this.waitReplicas = waitReplicas;
+	}
+
+	public void setWaitTimeout(Duration waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	public int getInFlight() {
+		return inFlight.size();
+	}
+
+	public void open() {
+		if (client instanceof RedisClusterClient) {
+			this.clusterConnection = ((RedisClusterClient) client).connect(ByteArrayCodec.INSTANCE);
+			this.connection = clusterConnection;
+			this.commands = clusterConnection.async();
+		} else {
+			StatefulRedisConnection<byte[], byte[]> redisConnection = ((RedisClient) client)
+					.connect(ByteArrayCodec.INSTANCE);
+			this.connection = redisConnection;
+			this.commands = redisConnection.async();
+		}
+		connection.setAutoFlushCommands(false);
+	}
+
+	/**
+	 * Pipelines the commands for the given records and sends them to Redis without
+	 * waiting for the replies, unless the in-flight window is full.
+	 */
+	public void write(Collection<SinkRecord> records) {
+		write(records, null);
+	}
+
+	/**
+	 * Same as {@link #write(Collection)}, followed by the commands issued by the
+	 * given batch operation. These are part of the same pipeline and, when
+	 * multi/exec is enabled, of the same transaction as the record commands.
+	 */
+	public void write(Collection<SinkRecord> records, BatchOperation batchOperation) {
+		try {
+			doWrite(records, batchOperation);
+		} catch (RedisException e) {
+			throw abort(e);
+		}
+	}
+
+	private void doWrite(Collection<SinkRecord> records, BatchOperation batchOperation) {
+		if (clusterConnection != null) {
+			writeCluster(records);
+			addAll(batchOperation);
+			flushCommands(connection);
+			return;
+		}
+		if (multiExec) {
+			awaitCapacity(records.size() + 2, connection);
+			add(transactional().multi());
+			for (List<SinkRecord> group : coalesce(records)) {
+				execute(commands, group);
+			}
+			addAll(batchOperation);
+			add(transactional().exec());
+		} else {
+			writeRecords(commands, connection, records);
+			addAll(batchOperation);
+		}
+		waitForReplication(commands);
+		flushCommands(connection);
+	}
+
+	private void writeRecords(RedisClusterAsyncCommands<byte[], byte[]> target,
+			StatefulConnection<byte[], byte[]> targetConnection, Collection<SinkRecord> records) {
+		for (List<SinkRecord> group : coalesce(records)) {
+			awaitCapacity(1, targetConnection);
+			execute(target, group);
+			flushChunk(targetConnection);
+		}
+	}
+
+	/**
+	 * Splits the given records into groups written with a single command. A group
+	 * is issued at the position of its first record and only takes records
+	 * following it in the same scope as long as no other command was issued in
+	 * that scope in between.
+	 */
+	private List<List<SinkRecord>> coalesce(Collection<SinkRecord> records) {
+		List<List<SinkRecord>> groups = new ArrayList<>(records.size());
+		if (coalescer == null || maxCoalesce <= 1) {
+			for (SinkRecord sinkRecord : records) {
+				groups.add(Collections.singletonList(sinkRecord));
+			}
+			return groups;
+		}
+		Map<Object, Object> kinds = new HashMap<>();
+		Map<Object, List<SinkRecord>> open = new HashMap<>();
+		for (SinkRecord sinkRecord : records) {
+			Object scope;
+			Object kind;
+			try {
+				byte[] key = keyFunction.apply(sinkRecord);
+				scope = key == null ? null : coalescer.scope(key);
+				kind = scope == null ? null : coalescer.kind(sinkRecord);
+			} catch (RedisException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				failures.add(new Failure(sinkRecord, e));
+				continue;
+			}
+			List<SinkRecord> group = open.get(scope);
+			if (kind == null || group == null || group.size() >= maxCoalesce || !kind.equals(kinds.get(scope))) {
+				group = new ArrayList<>();
+				groups.add(group);
+				if (kind == null) {
+					open.remove(scope);
+				} else {
+					open.put(scope, group);
+					kinds.put(scope, kind);
+				}
+			}
+			group.add(sinkRecord);
+		}
+		return groups;
+	}
+
+	/**
+	 * Issues the command(s) for the given records. Errors raised while converting
+	 * a record are specific to it and recorded as a failure.
+	 */
+	private void execute(RedisClusterAsyncCommands<byte[], byte[]> target, List<SinkRecord> records) {
+		CompletionStage<?> future;
+		try {
+			future = records.size() == 1 ? operation.execute(target, records.get(0))
+					: coalescer.execute(target, records);
+		} catch (RedisException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			if (records.size() == 1) {
+				failures.add(new Failure(records.get(0), e));
+			} else {
+				for (SinkRecord sinkRecord : records) {
+					execute(target, Collections.singletonList(sinkRecord));
+				}
+			}
+			return;
+		}
+		if (future != null) {
+			inFlight.add(new Pending(future.toCompletableFuture(), records));
+			lastCommand = future;
+			unflushed++;
+		}
+	}
+
+	private void addAll(BatchOperation batchOperation) {
+		if (batchOperation != null) {
+			batchOperation.execute(commands).forEach(this::add);
+		}
+	}
+
+	private void writeCluster(Collection<SinkRecord> records) {
+		for (Map.Entry<RedisClusterNode, List<SinkRecord>> entry : partition(records).entrySet()) {
+			RedisClusterNode node = entry.getKey();
+			StatefulConnection<byte[], byte[]> nodeConnection = connection;
+			RedisClusterAsyncCommands<byte[], byte[]> nodeCommands = commands;
+			if (node != null) {
+				StatefulRedisConnection<byte[], byte[]> redisConnection = clusterConnection
+						.getConnection(node.getNodeId());
+				nodeConnection = redisConnection;
+				nodeCommands = redisConnection.async();
+			}
+			writeRecords(nodeCommands, nodeConnection, entry.getValue());
+			waitForReplication(nodeCommands);
+			flushCommands(nodeConnection);
+		}
+	}
+
+	/**
+	 * Groups records by the primary node serving their key slot, preserving record
+	 * order within each node. Records whose slot is not covered by the known
+	 * topology are grouped under a null node and routed by the cluster connection.
+	 * Records whose key cannot be converted are recorded as failures.
+	 */
+	private Map<RedisClusterNode, List<SinkRecord>> partition(Collection<SinkRecord> records) {
+		Map<RedisClusterNode, List<SinkRecord>> nodes = new LinkedHashMap<>();
+		for (SinkRecord sinkRecord : records) {
+			byte[] key;
+			try {
+				key = keyFunction.apply(sinkRecord);
+			} catch (RedisException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				failures.add(new Failure(sinkRecord, e));
+				continue;
+			}
+			RedisClusterNode node = key == null ? null
+					: clusterConnection.getPartitions().getMasterBySlot(SlotHash.getSlot(key));
+			nodes.computeIfAbsent(node, n -> new ArrayList<>()).add(sinkRecord);
+		}
+		return nodes;
+	}
+
+	private void waitForReplication(RedisClusterAsyncCommands<byte[], byte[]> target) {
+		if (waitReplicas > 0) {
+			add(target.waitForReplication(waitReplicas, waitTimeout.toMillis()).toCompletableFuture()
+					.thenApply(this::checkReplicas));
+		}
+	}
+
+	private Long checkReplicas(Long replicas) {
+		if (replicas == null || replicas < waitReplicas) {
+			throw new RedisException(String.format("Insufficient replication level - expected: %s, actual: %s",
+					waitReplicas, replicas));
+		}
+		return replicas;
+	}
+
+	@SuppressWarnings("unchecked")
+	private RedisTransactionalAsyncCommands<byte[], byte[]> transactional() {
+		return (RedisTransactionalAsyncCommands<byte[], byte[]>) commands;
+	}
+
+	private void add(Future<?> future) {
+		if (future != null) {
+			inFlight.add(new Pending(future, Collections.emptyList()));
+			if (future instanceof CompletionStage) {
+				lastCommand = (CompletionStage<?>) future;
+			}
+			unflushed++;
+		}
+	}
+
+	private int maxInFlight() {
+		return adaptiveLimit == null ? maxInFlight : adaptiveLimit.getLimit();
+	}
+
+	/**
+	 * Sends the pending commands once they make up a chunk of the adaptive
+	 * window, so that Redis starts on a large batch before it is fully queued.
+	 */
+	private void flushChunk(StatefulConnection<byte[], byte[]> target) {
+		if (adaptiveLimit != null && unflushed >= Math.max(1, adaptiveLimit.getLimit() / CHUNKS_PER_WINDOW)) {
+			flushCommands(target);
+		}
+	}
+
+	/**
+	 * Sends the pending commands and, with an adaptive window, samples the round
+	 * trip of the chunk through its last command.
+	 */
+	private void flushCommands(StatefulConnection<byte[], byte[]> target) {
+		target.flushCommands();
+		if (adaptiveLimit != null && lastCommand != null) {
+			long start = System.nanoTime();
+			lastCommand.whenComplete((result, error) -> adaptiveLimit.onSample(start, System.nanoTime() - start,
+					error != null && isTransient(error)));
+		}
+		lastCommand = null;
+		unflushed = 0;
+	}
+
+	/**
+	 * Blocks until there is room in the in-flight window for the given number of
+	 * commands, first sending the commands pending on the given connection.
+	 */
+	private void awaitCapacity(int count, StatefulConnection<byte[], byte[]> target) {
+		if (inFlight.size() + count <= maxInFlight()) {
+			return;
+		}
+		flushCommands(target);
+		while (!inFlight.isEmpty() && inFlight.size() + count > maxInFlight()) {
+			await(Collections.singletonList(inFlight.poll()));
+		}
+	}
+
+	/**
+	 * Waits for all pending commands to complete.
+	 *
+	 * @return the records that failed with a non-transient error since the last
+	 *         flush
+	 * @throws RedisException if a command failed with a transient error or timed
+	 *                        out, in which case all pending commands are
+	 *                        discarded and the records should be written again
+	 */
+	public List<Failure> flush() {
+		List<Pending> pending = new ArrayList<>(inFlight);
+		inFlight.clear();
+		try {
+			flushCommands(connection);
+			await(pending);
+		} catch (RedisException e) {
+			throw abort(e);
+		}
+		List<Failure> result = new ArrayList<>(failures);
+		failures.clear();
+		return result;
+	}
+
+	private RedisException abort(RedisException e) {
+		inFlight.clear();
+		failures.clear();
+		lastCommand = null;
+		unflushed = 0;
+		return e;
+	}
+
+	private void await(Collection<Pending> pending) {
+		long deadline = System.nanoTime() + connection.getTimeout().toNanos();
+		RedisException error = null;
+		for (Pending command : pending) {
+			try {
+				Object result = command.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if (result instanceof PartialFailure) {
+					for (Failure failure : ((PartialFailure) result).getFailures()) {
+						if (!isTransient(failure.getError())) {
+							failures.add(failure);
+						} else if (error == null) {
+							error = failure.getError() instanceof RedisException ? (RedisException) failure.getError()
+									: new RedisException(failure.getError());
+						}
+					}
+				}
+			} catch (TimeoutException e) {
+				throw new RedisCommandTimeoutException(
+						String.format("Commands did not complete within %s", connection.getTimeout()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisCommandInterruptedException(e);
+			} catch (ExecutionException | CancellationException e) {
+				Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+				if (!command.records.isEmpty() && !isTransient(cause)) {
+					command.records.forEach(r -> failures.add(new Failure(r, cause)));
+				} else if (error == null) {
+					error = cause instanceof RedisException ? (RedisException) cause : new RedisException(cause);
+				}
+			}
+		}
+		if (error != null) {
+			if (clusterConnection != null && isRedirection(error)) {
+				// Node pipelines do not follow redirections: pick up the new slot owners
+				((RedisClusterClient) client).refreshPartitions();
+			}
+			throw error;
+		}
+	}
+
+	/**
+	 * @return true if the given error is not caused by the record itself and the
+	 *         write may succeed if retried
+	 */
+	public static boolean isTransient(Throwable error) {
+		if (error instanceof RedisCommandExecutionException) {
+			String message = error.getMessage();
+			if (message == null) {
+				return false;
+			}
+			for (String prefix : TRANSIENT_ERRORS) {
+				if (message.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return error instanceof RedisException || error instanceof CancellationException;
+	}
+
+	private static boolean isRedirection(RedisException e) {
+		String message = e.getMessage();
+		return e instanceof RedisCommandExecutionException && message != null
+				&& (message.startsWith("MOVED") || message.startsWith("ASK"));
+	}
+
+	@Override
+	public void close() {
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
+		inFlight.clear();
+		failures.clear();
+	}
+
+}
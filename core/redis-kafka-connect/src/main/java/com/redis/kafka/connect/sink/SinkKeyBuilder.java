@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds Redis keys from the {@code redis.key} template. The template is
+ * resolved and encoded once per topic; record keys are appended to the cached
+ * prefix in a reusable buffer so that building a key allocates only the
+ * resulting array.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class SinkKeyBuilder {
+
+	private static final int INITIAL_CAPACITY = 128;
+
+	private final String template;
+	private final byte[] separator;
+	private final Charset charset;
+	private final boolean ascii;
+	private final Map<String, Keyspace> keyspaces = new HashMap<>();
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	private int position;
+
+	public SinkKeyBuilder(String template, String separator, Charset charset) {
+		this.template = template;
+		this.separator = separator.getBytes(charset);
+		this.charset = charset;
+		this.ascii = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+				|| charset.equals(StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * @return true if the template is empty, in which case record keys are used
+	 *         as Redis keys as they are
+	 */
+	public boolean isPassthrough() {
+		return template.isEmpty();
+	}
+
+	/**
+	 * @return the encoded key space for the given topic. The returned array is
+	 *         shared and must not be modified.
+	 */
+	public byte[] keyspace(String topic) {
+		return keyspaceFor(topic).keyspace;
+	}
+
+	/**
+	 * @return the encoded key {@code <keyspace><separator><recordKey>}
+	 */
+	public byte[] key(String topic, Object recordKey) {
+		byte[] prefix = keyspaceFor(topic).prefix;
+		position = 0;
+		ensureCapacity(prefix.length);
+		System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+		position = prefix.length;
+		append(recordKey);
+		return Arrays.copyOf(buffer, position);
+	}
+
+	private Keyspace keyspaceFor(String topic) {
+		Keyspace keyspace = keyspaces.get(topic);
+		if (keyspace == null) {
+			keyspace = new Keyspace(template.replace(RedisSinkConfigDef.TOKEN_TOPIC, topic).getBytes(charset),
+					separator);
+			keyspaces.put(topic, keyspace);
+		}
+		return keyspace;
+	}
+
+	private void append(Object value) {
+		if (value instanceof byte[]) {
+			append((byte[]) value);
+		} else if (ascii && (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte)) {
+			append(((Number) value).longValue());
+		} else {
+			append(String.valueOf(value));
+		}
+	}
+
+	private void append(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private void append(long value) {
+		if (value == Long.MIN_VALUE) {
+			append(String.valueOf(value));
+			return;
+		}
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+			digits++;
+		}
+		for (int index = position + digits - 1; index >= position; index--) {
+			buffer[index] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		position += digits;
+	}
+
+	private void append(String string) {
+		if (ascii) {
+			int length = string.length();
+			ensureCapacity(length);
+			int start = position;
+			for (int index = 0; index < length; index++) {
+				char c = string.charAt(index);
+				if (c >= 0x80) {
+					position = start;
+					append(string.getBytes(charset));
+					return;
+				}
+				buffer[position++] = (byte) c;
+			}
+		} else {
+			append(string.getBytes(charset));
+		}
+	}
+
+	private void ensureCapacity(int length) {
+		if (position + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+		}
+	}
+
+	private static class Keyspace {
+
+		private final byte[] keyspace;
+		private final byte[] prefix;
+
+		public Keyspace(byte[] keyspace, byte[] separator) {
+			this.keyspace = keyspace;
+			this.prefix = Arrays.copyOf(keyspace, keyspace.length + separator.length);
+			System.arraycopy(separator, 0, prefix, keyspace.length, separator.length);
+		}
+
+	}
+
+}
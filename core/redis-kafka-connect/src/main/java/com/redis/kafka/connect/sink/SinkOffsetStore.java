@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.errors.DataException;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+/**
+ * Stores the sink offsets in Redis as one hash per topic, mapping partition
+ * numbers to the offset of the last record written for that partition. All
+ * offset keys share the same hash tag so they live in a single cluster slot.
+ */
+public class SinkOffsetStore {
+
+	public static final String KEY_PREFIX = "{com.redis.kafka.connect.sink.offset}:";
+
+	private static final String LEGACY_KEY_FORMAT = "com.redis.kafka.connect.sink.offset.%s.%s";
+
+	private static final ObjectMapper objectMapper = objectMapper();
+
+	private final StatefulRedisModulesConnection<String, String> connection;
+	private final Map<String, byte[]> encodedKeys = new HashMap<>();
+
+	public SinkOffsetStore(StatefulRedisModulesConnection<String, String> connection) {
+		this.connection = connection;
+	}
+
+	private static ObjectMapper objectMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+		mapper.configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true);
+		mapper.configure(DeserializationFeature.USE_LONG_FOR_INTS, true);
+		return mapper;
+	}
+
+	public static String key(String topic) {
+		return KEY_PREFIX + topic;
+	}
+
+	/**
+	 * Reads the stored offsets of the given partitions, falling back to the
+	 * key-per-partition JSON layout written by earlier versions.
+	 */
+	public Map<TopicPartition, Long> read(Collection<TopicPartition> partitions) {
+		Map<String, List<TopicPartition>> topics = new LinkedHashMap<>();
+		for (TopicPartition partition : partitions) {
+			topics.computeIfAbsent(partition.topic(), t -> new ArrayList<>()).add(partition);
+		}
+		Map<TopicPartition, Long> offsets = new HashMap<>(partitions.size());
+		for (Map.Entry<String, List<TopicPartition>> topic : topics.entrySet()) {
+			String[] fields = topic.getValue().stream().map(p -> String.valueOf(p.partition()))
+					.toArray(String[]::new);
+			List<KeyValue<String, String>> values = connection.sync().hmget(key(topic.getKey()), fields);
+			for (KeyValue<String, String> value : values) {
+				if (value.hasValue()) {
+					offsets.put(new TopicPartition(topic.getKey(), Integer.parseInt(value.getKey())),
+							Long.parseLong(value.getValue()));
+				}
+			}
+		}
+		List<TopicPartition> missing = new ArrayList<>();
+		for (TopicPartition partition : partitions) {
+			if (!offsets.containsKey(partition)) {
+				missing.add(partition);
+			}
+		}
+		if (!missing.isEmpty()) {
+			for (SinkOffsetState state : readLegacy(missing)) {
+				offsets.put(state.topicPartition(), state.offset());
+			}
+		}
+		return offsets;
+	}
+
+	private Collection<SinkOffsetState> readLegacy(Collection<TopicPartition> partitions) {
+		Collection<SinkOffsetState> offsetStates = new ArrayList<>();
+		String[] partitionKeys = partitions.stream()
+				.map(p -> String.format(LEGACY_KEY_FORMAT, p.topic(), p.partition())).toArray(String[]::new);
+		List<KeyValue<String, String>> values = connection.sync().mget(partitionKeys);
+		for (KeyValue<String, String> value : values) {
+			if (value.hasValue()) {
+				try {
+					offsetStates.add(objectMapper.readValue(value.getValue(), SinkOffsetState.class));
+				} catch (IOException e) {
+					throw new DataException(e);
+				}
+			}
+		}
+		return offsetStates;
+	}
+
+	/**
+	 * Writes the given offsets with one HSET per topic, pipelined and awaited
+	 * together.
+	 */
+	public void write(Map<TopicPartition, Long> offsets) {
+		Map<String, Map<String, String>> hashes = hashes(offsets);
+		List<RedisFuture<Long>> futures = new ArrayList<>(hashes.size());
+		for (Map.Entry<String, Map<String, String>> hash : hashes.entrySet()) {
+			futures.add(connection.async().hset(key(hash.getKey()), hash.getValue()));
+		}
+		LettuceFutures.awaitAll(connection.getTimeout(), futures.toArray(new RedisFuture[0]));
+	}
+
+	/**
+	 * @return a batch operation that writes the given offsets in the pipeline of
+	 *         a {@link RedisSinkWriter}
+	 */
+	public RedisSinkWriter.BatchOperation operation(Map<TopicPartition, Long> offsets) {
+		Map<String, Map<String, String>> hashes = hashes(offsets);
+		return commands -> write(commands, hashes);
+	}
+
+	private Collection<RedisFuture<?>> write(RedisClusterAsyncCommands<byte[], byte[]> commands,
+			Map<String, Map<String, String>> hashes) {
+		List<RedisFuture<?>> futures = new ArrayList<>(hashes.size());
+		for (Map.Entry<String, Map<String, String>> hash : hashes.entrySet()) {
+			Map<byte[], byte[]> fields = new LinkedHashMap<>(hash.getValue().size());
+			hash.getValue().forEach((k, v) -> fields.put(bytes(k), bytes(v)));
+			futures.add(commands.hset(encodedKey(hash.getKey()), fields));
+		}
+		return futures;
+	}
+
+	private byte[] encodedKey(String topic) {
+		return encodedKeys.computeIfAbsent(topic, t -> bytes(key(t)));
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static Map<String, Map<String, String>> hashes(Map<TopicPartition, Long> offsets) {
+		Map<String, Map<String, String>> hashes = new LinkedHashMap<>();
+		for (Map.Entry<TopicPartition, Long> offset : offsets.entrySet()) {
+			hashes.computeIfAbsent(offset.getKey().topic(), t -> new LinkedHashMap<>())
+					.put(String.valueOf(offset.getKey().partition()), String.valueOf(offset.getValue()));
+		}
+		return hashes;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+/**
+ * Reduces a batch of sink records to the writes that determine the final state
+ * of each Redis key. For last-write-wins commands only the last record of each
+ * key is kept. For hashes the fields of consecutive records are merged into a
+ * single record, a null value (delete) discarding the fields merged before it.
+ * <p>
+ * Records whose key or fields cannot be converted are passed through
+ * uncompacted so that the writer reports each of them as a failure.
+ */
+public class SinkRecordCompactor {
+
+	/**
+	 * Value of a record holding the merged and already encoded fields of several
+	 * hash records.
+	 */
+	public static class MergedHash {
+
+		private final Map<byte[], byte[]> fields;
+		private final List<SinkRecord> records;
+
+		public MergedHash(Map<byte[], byte[]> fields, List<SinkRecord> records) {
+			this.fields = fields;
+			this.records = records;
+		}
+
+		public Map<byte[], byte[]> getFields() {
+			return fields;
+		}
+
+		/**
+		 * @return the records whose fields were merged, to be reported in place of
+		 *         the merged record if it cannot be written
+		 */
+		public List<SinkRecord> getRecords() {
+			return records;
+		}
+
+	}
+
+	private final Function<SinkRecord, byte[]> keyFunction;
+	private final Function<SinkRecord, Map<byte[], byte[]>> hashFunction;
+
+	/**
+	 * @param keyFunction  returns the Redis key a record is written to
+	 * @param hashFunction returns the hash fields of a record, or null when
+	 *                     records are last-write-wins
+	 */
+	public SinkRecordCompactor(Function<SinkRecord, byte[]> keyFunction,
+			Function<SinkRecord, Map<byte[], byte[]>> hashFunction) {
+		this.keyFunction = keyFunction;
+		this.hashFunction = hashFunction;
+	}
+
+	public List<SinkRecord> compact(Collection<SinkRecord> records) {
+		if (hashFunction == null) {
+			return lastWriteWins(records);
+		}
+		return mergeHashes(records);
+	}
+
+	private List<SinkRecord> lastWriteWins(Collection<SinkRecord> records) {
+		List<SinkRecord> uncompacted = new ArrayList<>();
+		Map<ByteBuffer, SinkRecord> lastRecords = new LinkedHashMap<>();
+		for (SinkRecord sinkRecord : records) {
+			byte[] key;
+			try {
+				key = keyFunction.apply(sinkRecord);
+			} catch (RuntimeException e) {
+				uncompacted.add(sinkRecord);
+				continue;
+			}
+			if (key == null) {
+				uncompacted.add(sinkRecord);
+			} else {
+				lastRecords.put(ByteBuffer.wrap(key), sinkRecord);
+			}
+		}
+		List<SinkRecord> compacted = new ArrayList<>(uncompacted.size() + lastRecords.size());
+		compacted.addAll(uncompacted);
+		compacted.addAll(lastRecords.values());
+		return compacted;
+	}
+
+	private List<SinkRecord> mergeHashes(Collection<SinkRecord> records) {
+		List<SinkRecord> uncompacted = new ArrayList<>();
+		Map<ByteBuffer, Hash> hashes = new LinkedHashMap<>();
+		for (SinkRecord sinkRecord : records) {
+			byte[] key;
+			Map<byte[], byte[]> fields;
+			try {
+				key = keyFunction.apply(sinkRecord);
+				fields = key == null ? null : hashFunction.apply(sinkRecord);
+			} catch (RuntimeException e) {
+				uncompacted.add(sinkRecord);
+				continue;
+			}
+			if (key == null) {
+				uncompacted.add(sinkRecord);
+			} else {
+				hashes.computeIfAbsent(ByteBuffer.wrap(key), k -> new Hash()).add(sinkRecord, fields);
+			}
+		}
+		List<SinkRecord> compacted = new ArrayList<>(uncompacted.size() + hashes.size());
+		compacted.addAll(uncompacted);
+		for (Hash hash : hashes.values()) {
+			hash.addTo(compacted);
+		}
+		return compacted;
+	}
+
+	private static class Hash {
+
+		private SinkRecord delete;
+		private final List<SinkRecord> merged = new ArrayList<>();
+		private final Map<ByteBuffer, byte[]> fields = new LinkedHashMap<>();
+
+		public void add(SinkRecord sinkRecord, Map<byte[], byte[]> map) {
+			if (map == null) {
+				delete = sinkRecord;
+				merged.clear();
+				fields.clear();
+			} else {
+				merged.add(sinkRecord);
+				map.forEach((field, value) -> fields.put(ByteBuffer.wrap(field), value));
+			}
+		}
+
+		public void addTo(List<SinkRecord> records) {
+			if (delete != null) {
+				records.add(delete);
+			}
+			if (merged.isEmpty()) {
+				return;
+			}
+			SinkRecord last = merged.get(merged.size() - 1);
+			if (merged.size() == 1) {
+				records.add(last);
+				return;
+			}
+			Map<byte[], byte[]> mergedFields = new LinkedHashMap<>(fields.size());
+			fields.forEach((field, value) -> mergedFields.put(field.array(), value));
+			records.add(last.newRecord(last.topic(), last.kafkaPartition(), last.keySchema(), last.key(), null,
+					new MergedHash(mergedFields, merged), last.timestamp()));
+		}
+
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisException;
+
+/**
+ * Spreads the records of a batch across several {@link RedisSinkWriter} lanes,
+ * each with its own connection. Records are assigned to lanes by hash of their
+ * Redis key so that commands on a key are issued in record order by a single
+ * lane, while lanes convert and write their records in parallel.
+ * <p>
+ * The first lane runs on the calling thread and every other lane on its own
+ * thread. Operations and coalescers of the lanes may therefore be called
+ * concurrently and must not share unsynchronized state.
+ */
+public class StripedSinkWriter implements AutoCloseable {
+
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	private final List<RedisSinkWriter> lanes;
+	private final Function<SinkRecord, byte[]> keyFunction;
+	private final ExecutorService executor;
+
+	/**
+	 * @param lanes       writers to spread records across
+	 * @param keyFunction returns the Redis key of a record, used to pick its lane
+	 */
+	public StripedSinkWriter(List<RedisSinkWriter> lanes, Function<SinkRecord, byte[]> keyFunction) {
+		this.lanes = lanes;
+		this.keyFunction = keyFunction;
+		if (lanes.size() > 1) {
+			int pool = POOL_COUNT.incrementAndGet();
+			AtomicInteger threadCount = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(lanes.size() - 1, r -> {
+				Thread thread = new Thread(r,
+						String.format("redis-sink-lanes-%s-%s", pool, threadCount.incrementAndGet()));
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			this.executor = null;
+		}
+	}
+
+	public void open() {
+		lanes.forEach(RedisSinkWriter::open);
+	}
+
+	/**
+	 * @see RedisSinkWriter#write(Collection)
+	 */
+	public void write(Collection<SinkRecord> records) {
+		write(records, null);
+	}
+
+	/**
+	 * Writes the records of each lane in parallel and returns once every lane has
+	 * pipelined its commands. The batch operation is issued by the first lane
+	 * after its records, so it is only ordered after the records of the other
+	 * lanes when there is a single lane.
+	 *
+	 * @see RedisSinkWriter#write(Collection, RedisSinkWriter.BatchOperation)
+	 * @throws RedisException if any lane failed, once all lanes have returned
+	 */
+	public void write(Collection<SinkRecord> records, RedisSinkWriter.BatchOperation batchOperation) {
+		if (executor == null) {
+			lanes.get(0).write(records, batchOperation);
+			return;
+		}
+		List<List<SinkRecord>> stripes = stripe(records);
+		List<Future<?>> futures = new ArrayList<>(lanes.size() - 1);
+		for (int index = 1; index < lanes.size(); index++) {
+			RedisSinkWriter lane = lanes.get(index);
+			List<SinkRecord> stripe = stripes.get(index);
+			futures.add(stripe.isEmpty() ? null : executor.submit(() -> lane.write(stripe)));
+		}
+		RuntimeException error = null;
+		try {
+			lanes.get(0).write(stripes.get(0), batchOperation);
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		for (Future<?> future : futures) {
+			if (future == null) {
+				continue;
+			}
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RedisCommandInterruptedException(e);
+			} catch (ExecutionException e) {
+				if (error == null) {
+					error = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+							: new RedisException(e.getCause());
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private List<List<SinkRecord>> stripe(Collection<SinkRecord> records) {
+		List<List<SinkRecord>> stripes = new ArrayList<>(lanes.size());
+		for (int index = 0; index < lanes.size(); index++) {
+			stripes.add(new ArrayList<>());
+		}
+		for (SinkRecord sinkRecord : records) {
+			stripes.get(lane(sinkRecord)).add(sinkRecord);
+		}
+		return stripes;
+	}
+
+	private int lane(SinkRecord sinkRecord) {
+		byte[] key;
+		try {
+			key = keyFunction.apply(sinkRecord);
+		} catch (RuntimeException e) {
+			// Let the lane report the faulty record
+			return 0;
+		}
+		return key == null ? 0 : Math.floorMod(Arrays.hashCode(key), lanes.size());
+	}
+
+	/**
+	 * Waits for the pending commands of every lane.
+	 *
+	 * @see RedisSinkWriter#flush()
+	 * @throws RedisException if any lane failed, once all lanes have been flushed
+	 */
+	public List<RedisSinkWriter.Failure> flush() {
+		List<RedisSinkWriter.Failure> failures = new ArrayList<>();
+		RedisException error = null;
+		for (RedisSinkWriter lane : lanes) {
+			try {
+				failures.addAll(lane.flush());
+			} catch (RedisException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+		return failures;
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		lanes.forEach(RedisSinkWriter::close);
+	}
+
+}
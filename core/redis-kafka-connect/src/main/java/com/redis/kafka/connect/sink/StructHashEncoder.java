@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * Encodes Structs into hash fields for HSET and XADD. The encoding plan of each
+ * schema is computed once: field names are encoded up front and each field gets
+ * a writer specialized for its type, so that numbers and booleans are encoded
+ * without going through {@link String}. Values are encoded exactly as their
+ * {@code toString()} form, except for byte arrays which are written as is.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class StructHashEncoder {
+
+	public static final String NESTED_FIELD_SEPARATOR = ".";
+
+	private static final int MAX_CACHED_SCHEMAS = 1000;
+	private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+	private static final double MAX_PLAIN_DOUBLE = 1e7;
+
+	private interface ValueWriter {
+
+		byte[] write(Object value);
+
+	}
+
+	private final Charset charset;
+	private final boolean ascii;
+	private final boolean flatten;
+	private final Map<Schema, Plan> identityPlans = new IdentityHashMap<>();
+	private final Map<Schema, Plan> plans = new HashMap<>();
+
+	/**
+	 * @param flatten whether to write the fields of nested structs as separate
+	 *                hash fields named {@code <parent>.<child>}
+	 */
+	public StructHashEncoder(Charset charset, boolean flatten) {
+		this.charset = charset;
+		this.ascii = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+				|| charset.equals(StandardCharsets.ISO_8859_1);
+		this.flatten = flatten;
+	}
+
+	public Map<byte[], byte[]> encode(Struct struct) {
+		Plan plan = plan(struct.schema());
+		Map<byte[], byte[]> hash = new LinkedHashMap<>(plan.size * 4 / 3 + 1);
+		plan.write(struct, hash);
+		return hash;
+	}
+
+	/**
+	 * Schemas are looked up by identity first since converters usually reuse
+	 * schema instances, then by equality for converters that rebuild them for
+	 * every record.
+	 */
+	private Plan plan(Schema schema) {
+		Plan plan = identityPlans.get(schema);
+		if (plan == null) {
+			plan = plans.get(schema);
+			if (plan == null) {
+				if (plans.size() >= MAX_CACHED_SCHEMAS) {
+					plans.clear();
+				}
+				plan = new Plan(schema, "");
+				plans.put(schema, plan);
+			}
+			if (identityPlans.size() >= MAX_CACHED_SCHEMAS) {
+				identityPlans.clear();
+			}
+			identityPlans.put(schema, plan);
+		}
+		return plan;
+	}
+
+	private class Plan {
+
+		private final List<FieldPlan> fields = new ArrayList<>();
+		private int size;
+
+		public Plan(Schema schema, String prefix) {
+			for (Field field : schema.fields()) {
+				String name = prefix + field.name();
+				Plan nested = null;
+				if (flatten && field.schema().type() == Schema.Type.STRUCT) {
+					nested = new Plan(field.schema(), name + NESTED_FIELD_SEPARATOR);
+					size += nested.size;
+				} else {
+					size++;
+				}
+				fields.add(new FieldPlan(field, name.getBytes(charset), writer(field.schema()), nested));
+			}
+		}
+
+		public void write(Struct struct, Map<byte[], byte[]> hash) {
+			for (FieldPlan field : fields) {
+				Object value = struct.get(field.field);
+				if (value == null) {
+					hash.put(field.name, null);
+				} else if (field.nested == null) {
+					hash.put(field.name, field.writer.write(value));
+				} else {
+					field.nested.write((Struct) value, hash);
+				}
+			}
+		}
+
+	}
+
+	private static class FieldPlan {
+
+		private final Field field;
+		private final byte[] name;
+		private final ValueWriter writer;
+		private final Plan nested;
+
+		public FieldPlan(Field field, byte[] name, ValueWriter writer, Plan nested) {
+			this.field = field;
+			this.name = name;
+			this.writer = writer;
+			this.nested = nested;
+		}
+
+	}
+
+	private ValueWriter writer(Schema schema) {
+		if (schema.name() != null) {
+			// Logical types (Date, Decimal, Timestamp, ...) have non-primitive values
+			return this::writeString;
+		}
+		switch (schema.type()) {
+		case INT8:
+		case INT16:
+		case INT32:
+		case INT64:
+			return ascii ? value -> writeLong(((Number) value).longValue()) : this::writeString;
+		case FLOAT32:
+		case FLOAT64:
+			return ascii ? value -> writeDouble(value) : this::writeString;
+		case BOOLEAN:
+			return ascii ? value -> ((Boolean) value) ? TRUE : FALSE : this::writeString;
+		case BYTES:
+			return StructHashEncoder::writeBytes;
+		default:
+			return this::writeString;
+		}
+	}
+
+	private byte[] writeString(Object value) {
+		return value.toString().getBytes(charset);
+	}
+
+	private static byte[] writeBytes(Object value) {
+		if (value instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			return bytes;
+		}
+		return (byte[]) value;
+	}
+
+	/**
+	 * Writes integral doubles in the range where {@link Double#toString(double)}
+	 * uses plain notation ({@code 123.0}) directly, and all others through
+	 * {@link Double#toString(double)}.
+	 */
+	private byte[] writeDouble(Object value) {
+		double d = ((Number) value).doubleValue();
+		if (d == Math.rint(d) && Math.abs(d) < MAX_PLAIN_DOUBLE && (d != 0 || 1 / d > 0)) {
+			return writeLong((long) d, true);
+		}
+		return value.toString().getBytes(charset);
+	}
+
+	private static byte[] writeLong(long value) {
+		return writeLong(value, false);
+	}
+
+	private static byte[] writeLong(long value, boolean decimal) {
+		if (value == Long.MIN_VALUE) {
+			return String.valueOf(value).getBytes(StandardCharsets.US_ASCII);
+		}
+		boolean negative = value < 0;
+		long remaining = negative ? -value : value;
+		int digits = 1;
+		for (long v = remaining / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		int length = (negative ? 1 : 0) + digits + (decimal ? 2 : 0);
+		byte[] bytes = new byte[length];
+		int index = (negative ? 1 : 0) + digits - 1;
+		if (negative) {
+			bytes[0] = '-';
+		}
+		for (; index >= (negative ? 1 : 0); index--) {
+			bytes[index] = (byte) ('0' + remaining % 10);
+			remaining /= 10;
+		}
+		if (decimal) {
+			bytes[length - 2] = '.';
+			bytes[length - 1] = '0';
+		}
+		return bytes;
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.sink;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import com.redis.kafka.connect.sink.RedisSinkConfig.TimestampSource;
+
+/**
+ * Maps sink records to time series samples: the series key from a template
+ * that may reference the topic, the record key and fields of the record value,
+ * the timestamp from the record key, the Kafka record timestamp or a value
+ * field, and the value from the record value or one of its fields.
+ * <p>
+ * The template is parsed once. Keys of templates that only reference the topic
+ * are cached per topic.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class TimeSeriesMapper {
+
+	private static final String TOKEN_START = "${";
+	private static final String TOKEN_END = "}";
+	private static final String KEY_TOKEN = "key";
+	private static final String TOPIC_TOKEN = "topic";
+	private static final String VALUE_FIELD_TOKEN_PREFIX = "value.";
+
+	private interface Segment {
+
+		void append(StringBuilder builder, SinkRecord sinkRecord);
+
+	}
+
+	private final Charset charset;
+	private final TimestampSource timestampSource;
+	private final String timestampField;
+	private final String valueField;
+	private final List<Segment> segments = new ArrayList<>();
+	private final boolean perTopic;
+	private final Map<String, byte[]> topicKeys = new HashMap<>();
+	private final StringBuilder builder = new StringBuilder();
+
+	/**
+	 * @param template       series key template, see
+	 *                       {@link RedisSinkConfigDef#TS_KEY_CONFIG}
+	 * @param timestampField value field holding the timestamp when the timestamp
+	 *                       source is {@link TimestampSource#FIELD}
+	 * @param valueField     value field holding the sample value, or empty if
+	 *                       record values are numbers
+	 */
+	public TimeSeriesMapper(String template, Charset charset, TimestampSource timestampSource, String timestampField,
+			String valueField) {
+		this.charset = charset;
+		this.timestampSource = timestampSource;
+		this.timestampField = timestampField;
+		this.valueField = valueField;
+		boolean recordDependent = false;
+		int index = 0;
+		while (index < template.length()) {
+			int start = template.indexOf(TOKEN_START, index);
+			int end = start < 0 ? -1 : template.indexOf(TOKEN_END, start);
+			if (end < 0) {
+				segments.add(literal(template.substring(index)));
+				break;
+			}
+			if (start > index) {
+				segments.add(literal(template.substring(index, start)));
+			}
+			String token = template.substring(start + TOKEN_START.length(), end);
+			if (token.equals(TOPIC_TOKEN)) {
+				segments.add((b, r) -> b.append(r.topic()));
+			} else if (token.equals(KEY_TOKEN)) {
+				segments.add(this::appendKey);
+				recordDependent = true;
+			} else if (token.startsWith(VALUE_FIELD_TOKEN_PREFIX)) {
+				String field = token.substring(VALUE_FIELD_TOKEN_PREFIX.length());
+				segments.add((b, r) -> b.append(field(r, field)));
+				recordDependent = true;
+			} else {
+				segments.add(literal(template.substring(start, end + TOKEN_END.length())));
+			}
+			index = end + TOKEN_END.length();
+		}
+		this.perTopic = !recordDependent;
+	}
+
+	private static Segment literal(String literal) {
+		return (b, r) -> b.append(literal);
+	}
+
+	private void appendKey(StringBuilder builder, SinkRecord sinkRecord) {
+		Object key = sinkRecord.key();
+		if (key instanceof byte[]) {
+			builder.append(new String((byte[]) key, charset));
+		} else {
+			builder.append(key);
+		}
+	}
+
+	/**
+	 * @return the encoded series key for the given record. The returned array may
+	 *         be shared and must not be modified.
+	 */
+	public byte[] key(SinkRecord sinkRecord) {
+		if (perTopic) {
+			byte[] key = topicKeys.get(sinkRecord.topic());
+			if (key == null) {
+				key = build(sinkRecord);
+				topicKeys.put(sinkRecord.topic(), key);
+			}
+			return key;
+		}
+		return build(sinkRecord);
+	}
+
+	private byte[] build(SinkRecord sinkRecord) {
+		builder.setLength(0);
+		for (Segment segment : segments) {
+			segment.append(builder, sinkRecord);
+		}
+		return builder.toString().getBytes(charset);
+	}
+
+	/**
+	 * @return the sample timestamp in milliseconds, or null to use the server time
+	 */
+	public Long timestamp(SinkRecord sinkRecord) {
+		switch (timestampSource) {
+		case RECORD:
+			return sinkRecord.timestamp();
+		case FIELD:
+			return timestamp(field(sinkRecord, timestampField));
+		default:
+			return keyTimestamp(sinkRecord);
+		}
+	}
+
+	private static Long keyTimestamp(SinkRecord sinkRecord) {
+		Object key = sinkRecord.key();
+		if (key == null) {
+			return null;
+		}
+		if (key instanceof Number) {
+			return ((Number) key).longValue();
+		}
+		throw new DataException(
+				"The key for the record must be a number. Consider using a single message transformation to transform the data before it is written to Redis.");
+	}
+
+	private Long timestamp(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+		throw new DataException(String.format("The timestamp field '%s' must be a number or a timestamp", timestampField));
+	}
+
+	/**
+	 * @return the sample value, or null if the record holds no sample
+	 */
+	public Double value(SinkRecord sinkRecord) {
+		if (valueField.isEmpty()) {
+			Object value = sinkRecord.value();
+			if (value == null) {
+				return null;
+			}
+			if (value instanceof Number) {
+				return ((Number) value).doubleValue();
+			}
+			throw new DataException(
+					"The value for the record must be a number. Consider using a single message transformation to transform the data before it is written to Redis.");
+		}
+		if (sinkRecord.value() == null) {
+			return null;
+		}
+		Object value = field(sinkRecord, valueField);
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		throw new DataException(String.format("The value field '%s' must be a number", valueField));
+	}
+
+	private static Object field(SinkRecord sinkRecord, String name) {
+		Object value = sinkRecord.value();
+		if (value instanceof Struct) {
+			Struct struct = (Struct) value;
+			Field field = struct.schema().field(name);
+			if (field == null) {
+				throw new DataException(String.format("The record value has no field '%s'", name));
+			}
+			return struct.get(field);
+		}
+		if (value instanceof Map) {
+			return ((Map<?, ?>) value).get(name);
+		}
+		throw new DataException(String.format("The record value must be a struct or a map to read field '%s'", name));
+	}
+
+}
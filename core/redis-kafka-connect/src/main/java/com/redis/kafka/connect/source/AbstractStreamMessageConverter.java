@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Converts stream messages whose field values are of type {@code V} to source
+ * records. Subclasses provide the record value, while keys, topics and
+ * partitions are the same for all value types.
+ * <p>
+ * The source partition, topic and, with the stream partitioner, topic
+ * partition of each stream are resolved once and cached. Not thread-safe.
+ */
+public abstract class AbstractStreamMessageConverter<V> implements Function<StreamMessage<String, V>, SourceRecord> {
+
+	private static final Schema KEY_SCHEMA = Schema.STRING_SCHEMA;
+
+	private static class Target {
+
+		private final Map<String, String> sourcePartition;
+		private final String topic;
+		private final Integer partition;
+
+		public Target(Map<String, String> sourcePartition, String topic, Integer partition) {
+			this.sourcePartition = sourcePartition;
+			this.topic = topic;
+			this.partition = partition;
+		}
+
+	}
+
+	private final Clock clock;
+	protected final RedisStreamSourceConfig config;
+	private final boolean idTimestamp;
+	private final Map<String, Target> targets = new HashMap<>();
+
+	protected AbstractStreamMessageConverter(Clock clock, RedisStreamSourceConfig config) {
+		this.clock = clock;
+		this.config = config;
+		this.idTimestamp = RedisStreamSourceConfig.STREAM_TIMESTAMP_ID.equals(config.getStreamTimestamp());
+	}
+
+	@Override
+	public SourceRecord apply(StreamMessage<String, V> message) {
+		Target target = targets.computeIfAbsent(message.getStream(), this::target);
+		Map<String, ?> offset = Collections.singletonMap(RedisStreamSourceTask.OFFSET_FIELD, message.getId());
+		String key = key(message);
+		long epoch = idTimestamp ? timestamp(message.getId()) : clock.millis();
+		return new SourceRecord(target.sourcePartition, offset, target.topic, partition(message, target), KEY_SCHEMA,
+				key, valueSchema(), value(message), epoch);
+	}
+
+	private Target target(String stream) {
+		String topic = config.getTopicName().replace(RedisStreamSourceConfigDef.TOKEN_STREAM, stream);
+		Integer partition = RedisStreamSourceConfig.STREAM_PARTITIONER_STREAM.equals(config.getStreamPartitioner())
+				? partition(stream.getBytes(StandardCharsets.UTF_8))
+				: null;
+		return new Target(sourcePartition(stream), topic, partition);
+	}
+
+	/**
+	 * @return the milliseconds part of the given stream entry ID
+	 */
+	private static long timestamp(String id) {
+		long millis = 0;
+		for (int index = 0; index < id.length(); index++) {
+			char c = id.charAt(index);
+			if (c == '-') {
+				break;
+			}
+			millis = millis * 10 + (c - '0');
+		}
+		return millis;
+	}
+
+	protected abstract Schema valueSchema();
+
+	protected abstract Object value(StreamMessage<String, V> message);
+
+	/**
+	 * @return the given field value as a string
+	 */
+	protected abstract String string(V value);
+
+	/**
+	 * @return the UTF-8 bytes of the given field value
+	 */
+	protected abstract byte[] bytes(V value);
+
+	/**
+	 * @return the approximate size in bytes of the given field value
+	 */
+	protected abstract int valueSize(V value);
+
+	/**
+	 * @return the approximate size in bytes of the given message
+	 */
+	public long size(StreamMessage<String, V> message) {
+		long size = message.getId().length();
+		if (message.getBody() != null) {
+			for (Map.Entry<String, V> entry : message.getBody().entrySet()) {
+				size += entry.getKey().length() + valueSize(entry.getValue());
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the source partition of the records of the given stream, under
+	 *         which their offsets are stored
+	 */
+	public static Map<String, String> sourcePartition(String stream) {
+		return Collections.singletonMap(RedisStreamSourceTask.PARTITION_FIELD, stream);
+	}
+
+	private String key(StreamMessage<String, V> message) {
+		V value = field(message, config.getStreamKeyField());
+		return value == null ? message.getId() : string(value);
+	}
+
+	/**
+	 * @return the topic partition of the given message, or null to let the
+	 *         producer partition it by key
+	 */
+	private Integer partition(StreamMessage<String, V> message, Target target) {
+		if (RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD.equals(config.getStreamPartitioner())) {
+			V value = field(message, config.getStreamPartitionerField());
+			return value == null ? null : partition(bytes(value));
+		}
+		return target.partition;
+	}
+
+	/**
+	 * Hashes the given bytes the way the Kafka producer hashes record keys.
+	 */
+	private int partition(byte[] bytes) {
+		return Utils.toPositive(Utils.murmur2(bytes)) % config.getStreamPartitions();
+	}
+
+	private V field(StreamMessage<String, V> message, String field) {
+		if (field.isEmpty() || message.getBody() == null) {
+			return null;
+		}
+		return message.getBody().get(field);
+	}
+
+}
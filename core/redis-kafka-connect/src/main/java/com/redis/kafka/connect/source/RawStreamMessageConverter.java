@@ -0,0 +1,340 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Converts stream messages read as raw bytes to records whose value is the
+ * message body encoded as a JSON object or a MessagePack map of strings.
+ * Field values are copied from the bytes read from Redis without being decoded,
+ * and each body is encoded into a single array of the exact encoded size. In
+ * JSON, bytes that are not part of a well-formed UTF-8 sequence are replaced
+ * with U+FFFD, like when values are decoded to strings. In MessagePack, values
+ * that are not well-formed UTF-8 are written unchanged as bin instead of str.
+ */
+public class RawStreamMessageConverter extends AbstractStreamMessageConverter<byte[]> {
+
+	private static final int MAX_NAMES = 1024;
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] REPLACEMENT = "\\ufffd".getBytes(StandardCharsets.US_ASCII);
+
+	private final boolean msgpack;
+	/**
+	 * UTF-8 bytes of the field names seen so far, as streams usually have a small
+	 * set of field names.
+	 */
+	private final Map<String, byte[]> names = new HashMap<>();
+
+	public RawStreamMessageConverter(Clock clock, RedisStreamSourceConfig config) {
+		super(clock, config);
+		this.msgpack = RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK.equals(config.getStreamFormat());
+	}
+
+	@Override
+	protected Schema valueSchema() {
+		return Schema.BYTES_SCHEMA;
+	}
+
+	@Override
+	protected byte[] value(StreamMessage<String, byte[]> message) {
+		Map<String, byte[]> body = message.getBody() == null ? Collections.emptyMap() : message.getBody();
+		return msgpack ? msgpack(body) : json(body);
+	}
+
+	@Override
+	protected String string(byte[] value) {
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected byte[] bytes(byte[] value) {
+		return value;
+	}
+
+	@Override
+	protected int valueSize(byte[] value) {
+		return value.length;
+	}
+
+	private byte[] name(String name) {
+		byte[] bytes = names.get(name);
+		if (bytes == null) {
+			bytes = name.getBytes(StandardCharsets.UTF_8);
+			if (names.size() < MAX_NAMES) {
+				names.put(name, bytes);
+			}
+		}
+		return bytes;
+	}
+
+	private byte[] json(Map<String, byte[]> body) {
+		int size = 2 + Math.max(0, body.size() - 1);
+		for (Map.Entry<String, byte[]> entry : body.entrySet()) {
+			size += jsonLength(name(entry.getKey())) + 1 + jsonLength(entry.getValue());
+		}
+		byte[] json = new byte[size];
+		int position = 0;
+		json[position++] = '{';
+		for (Map.Entry<String, byte[]> entry : body.entrySet()) {
+			if (position > 1) {
+				json[position++] = ',';
+			}
+			position = writeJson(json, position, name(entry.getKey()));
+			json[position++] = ':';
+			position = writeJson(json, position, entry.getValue());
+		}
+		json[position] = '}';
+		return json;
+	}
+
+	private static int jsonLength(byte[] string) {
+		int length = 2;
+		for (int index = 0; index < string.length;) {
+			byte b = string[index];
+			if (b < 0) {
+				int sequence = sequenceLength(string, index);
+				length += sequence == 0 ? REPLACEMENT.length : sequence;
+				index += Math.max(1, sequence);
+			} else {
+				length += jsonLength(b);
+				index++;
+			}
+		}
+		return length;
+	}
+
+	private static int jsonLength(byte b) {
+		switch (b) {
+		case '"':
+		case '\\':
+		case '\b':
+		case '\f':
+		case '\n':
+		case '\r':
+		case '\t':
+			return 2;
+		default:
+			return b < 0x20 ? 6 : 1;
+		}
+	}
+
+	/**
+	 * @return the length of the well-formed UTF-8 sequence starting with the
+	 *         given non-ASCII byte, or 0 if there is none
+	 */
+	private static int sequenceLength(byte[] string, int index) {
+		int lead = string[index] & 0xff;
+		int length;
+		int min = 0x80;
+		int max = 0xbf;
+		if (lead >= 0xc2 && lead <= 0xdf) {
+			length = 2;
+		} else if (lead >= 0xe0 && lead <= 0xef) {
+			length = 3;
+			// Overlong encodings and surrogates
+			if (lead == 0xe0) {
+				min = 0xa0;
+			} else if (lead == 0xed) {
+				max = 0x9f;
+			}
+		} else if (lead >= 0xf0 && lead <= 0xf4) {
+			length = 4;
+			// Overlong encodings and code points above U+10FFFF
+			if (lead == 0xf0) {
+				min = 0x90;
+			} else if (lead == 0xf4) {
+				max = 0x8f;
+			}
+		} else {
+			return 0;
+		}
+		if (index + length > string.length) {
+			return 0;
+		}
+		for (int offset = 1; offset < length; offset++) {
+			int b = string[index + offset] & 0xff;
+			if (b < min || b > max) {
+				return 0;
+			}
+			min = 0x80;
+			max = 0xbf;
+		}
+		return length;
+	}
+
+	private static int writeJson(byte[] json, int position, byte[] string) {
+		json[position++] = '"';
+		for (int index = 0; index < string.length;) {
+			byte b = string[index];
+			if (b < 0) {
+				int sequence = sequenceLength(string, index);
+				if (sequence == 0) {
+					System.arraycopy(REPLACEMENT, 0, json, position, REPLACEMENT.length);
+					position += REPLACEMENT.length;
+					index++;
+				} else {
+					System.arraycopy(string, index, json, position, sequence);
+					position += sequence;
+					index += sequence;
+				}
+				continue;
+			}
+			index++;
+			switch (jsonLength(b)) {
+			case 1:
+				json[position++] = b;
+				break;
+			case 2:
+				json[position++] = '\\';
+				json[position++] = escape(b);
+				break;
+			default:
+				json[position++] = '\\';
+				json[position++] = 'u';
+				json[position++] = '0';
+				json[position++] = '0';
+				json[position++] = HEX[b >> 4];
+				json[position++] = HEX[b & 0xf];
+			}
+		}
+		json[position++] = '"';
+		return position;
+	}
+
+	private static byte escape(byte b) {
+		switch (b) {
+		case '\b':
+			return 'b';
+		case '\f':
+			return 'f';
+		case '\n':
+			return 'n';
+		case '\r':
+			return 'r';
+		case '\t':
+			return 't';
+		default:
+			return b;
+		}
+	}
+
+	private byte[] msgpack(Map<String, byte[]> body) {
+		int size = headerLength(body.size(), 15, false);
+		boolean[] binary = new boolean[body.size()];
+		int index = 0;
+		for (Map.Entry<String, byte[]> entry : body.entrySet()) {
+			int nameLength = name(entry.getKey()).length;
+			int valueLength = entry.getValue().length;
+			binary[index] = !isUtf8(entry.getValue());
+			size += headerLength(nameLength, 31, true) + nameLength
+					+ headerLength(valueLength, binary[index] ? -1 : 31, true) + valueLength;
+			index++;
+		}
+		byte[] msgpack = new byte[size];
+		int position = writeHeader(msgpack, 0, body.size(), 0x80, 15, -1, 0xde, 0xdf);
+		index = 0;
+		for (Map.Entry<String, byte[]> entry : body.entrySet()) {
+			position = writeString(msgpack, position, name(entry.getKey()));
+			if (binary[index++]) {
+				position = writeBinary(msgpack, position, entry.getValue());
+			} else {
+				position = writeString(msgpack, position, entry.getValue());
+			}
+		}
+		return msgpack;
+	}
+
+	private static boolean isUtf8(byte[] string) {
+		int index = 0;
+		while (index < string.length) {
+			if (string[index] >= 0) {
+				index++;
+			} else {
+				int sequence = sequenceLength(string, index);
+				if (sequence == 0) {
+					return false;
+				}
+				index += sequence;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the length of a MessagePack map, str or bin header for the given
+	 *         size, where sizes up to {@code fixMax} fit in the type byte
+	 */
+	private static int headerLength(int size, int fixMax, boolean type8) {
+		if (size <= fixMax) {
+			return 1;
+		}
+		if (type8 && size <= 0xff) {
+			return 2;
+		}
+		return size <= 0xffff ? 3 : 5;
+	}
+
+	private static int writeString(byte[] msgpack, int position, byte[] string) {
+		position = writeHeader(msgpack, position, string.length, 0xa0, 31, 0xd9, 0xda, 0xdb);
+		System.arraycopy(string, 0, msgpack, position, string.length);
+		return position + string.length;
+	}
+
+	private static int writeBinary(byte[] msgpack, int position, byte[] bytes) {
+		position = writeHeader(msgpack, position, bytes.length, 0, -1, 0xc4, 0xc5, 0xc6);
+		System.arraycopy(bytes, 0, msgpack, position, bytes.length);
+		return position + bytes.length;
+	}
+
+	/**
+	 * Writes a MessagePack map, str or bin header.
+	 *
+	 * @param fix    type byte of sizes up to {@code fixMax}, or-ed with the size
+	 * @param type8  type byte of sizes up to 0xff, or -1 if there is none
+	 * @param type16 type byte of sizes up to 0xffff
+	 * @param type32 type byte of larger sizes
+	 */
+	private static int writeHeader(byte[] msgpack, int position, int size, int fix, int fixMax, int type8,
+			int type16, int type32) {
+		if (size <= fixMax) {
+			msgpack[position++] = (byte) (fix | size);
+		} else if (type8 != -1 && size <= 0xff) {
+			msgpack[position++] = (byte) type8;
+			msgpack[position++] = (byte) size;
+		} else if (size <= 0xffff) {
+			msgpack[position++] = (byte) type16;
+			msgpack[position++] = (byte) (size >> 8);
+			msgpack[position++] = (byte) size;
+		} else {
+			msgpack[position++] = (byte) type32;
+			msgpack[position++] = (byte) (size >> 24);
+			msgpack[position++] = (byte) (size >> 16);
+			msgpack[position++] = (byte) (size >> 8);
+			msgpack[position++] = (byte) size;
+		}
+		return position;
+	}
+
+}
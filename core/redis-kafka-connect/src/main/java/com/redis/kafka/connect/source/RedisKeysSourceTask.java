@@ -30,6 +30,7 @@ import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
 
 import com.redis.kafka.connect.common.ManifestVersionProvider;
+import com.redis.kafka.connect.common.RedisClientRegistry;
 import com.redis.spring.batch.RedisItemReader.LiveReaderBuilder;
 import com.redis.spring.batch.RedisItemReader.ScanReaderBuilder;
 import com.redis.spring.batch.common.DataStructure;
@@ -75,7 +76,7 @@ public class RedisKeysSourceTask extends SourceTask {
 		RedisKeysSourceConfig config = new RedisKeysSourceConfig(props);
 		this.topic = config.getTopicName();
 		this.batchSize = Math.toIntExact(config.getBatchSize());
-		this.client = config.client();
+		this.client = RedisClientRegistry.acquire(config);
 		int database = config.uri().getDatabase();
 		String[] keyPatterns = config.getKeyPatterns().toArray(new String[0]);
 		LiveReaderBuilder builder = new ScanReaderBuilder(client).live().poolOptions(config.poolOptions())
@@ -116,8 +117,7 @@ public class RedisKeysSourceTask extends SourceTask {
 			reader = null;
 		}
 		if (client != null) {
-			client.shutdown();
-			client.getResources().shutdown();
+			RedisClientRegistry.release(client);
 			client = null;
 		}
 	}
@@ -15,39 +15,143 @@
  */
 package com.redis.kafka.connect.source;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 public class RedisStreamSourceConfig extends RedisSourceConfig {
 
 	public static final String STREAM_DELIVERY_AT_MOST_ONCE = "at-most-once";
 	public static final String STREAM_DELIVERY_AT_LEAST_ONCE = "at-least-once";
+	public static final String STREAM_FORMAT_STRUCT = "struct";
+	public static final String STREAM_FORMAT_JSON = "json";
+	public static final String STREAM_FORMAT_MSGPACK = "msgpack";
+	public static final String STREAM_TIMESTAMP_WALLCLOCK = "wallclock";
+	public static final String STREAM_TIMESTAMP_ID = "id";
+	public static final String STREAM_TRIM_NONE = "none";
+	public static final String STREAM_TRIM_MINID = "minid";
+	public static final String STREAM_TRIM_MAXLEN = "maxlen";
+	public static final String STREAM_PARTITIONER_KEY = "key";
+	public static final String STREAM_PARTITIONER_FIELD = "field";
+	public static final String STREAM_PARTITIONER_STREAM = "stream";
 
-	private final String streamName;
+	private final List<String> streamNames;
+	private final String streamPattern;
+	private final long streamPatternInterval;
 	private final String streamOffset;
 	private final String streamDelivery;
 	private final String streamConsumerGroup;
 	private final String streamConsumerName;
 	private final long streamBlock;
+	private final int streamAckBatch;
+	private final long streamClaimIdle;
+	private final int streamClaimCount;
+	private final String streamKeyField;
+	private final String streamPartitioner;
+	private final String streamPartitionerField;
+	private final int streamPartitions;
+	private final String streamFormat;
+	private final String streamTimestamp;
+	private final int streamPrefetchRecords;
+	private final long streamPrefetchBytes;
+	private final String streamTrim;
+	private final long streamTrimMaxlen;
 	private final String topicName;
 
 	public RedisStreamSourceConfig(Map<?, ?> originals) {
 		super(new RedisStreamSourceConfigDef(), originals);
 		this.topicName = getString(RedisStreamSourceConfigDef.TOPIC_CONFIG);
-		this.streamName = getString(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG);
+		this.streamNames = getList(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG).stream().map(String::trim)
+				.filter(s -> !s.isEmpty()).collect(Collectors.toList());
+		this.streamPattern = getString(RedisStreamSourceConfigDef.STREAM_PATTERN_CONFIG).trim();
+		this.streamPatternInterval = getLong(RedisStreamSourceConfigDef.STREAM_PATTERN_INTERVAL_CONFIG);
 		this.streamOffset = getString(RedisStreamSourceConfigDef.STREAM_OFFSET_CONFIG);
 		this.streamDelivery = getString(RedisStreamSourceConfigDef.STREAM_DELIVERY_CONFIG);
 		this.streamConsumerGroup = getString(RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_CONFIG);
 		this.streamConsumerName = getString(RedisStreamSourceConfigDef.STREAM_CONSUMER_NAME_CONFIG);
 		this.streamBlock = getLong(RedisStreamSourceConfigDef.STREAM_BLOCK_CONFIG);
+		this.streamAckBatch = getInt(RedisStreamSourceConfigDef.STREAM_ACK_BATCH_CONFIG);
+		this.streamClaimIdle = getLong(RedisStreamSourceConfigDef.STREAM_CLAIM_IDLE_CONFIG);
+		this.streamClaimCount = getInt(RedisStreamSourceConfigDef.STREAM_CLAIM_COUNT_CONFIG);
+		this.streamKeyField = getString(RedisStreamSourceConfigDef.STREAM_KEY_FIELD_CONFIG).trim();
+		this.streamPartitioner = getString(RedisStreamSourceConfigDef.STREAM_PARTITIONER_CONFIG);
+		this.streamPartitionerField = getString(RedisStreamSourceConfigDef.STREAM_PARTITIONER_FIELD_CONFIG).trim();
+		this.streamPartitions = getInt(RedisStreamSourceConfigDef.STREAM_PARTITIONS_CONFIG);
+		this.streamFormat = getString(RedisStreamSourceConfigDef.STREAM_FORMAT_CONFIG);
+		this.streamTimestamp = getString(RedisStreamSourceConfigDef.STREAM_TIMESTAMP_CONFIG);
+		this.streamPrefetchRecords = getInt(RedisStreamSourceConfigDef.STREAM_PREFETCH_RECORDS_CONFIG);
+		this.streamPrefetchBytes = getLong(RedisStreamSourceConfigDef.STREAM_PREFETCH_BYTES_CONFIG);
+		this.streamTrim = getString(RedisStreamSourceConfigDef.STREAM_TRIM_CONFIG);
+		this.streamTrimMaxlen = getLong(RedisStreamSourceConfigDef.STREAM_TRIM_MAXLEN_CONFIG);
 	}
 
 	public Long getStreamBlock() {
 		return streamBlock;
 	}
 
-	public String getStreamName() {
-		return streamName;
+	public int getStreamAckBatch() {
+		return streamAckBatch;
+	}
+
+	public long getStreamClaimIdle() {
+		return streamClaimIdle;
+	}
+
+	public int getStreamClaimCount() {
+		return streamClaimCount;
+	}
+
+	public String getStreamKeyField() {
+		return streamKeyField;
+	}
+
+	public String getStreamPartitioner() {
+		return streamPartitioner;
+	}
+
+	public String getStreamPartitionerField() {
+		return streamPartitionerField;
+	}
+
+	public int getStreamPartitions() {
+		return streamPartitions;
+	}
+
+	public String getStreamFormat() {
+		return streamFormat;
+	}
+
+	public String getStreamTimestamp() {
+		return streamTimestamp;
+	}
+
+	public int getStreamPrefetchRecords() {
+		return streamPrefetchRecords;
+	}
+
+	public long getStreamPrefetchBytes() {
+		return streamPrefetchBytes;
+	}
+
+	public String getStreamTrim() {
+		return streamTrim;
+	}
+
+	public long getStreamTrimMaxlen() {
+		return streamTrimMaxlen;
+	}
+
+	public List<String> getStreamNames() {
+		return streamNames;
+	}
+
+	public String getStreamPattern() {
+		return streamPattern;
+	}
+
+	public long getStreamPatternInterval() {
+		return streamPatternInterval;
 	}
 
 	public String getStreamOffset() {
@@ -74,8 +178,11 @@ public class RedisStreamSourceConfig extends RedisSourceConfig {
 	public int hashCode() {
 		final int prime = 31;
 		int result = super.hashCode();
-		result = prime * result + Objects.hash(batchSize, streamBlock, streamConsumerGroup, streamConsumerName,
-				streamName, streamOffset, streamDelivery, topicName);
+		result = prime * result + Objects.hash(batchSize, streamBlock, streamAckBatch, streamClaimIdle,
+				streamClaimCount, streamKeyField, streamPartitioner, streamPartitionerField, streamPartitions,
+				streamFormat, streamTimestamp, streamPrefetchRecords, streamPrefetchBytes, streamTrim,
+				streamTrimMaxlen, streamConsumerGroup, streamConsumerName, streamNames, streamPattern,
+				streamPatternInterval, streamOffset, streamDelivery, topicName);
 		return result;
 	}
 
@@ -89,9 +196,20 @@ public class RedisStreamSourceConfig extends RedisSourceConfig {
 			return false;
 		RedisStreamSourceConfig other = (RedisStreamSourceConfig) obj;
 		return Objects.equals(batchSize, other.batchSize) && Objects.equals(streamBlock, other.streamBlock)
+				&& streamAckBatch == other.streamAckBatch && streamClaimIdle == other.streamClaimIdle
+				&& streamClaimCount == other.streamClaimCount && Objects.equals(streamKeyField, other.streamKeyField)
+				&& Objects.equals(streamPartitioner, other.streamPartitioner)
+				&& Objects.equals(streamPartitionerField, other.streamPartitionerField)
+				&& streamPartitions == other.streamPartitions && Objects.equals(streamFormat, other.streamFormat)
+				&& Objects.equals(streamTimestamp, other.streamTimestamp)
+				&& streamPrefetchRecords == other.streamPrefetchRecords
+				&& streamPrefetchBytes == other.streamPrefetchBytes && Objects.equals(streamTrim, other.streamTrim)
+				&& streamTrimMaxlen == other.streamTrimMaxlen
 				&& Objects.equals(streamConsumerGroup, other.streamConsumerGroup)
 				&& Objects.equals(streamConsumerName, other.streamConsumerName)
-				&& Objects.equals(streamName, other.streamName) && Objects.equals(streamOffset, other.streamOffset)
+				&& Objects.equals(streamNames, other.streamNames) && Objects.equals(streamPattern, other.streamPattern)
+				&& streamPatternInterval == other.streamPatternInterval
+				&& Objects.equals(streamOffset, other.streamOffset)
 				&& Objects.equals(streamDelivery, other.streamDelivery) && Objects.equals(topicName, other.topicName);
 	}
 
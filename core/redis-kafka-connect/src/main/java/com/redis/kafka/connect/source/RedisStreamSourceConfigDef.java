@@ -1,5 +1,10 @@
 package com.redis.kafka.connect.source;
 
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigValue;
+
 public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 
 	public static final String TOKEN_STREAM = "${stream}";
@@ -12,7 +17,16 @@ public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 			TOKEN_STREAM, TOKEN_STREAM);
 
 	public static final String STREAM_NAME_CONFIG = "redis.stream.name";
-	public static final String STREAM_NAME_DOC = "Name of the Redis stream to read from";
+	public static final String STREAM_NAME_DEFAULT = "";
+	public static final String STREAM_NAME_DOC = "Comma-separated names of the Redis streams to read from";
+
+	public static final String STREAM_PATTERN_CONFIG = "redis.stream.pattern";
+	public static final String STREAM_PATTERN_DEFAULT = "";
+	public static final String STREAM_PATTERN_DOC = "Glob-style pattern of the Redis streams to read from, in addition to " + STREAM_NAME_CONFIG + ". Streams are matched when tasks are configured, and tasks are reconfigured when the matching streams change.";
+
+	public static final String STREAM_PATTERN_INTERVAL_CONFIG = "redis.stream.pattern.interval";
+	public static final long STREAM_PATTERN_INTERVAL_DEFAULT = 60000;
+	public static final String STREAM_PATTERN_INTERVAL_DOC = "Interval in milliseconds between scans for streams matching " + STREAM_PATTERN_CONFIG + ". 0 only matches streams when tasks are configured.";
 
 	public static final String STREAM_OFFSET_CONFIG = "redis.stream.offset";
 	public static final String STREAM_OFFSET_DEFAULT = "0-0";
@@ -26,6 +40,77 @@ public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 	public static final String STREAM_DELIVERY_DEFAULT = RedisStreamSourceConfig.STREAM_DELIVERY_AT_LEAST_ONCE;
 	public static final String STREAM_DELIVERY_DOC = "Stream message delivery guarantee, either 'at-least-once' or 'at-most-once'";
 
+	public static final String STREAM_ACK_BATCH_CONFIG = "redis.stream.ack.batch";
+	public static final int STREAM_ACK_BATCH_DEFAULT = 1000;
+	public static final String STREAM_ACK_BATCH_DOC = "Maximum number of entries acknowledged by a single XACK. Entries written to Kafka are also acknowledged between polls once this many are pending, so that pending acknowledgements stay bounded between offset commits.";
+
+	public static final String STREAM_CLAIM_IDLE_CONFIG = "redis.stream.claim.idle";
+	public static final long STREAM_CLAIM_IDLE_DEFAULT = 0;
+	public static final String STREAM_CLAIM_IDLE_DOC = "Minimum idle time in milliseconds of the pending entries of other consumers in the group to claim with XCLAIM and replay ahead of new messages, including entries of live consumers that have not acknowledged them for that long. Should be above the worker offset.flush.interval.ms. Pending entries are scanned at most once per idle time. 0 disables claiming.";
+
+	public static final String STREAM_CLAIM_COUNT_CONFIG = "redis.stream.claim.count";
+	public static final int STREAM_CLAIM_COUNT_DEFAULT = 100;
+	public static final String STREAM_CLAIM_COUNT_DOC = "Maximum number of pending entries scanned by a single XPENDING";
+
+	public static final String STREAM_KEY_FIELD_CONFIG = "redis.stream.key.field";
+	public static final String STREAM_KEY_FIELD_DEFAULT = "";
+	public static final String STREAM_KEY_FIELD_DOC = "Name of the message body field to use as record key. Messages without this field, or all messages if empty, are keyed by their message ID.";
+
+	public static final String STREAM_PARTITIONER_CONFIG = "redis.stream.partitioner";
+	public static final String STREAM_PARTITIONER_DEFAULT = RedisStreamSourceConfig.STREAM_PARTITIONER_KEY;
+	public static final String STREAM_PARTITIONER_DOC = "How records are assigned to topic partitions: '"
+			+ RedisStreamSourceConfig.STREAM_PARTITIONER_KEY + "' leaves it to the producer based on the record key, '"
+			+ RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD + "' hashes the value of the field set in "
+			+ "redis.stream.partitioner.field, '" + RedisStreamSourceConfig.STREAM_PARTITIONER_STREAM
+			+ "' hashes the stream name so that each stream maps to a single partition.";
+
+	public static final String STREAM_PARTITIONER_FIELD_CONFIG = "redis.stream.partitioner.field";
+	public static final String STREAM_PARTITIONER_FIELD_DEFAULT = "";
+	public static final String STREAM_PARTITIONER_FIELD_DOC = "Name of the message body field to hash with the '"
+			+ RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD
+			+ "' partitioner. Messages without this field are partitioned by the producer.";
+
+	public static final String STREAM_PARTITIONS_CONFIG = "redis.stream.partitions";
+	public static final int STREAM_PARTITIONS_DEFAULT = 1;
+	public static final String STREAM_PARTITIONS_DOC = "Number of partitions of the destination topics, used by the '"
+			+ RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD + "' and '"
+			+ RedisStreamSourceConfig.STREAM_PARTITIONER_STREAM + "' partitioners";
+
+	public static final String STREAM_FORMAT_CONFIG = "redis.stream.format";
+	public static final String STREAM_FORMAT_DEFAULT = RedisStreamSourceConfig.STREAM_FORMAT_STRUCT;
+	public static final String STREAM_FORMAT_DOC = "Format of the record values: '"
+			+ RedisStreamSourceConfig.STREAM_FORMAT_STRUCT + "' for a struct with the message ID, body and stream, '"
+			+ RedisStreamSourceConfig.STREAM_FORMAT_JSON + "' or '" + RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK
+			+ "' for the message body encoded as a JSON object or a MessagePack map, with a bytes schema. Raw formats read field values as bytes and do not decode them.";
+
+	public static final String STREAM_TIMESTAMP_CONFIG = "redis.stream.timestamp";
+	public static final String STREAM_TIMESTAMP_DEFAULT = RedisStreamSourceConfig.STREAM_TIMESTAMP_WALLCLOCK;
+	public static final String STREAM_TIMESTAMP_DOC = "Record timestamp: '"
+			+ RedisStreamSourceConfig.STREAM_TIMESTAMP_WALLCLOCK + "' for the time the message is read, '"
+			+ RedisStreamSourceConfig.STREAM_TIMESTAMP_ID
+			+ "' for the milliseconds part of the message ID, i.e. the time the message was added to the stream.";
+
+	public static final String STREAM_PREFETCH_RECORDS_CONFIG = "redis.stream.prefetch.records";
+	public static final int STREAM_PREFETCH_RECORDS_DEFAULT = 0;
+	public static final String STREAM_PREFETCH_RECORDS_DOC = "Number of records read ahead by a background thread, so that reading from Redis overlaps with sending records to Kafka. 0 reads records in poll.";
+
+	public static final String STREAM_PREFETCH_BYTES_CONFIG = "redis.stream.prefetch.bytes";
+	public static final long STREAM_PREFETCH_BYTES_DEFAULT = 16 * 1024 * 1024;
+	public static final String STREAM_PREFETCH_BYTES_DOC = "Approximate size in bytes of the message IDs, field names and values read ahead when prefetching is enabled";
+
+	public static final String STREAM_TRIM_CONFIG = "redis.stream.trim";
+	public static final String STREAM_TRIM_DEFAULT = RedisStreamSourceConfig.STREAM_TRIM_NONE;
+	public static final String STREAM_TRIM_DOC = "Stream trimming after offset commits: '"
+			+ RedisStreamSourceConfig.STREAM_TRIM_NONE + "', '" + RedisStreamSourceConfig.STREAM_TRIM_MINID
+			+ "' to trim (XTRIM MINID ~) entries acknowledged by all consumer groups of the stream, or '"
+			+ RedisStreamSourceConfig.STREAM_TRIM_MAXLEN + "' to trim (XTRIM MAXLEN ~) streams to about "
+			+ "redis.stream.trim.maxlen entries.";
+
+	public static final String STREAM_TRIM_MAXLEN_CONFIG = "redis.stream.trim.maxlen";
+	public static final long STREAM_TRIM_MAXLEN_DEFAULT = 1000000;
+	public static final String STREAM_TRIM_MAXLEN_DOC = "Approximate number of entries to keep in each stream with the '"
+			+ RedisStreamSourceConfig.STREAM_TRIM_MAXLEN + "' trimming";
+
 	public static final String STREAM_CONSUMER_GROUP_CONFIG = "redis.stream.consumer.group";
 	public static final String STREAM_CONSUMER_GROUP_DEFAULT = "kafka-consumer-group";
 	public static final String STREAM_CONSUMER_GROUP_DOC = "Stream consumer group";
@@ -34,7 +119,9 @@ public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 	public static final String STREAM_CONSUMER_NAME_DEFAULT = "consumer-" + TOKEN_TASK;
 	public static final String STREAM_CONSUMER_NAME_DOC = "A format string for the stream consumer, which may contain '"
 			+ TOKEN_TASK + "' as a placeholder for the task id.\nFor example, 'consumer-" + TOKEN_TASK
-			+ "' for the task id '123' will map to the consumer name 'consumer-123'.";
+			+ "' for the task id '123' will map to the consumer name 'consumer-123'. When tasks read their own share of"
+			+ " the streams the placeholder is 0 for all of them, so that a stream moved to another task keeps its"
+			+ " consumer and pending entries.";
 
 	public RedisStreamSourceConfigDef() {
 		define();
@@ -47,7 +134,10 @@ public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 
 	private void define() {
 		define(TOPIC_CONFIG, Type.STRING, TOPIC_DEFAULT, Importance.MEDIUM, TOPIC_DOC);
-		define(STREAM_NAME_CONFIG, Type.STRING, Importance.HIGH, STREAM_NAME_DOC);
+		define(STREAM_NAME_CONFIG, Type.LIST, STREAM_NAME_DEFAULT, Importance.HIGH, STREAM_NAME_DOC);
+		define(STREAM_PATTERN_CONFIG, Type.STRING, STREAM_PATTERN_DEFAULT, Importance.HIGH, STREAM_PATTERN_DOC);
+		define(STREAM_PATTERN_INTERVAL_CONFIG, Type.LONG, STREAM_PATTERN_INTERVAL_DEFAULT, ConfigDef.Range.atLeast(0),
+				Importance.LOW, STREAM_PATTERN_INTERVAL_DOC);
 		define(STREAM_OFFSET_CONFIG, Type.STRING, STREAM_OFFSET_DEFAULT, Importance.MEDIUM, STREAM_OFFSET_DOC);
 		define(STREAM_DELIVERY_CONFIG, Type.STRING, STREAM_DELIVERY_DEFAULT, Importance.MEDIUM, STREAM_DELIVERY_DOC);
 		define(STREAM_CONSUMER_GROUP_CONFIG, Type.STRING, STREAM_CONSUMER_GROUP_DEFAULT, Importance.MEDIUM,
@@ -55,6 +145,60 @@ public class RedisStreamSourceConfigDef extends RedisSourceConfigDef {
 		define(STREAM_CONSUMER_NAME_CONFIG, Type.STRING, STREAM_CONSUMER_NAME_DEFAULT, Importance.MEDIUM,
 				STREAM_CONSUMER_NAME_DOC);
 		define(STREAM_BLOCK_CONFIG, Type.LONG, STREAM_BLOCK_DEFAULT, Importance.LOW, STREAM_BLOCK_DOC);
+		define(STREAM_ACK_BATCH_CONFIG, Type.INT, STREAM_ACK_BATCH_DEFAULT, ConfigDef.Range.atLeast(1), Importance.LOW,
+				STREAM_ACK_BATCH_DOC);
+		define(STREAM_CLAIM_IDLE_CONFIG, Type.LONG, STREAM_CLAIM_IDLE_DEFAULT, ConfigDef.Range.atLeast(0),
+				Importance.LOW, STREAM_CLAIM_IDLE_DOC);
+		define(STREAM_CLAIM_COUNT_CONFIG, Type.INT, STREAM_CLAIM_COUNT_DEFAULT, ConfigDef.Range.atLeast(1),
+				Importance.LOW, STREAM_CLAIM_COUNT_DOC);
+		define(STREAM_KEY_FIELD_CONFIG, Type.STRING, STREAM_KEY_FIELD_DEFAULT, Importance.MEDIUM, STREAM_KEY_FIELD_DOC);
+		define(STREAM_PARTITIONER_CONFIG, Type.STRING, STREAM_PARTITIONER_DEFAULT,
+				ConfigDef.ValidString.in(RedisStreamSourceConfig.STREAM_PARTITIONER_KEY,
+						RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD,
+						RedisStreamSourceConfig.STREAM_PARTITIONER_STREAM),
+				Importance.MEDIUM, STREAM_PARTITIONER_DOC);
+		define(STREAM_PARTITIONER_FIELD_CONFIG, Type.STRING, STREAM_PARTITIONER_FIELD_DEFAULT, Importance.MEDIUM,
+				STREAM_PARTITIONER_FIELD_DOC);
+		define(STREAM_FORMAT_CONFIG, Type.STRING, STREAM_FORMAT_DEFAULT,
+				ConfigDef.ValidString.in(RedisStreamSourceConfig.STREAM_FORMAT_STRUCT,
+						RedisStreamSourceConfig.STREAM_FORMAT_JSON, RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK),
+				Importance.MEDIUM, STREAM_FORMAT_DOC);
+		define(STREAM_TIMESTAMP_CONFIG, Type.STRING, STREAM_TIMESTAMP_DEFAULT,
+				ConfigDef.ValidString.in(RedisStreamSourceConfig.STREAM_TIMESTAMP_WALLCLOCK,
+						RedisStreamSourceConfig.STREAM_TIMESTAMP_ID),
+				Importance.LOW, STREAM_TIMESTAMP_DOC);
+		define(STREAM_PREFETCH_RECORDS_CONFIG, Type.INT, STREAM_PREFETCH_RECORDS_DEFAULT, ConfigDef.Range.atLeast(0),
+				Importance.LOW, STREAM_PREFETCH_RECORDS_DOC);
+		define(STREAM_PREFETCH_BYTES_CONFIG, Type.LONG, STREAM_PREFETCH_BYTES_DEFAULT, ConfigDef.Range.atLeast(1),
+				Importance.LOW, STREAM_PREFETCH_BYTES_DOC);
+		define(STREAM_TRIM_CONFIG, Type.STRING, STREAM_TRIM_DEFAULT,
+				ConfigDef.ValidString.in(RedisStreamSourceConfig.STREAM_TRIM_NONE,
+						RedisStreamSourceConfig.STREAM_TRIM_MINID, RedisStreamSourceConfig.STREAM_TRIM_MAXLEN),
+				Importance.MEDIUM, STREAM_TRIM_DOC);
+		define(STREAM_TRIM_MAXLEN_CONFIG, Type.LONG, STREAM_TRIM_MAXLEN_DEFAULT, ConfigDef.Range.atLeast(1),
+				Importance.MEDIUM, STREAM_TRIM_MAXLEN_DOC);
+		define(STREAM_PARTITIONS_CONFIG, Type.INT, STREAM_PARTITIONS_DEFAULT, ConfigDef.Range.atLeast(1),
+				Importance.MEDIUM, STREAM_PARTITIONS_DOC);
+	}
+
+	@Override
+	public Map<String, ConfigValue> validateAll(Map<String, String> props) {
+		Map<String, ConfigValue> results = super.validateAll(props);
+		if (results.values().stream().map(ConfigValue::errorMessages).anyMatch(l -> !l.isEmpty())) {
+			return results;
+		}
+		if (props.getOrDefault(STREAM_NAME_CONFIG, STREAM_NAME_DEFAULT).trim().isEmpty()
+				&& props.getOrDefault(STREAM_PATTERN_CONFIG, STREAM_PATTERN_DEFAULT).trim().isEmpty()) {
+			results.get(STREAM_NAME_CONFIG)
+					.addErrorMessage("a stream name or a stream pattern (" + STREAM_PATTERN_CONFIG + ") is required");
+		}
+		if (RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD.equals(props.get(STREAM_PARTITIONER_CONFIG))
+				&& props.getOrDefault(STREAM_PARTITIONER_FIELD_CONFIG, STREAM_PARTITIONER_FIELD_DEFAULT).trim()
+						.isEmpty()) {
+			results.get(STREAM_PARTITIONER_FIELD_CONFIG).addErrorMessage(
+					"a field is required with the '" + RedisStreamSourceConfig.STREAM_PARTITIONER_FIELD + "' partitioner");
+		}
+		return results;
 	}
 
 }
\ No newline at end of file
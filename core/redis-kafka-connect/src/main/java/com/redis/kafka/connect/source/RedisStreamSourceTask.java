@@ -15,48 +15,111 @@
  */
 package com.redis.kafka.connect.source;
 
+import java.lang.management.ManagementFactory;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.apache.kafka.connect.source.SourceTask;
-import org.springframework.batch.item.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.redis.kafka.connect.common.ManifestVersionProvider;
-import com.redis.spring.batch.reader.StreamAckPolicy;
-import com.redis.spring.batch.reader.StreamItemReader;
+import com.redis.kafka.connect.common.RedisClientRegistry;
 
 import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.Consumer;
+import io.lettuce.core.RedisException;
 import io.lettuce.core.StreamMessage;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
 
 public class RedisStreamSourceTask extends SourceTask {
 
+	private static final Logger log = LoggerFactory.getLogger(RedisStreamSourceTask.class);
+
 	public static final String TASK_ID = "task.id";
+	/**
+	 * Index of the task among the tasks reading its streams, which replaces the
+	 * task id in the consumer name. Defaults to the task id.
+	 */
+	public static final String CONSUMER_ID = "consumer.id";
+	public static final String MBEAN_DOMAIN = "com.redis.kafka.connect";
+	private static final String CONNECTOR_NAME = "name";
 
 	/**
-	 * The offsets that have been processed and that are to be acknowledged by the
-	 * reader in {@link RedisStreamSourceTask#commit()}.
+	 * The entries whose records have been written to Kafka and that are to be
+	 * acknowledged in {@link RedisStreamSourceTask#commit()}, or in
+	 * {@link RedisStreamSourceTask#poll()} once a full XACK is pending.
 	 */
-	private final List<Map<String, ?>> sourceOffsets = new ArrayList<>();
+	private final StreamAckTracker acks = new StreamAckTracker();
+	private ObjectName mbeanName;
 
 	public static final String OFFSET_FIELD = "offset";
+	public static final String PARTITION_FIELD = "stream";
+
+	/**
+	 * Field values are read as bytes in raw formats and are not decoded.
+	 */
+	private static final RedisCodec<String, byte[]> RAW_CODEC = RedisCodec.of(StringCodec.UTF8,
+			ByteArrayCodec.INSTANCE);
+
+	/**
+	 * Reader of the task streams and converter of their messages, whose value
+	 * type depends on the record format.
+	 */
+	private static class StreamRecords<V> {
+
+		private final StreamSourceReader<V> reader;
+		private final AbstractStreamMessageConverter<V> converter;
+
+		public StreamRecords(StreamSourceReader<V> reader, AbstractStreamMessageConverter<V> converter) {
+			this.reader = reader;
+			this.converter = converter;
+		}
 
-	private StreamItemReader<String, String> reader;
+		public List<SourceRecord> read() throws InterruptedException {
+			return reader.read().stream().map(converter).collect(Collectors.toList());
+		}
+
+		public StreamPrefetcher.Batch readBatch() throws InterruptedException {
+			List<StreamMessage<String, V>> messages = reader.read();
+			List<SourceRecord> sourceRecords = new ArrayList<>(messages.size());
+			long bytes = 0;
+			for (StreamMessage<String, V> message : messages) {
+				sourceRecords.add(converter.apply(message));
+				bytes += converter.size(message);
+			}
+			return new StreamPrefetcher.Batch(sourceRecords, bytes);
+		}
+
+	}
+
+	private StreamSourceReader<?> reader;
+	private StreamRecords<?> records;
+	private StreamPrefetcher prefetcher;
+	private Duration pollTimeout;
+	private String trim;
+	private long trimMaxlen;
+	private boolean autoAck;
+	private int ackBatch;
 	private AbstractRedisClient client;
 
 	private final Clock clock;
 
-	private StreamMessageConverter converter;
-
 	public RedisStreamSourceTask() {
 		this(Clock.systemDefaultZone());
 	}
@@ -73,46 +136,106 @@ public class RedisStreamSourceTask extends SourceTask {
 	@Override
 	public void start(Map<String, String> props) {
 		RedisStreamSourceConfig config = new RedisStreamSourceConfig(props);
-		this.converter = new StreamMessageConverter(clock, config);
-		this.client = config.client();
+		this.client = RedisClientRegistry.acquire(config);
 		int taskId = Integer.parseInt(props.getOrDefault(TASK_ID, String.valueOf(0)));
-		this.reader = reader(client, taskId, config);
-		reader.open(new ExecutionContext());
+		int consumerId = Integer.parseInt(props.getOrDefault(CONSUMER_ID, String.valueOf(taskId)));
+		this.autoAck = isAutoAck(config);
+		this.ackBatch = config.getStreamAckBatch();
+		if (RedisStreamSourceConfig.STREAM_FORMAT_STRUCT.equals(config.getStreamFormat())) {
+			this.records = new StreamRecords<>(reader(StringCodec.UTF8, consumerId, config),
+					new StreamMessageConverter(clock, config));
+		} else {
+			this.records = new StreamRecords<>(reader(RAW_CODEC, consumerId, config),
+					new RawStreamMessageConverter(clock, config));
+		}
+		this.reader = records.reader;
+		String connector = props.getOrDefault(CONNECTOR_NAME, "stream-source");
+		registerMBean(connector, taskId);
+		Map<String, String> offsets = offsets(config.getStreamNames());
+		reader.open(s -> offsets.getOrDefault(s, config.getStreamOffset()));
+		this.pollTimeout = Duration.ofMillis(config.getStreamBlock());
+		this.trim = config.getStreamTrim();
+		this.trimMaxlen = config.getStreamTrimMaxlen();
+		if (config.getStreamPrefetchRecords() > 0) {
+			this.prefetcher = new StreamPrefetcher(String.format("redis-stream-prefetch-%s-%s", connector, taskId),
+					records::readBatch, config.getStreamPrefetchRecords(), config.getStreamPrefetchBytes());
+			prefetcher.start();
+		}
 	}
 
-	private StreamItemReader<String, String> reader(AbstractRedisClient client, int taskId,
+	/**
+	 * @return the stored offset of each of the given streams that has one
+	 */
+	private Map<String, String> offsets(List<String> streams) {
+		Map<String, String> offsets = new HashMap<>();
+		if (context == null) {
+			return offsets;
+		}
+		for (String stream : streams) {
+			offset(AbstractStreamMessageConverter.sourcePartition(stream)).ifPresent(o -> offsets.put(stream, o));
+		}
+		// Offsets stored before source partitions were keyed by stream only apply to a
+		// single stream
+		if (offsets.isEmpty() && streams.size() == 1) {
+			offset(Collections.emptyMap()).ifPresent(o -> offsets.put(streams.get(0), o));
+		}
+		return offsets;
+	}
+
+	private Optional<String> offset(Map<String, String> partition) {
+		return Optional.ofNullable(context.offsetStorageReader().offset(partition))
+				.map(m -> (String) m.get(OFFSET_FIELD));
+	}
+
+	private <V> StreamSourceReader<V> reader(RedisCodec<String, V> codec, int consumerId,
 			RedisStreamSourceConfig config) {
-		String task = String.valueOf(taskId);
+		String task = String.valueOf(consumerId);
 		String consumerName = config.getStreamConsumerName().replace(RedisStreamSourceConfigDef.TOKEN_TASK, task);
 		Consumer<String> consumer = Consumer.from(config.getStreamConsumerGroup(), consumerName);
-		String offset = offsetMap().map(m -> (String) m.get(OFFSET_FIELD)).orElse(config.getStreamOffset());
-		String stream = config.getStreamName();
-		StreamItemReader<String, String> streamReader = new StreamItemReader<>(client, StringCodec.UTF8, stream);
-		streamReader.setConsumer(consumer);
-		streamReader.setOffset(offset);
+		StreamSourceReader<V> streamReader = new StreamSourceReader<>(client, codec, consumer, config.getStreamNames(),
+				autoAck);
 		streamReader.setBlock(Duration.ofMillis(config.getStreamBlock()));
 		streamReader.setCount(config.getBatchSize());
-		streamReader.setAckPolicy(ackPolicy(config));
+		streamReader.setAckChunk(config.getStreamAckBatch());
+		streamReader.setClaimIdle(Duration.ofMillis(config.getStreamClaimIdle()));
+		streamReader.setClaimCount(config.getStreamClaimCount());
 		return streamReader;
 	}
 
-	private Optional<Map<String, Object>> offsetMap() {
-		if (context == null) {
-			return Optional.empty();
+	private void registerMBean(String connector, int taskId) {
+		try {
+			mbeanName = new ObjectName(String.format("%s:type=stream-source-task,connector=%s,task=%s", MBEAN_DOMAIN,
+					ObjectName.quote(connector), taskId));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(mbeanName)) {
+				server.unregisterMBean(mbeanName);
+			}
+			server.registerMBean(acks, mbeanName);
+		} catch (JMException e) {
+			log.warn("Could not register stream source task MBean", e);
+			mbeanName = null;
 		}
-		return Optional.ofNullable(context.offsetStorageReader().offset(Collections.emptyMap()));
 	}
 
-	private void addSourceOffset(Map<String, ?> sourceOffset) {
-		sourceOffsets.add(sourceOffset);
+	private void unregisterMBean() {
+		if (mbeanName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+		} catch (JMException e) {
+			log.warn("Could not unregister stream source task MBean", e);
+		}
+		mbeanName = null;
 	}
 
 	@Deprecated
 	@Override
 	public void commitRecord(SourceRecord sourceRecord) throws InterruptedException {
 		Map<String, ?> currentOffset = sourceRecord.sourceOffset();
-		if (currentOffset != null) {
-			addSourceOffset(currentOffset);
+		if (currentOffset != null && !autoAck) {
+			String stream = (String) sourceRecord.sourcePartition().get(PARTITION_FIELD);
+			acks.add(stream, (String) currentOffset.get(OFFSET_FIELD));
 		}
 	}
 
@@ -120,44 +243,77 @@ public class RedisStreamSourceTask extends SourceTask {
 	public void commit() throws InterruptedException {
 		if (reader != null) {
 			try {
-				reader.ack(sourceOffsets.stream().map(m -> (String) m.get(OFFSET_FIELD)).toArray(String[]::new));
+				acks.ack(reader);
 			} catch (Exception e) {
 				throw new ConnectException("Could not connect to Redis", e);
 			}
+			trim();
+		}
+	}
+
+	/**
+	 * Trims the streams once their entries are acknowledged. Failures are only
+	 * logged as trimming is retried on the next commit.
+	 */
+	private void trim() {
+		try {
+			switch (trim) {
+			case RedisStreamSourceConfig.STREAM_TRIM_MINID:
+				reader.trimAcknowledged();
+				break;
+			case RedisStreamSourceConfig.STREAM_TRIM_MAXLEN:
+				reader.trimMaxlen(trimMaxlen);
+				break;
+			default:
+				break;
+			}
+		} catch (RedisException e) {
+			log.warn("Could not trim streams", e);
 		}
 	}
 
 	@Override
 	public void stop() {
+		unregisterMBean();
+		if (prefetcher != null) {
+			prefetcher.close();
+			prefetcher = null;
+		}
 		if (reader != null) {
 			reader.close();
 			reader = null;
+			records = null;
 		}
 		if (client != null) {
-			client.shutdown();
-			client.getResources().shutdown();
+			RedisClientRegistry.release(client);
 			client = null;
 		}
 	}
 
 	@Override
-	public List<SourceRecord> poll() {
-		List<StreamMessage<String, String>> messages;
+	public List<SourceRecord> poll() throws InterruptedException {
 		try {
-			messages = reader.readMessages();
+			if (acks.getDepth() >= ackBatch) {
+				acks.ack(reader);
+			}
+			// TODO: return heartbeat if no records
+			if (prefetcher != null) {
+				return prefetcher.poll(pollTimeout);
+			}
+			return records.read();
+		} catch (InterruptedException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new ConnectException("Could not read messages from stream", e);
 		}
-		// TODO: return heartbeat if no records
-		return messages.stream().map(converter).collect(Collectors.toList());
 	}
 
-	private StreamAckPolicy ackPolicy(RedisStreamSourceConfig config) {
+	private static boolean isAutoAck(RedisStreamSourceConfig config) {
 		switch (config.getStreamDelivery()) {
 		case RedisStreamSourceConfig.STREAM_DELIVERY_AT_MOST_ONCE:
-			return StreamAckPolicy.AUTO;
+			return true;
 		case RedisStreamSourceConfig.STREAM_DELIVERY_AT_LEAST_ONCE:
-			return StreamAckPolicy.MANUAL;
+			return false;
 		default:
 			throw new IllegalArgumentException("Illegal value for " + RedisStreamSourceConfigDef.STREAM_DELIVERY_CONFIG
 					+ ": " + config.getStreamDelivery());
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stream entries whose records have been written to Kafka and that are yet to
+ * be acknowledged. Entries are removed as they are acknowledged, so the
+ * tracker only holds the entries written since the last acknowledgement.
+ * <p>
+ * Thread-safe: entries are added from the producer callback thread and
+ * acknowledged from the task thread or the offset commit thread.
+ */
+public class StreamAckTracker implements StreamAckTrackerMBean {
+
+	private Map<String, List<String>> pending = new LinkedHashMap<>();
+	private long depth;
+	private long acknowledged;
+
+	public synchronized void add(String stream, String id) {
+		pending.computeIfAbsent(stream, s -> new ArrayList<>()).add(id);
+		depth++;
+	}
+
+	@Override
+	public synchronized long getDepth() {
+		return depth;
+	}
+
+	@Override
+	public synchronized long getAcknowledged() {
+		return acknowledged;
+	}
+
+	/**
+	 * Acknowledges all pending entries with the given reader. Entries are kept
+	 * for the next attempt if the acknowledgement fails.
+	 *
+	 * @return the number of acknowledged entries
+	 */
+	public long ack(StreamSourceReader<?> reader) {
+		Map<String, List<String>> ids;
+		long count;
+		synchronized (this) {
+			if (depth == 0) {
+				return 0;
+			}
+			ids = pending;
+			count = depth;
+			pending = new LinkedHashMap<>();
+			depth = 0;
+		}
+		try {
+			reader.ack(ids);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				ids.forEach((stream, streamIds) -> pending.merge(stream, streamIds, (added, failed) -> {
+					failed.addAll(added);
+					return failed;
+				}));
+				depth += count;
+			}
+			throw e;
+		}
+		synchronized (this) {
+			acknowledged += count;
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+/**
+ * JMX view of a {@link StreamAckTracker}, registered by each stream source
+ * task under {@code com.redis.kafka.connect:type=stream-source-task}.
+ */
+public interface StreamAckTrackerMBean {
+
+	/**
+	 * @return the number of entries written to Kafka and awaiting
+	 *         acknowledgement
+	 */
+	long getDepth();
+
+	/**
+	 * @return the number of entries acknowledged since the task started
+	 */
+	long getAcknowledged();
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.kafka.connect.source.SourceRecord;
+
+/**
+ * Reads records on a background thread into a queue bounded in records and in
+ * bytes, so that reading from Redis overlaps with the task sending previously
+ * read records to Kafka.
+ * <p>
+ * The bounds are checked before each read, so the queue may exceed them by the
+ * records of a single read.
+ */
+public class StreamPrefetcher implements AutoCloseable {
+
+	/**
+	 * Records returned by a single read, with their estimated size in bytes.
+	 */
+	public static class Batch {
+
+		private final List<SourceRecord> records;
+		private final long bytes;
+
+		public Batch(List<SourceRecord> records, long bytes) {
+			this.records = records;
+			this.bytes = bytes;
+		}
+
+		public List<SourceRecord> getRecords() {
+			return records;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+	}
+
+	public interface BatchReader {
+
+		/**
+		 * @return the next records, or an empty batch if none arrived within the
+		 *         block duration
+		 */
+		Batch read() throws InterruptedException;
+
+	}
+
+	private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+	private final BatchReader reader;
+	private final int maxRecords;
+	private final long maxBytes;
+	private final Deque<Batch> batches = new ArrayDeque<>();
+	private final Thread thread;
+	private int records;
+	private long bytes;
+	private RuntimeException error;
+	private boolean closed;
+
+	/**
+	 * @param name       name of the background thread
+	 * @param maxRecords number of queued records above which reading pauses
+	 * @param maxBytes   estimated size of queued records above which reading
+	 *                   pauses
+	 */
+	public StreamPrefetcher(String name, BatchReader reader, int maxRecords, long maxBytes) {
+		this.reader = reader;
+		this.maxRecords = maxRecords;
+		this.maxBytes = maxBytes;
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	private void run() {
+		while (awaitCapacity()) {
+			Batch batch;
+			try {
+				batch = reader.read();
+			} catch (InterruptedException e) {
+				return;
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (!closed) {
+						error = e;
+						notifyAll();
+					}
+				}
+				return;
+			}
+			if (!batch.getRecords().isEmpty()) {
+				synchronized (this) {
+					batches.add(batch);
+					records += batch.getRecords().size();
+					bytes += batch.getBytes();
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until the queue is below its bounds.
+	 *
+	 * @return false if the prefetcher was closed
+	 */
+	private synchronized boolean awaitCapacity() {
+		while (!closed && (records >= maxRecords || bytes >= maxBytes)) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+		return !closed;
+	}
+
+	/**
+	 * Takes all queued records, waiting up to the given timeout if there are
+	 * none.
+	 *
+	 * @return the queued records, or an empty list if none were read within the
+	 *         timeout
+	 * @throws RuntimeException the error that stopped the background thread,
+	 *                          once all records read before it are taken
+	 */
+	public synchronized List<SourceRecord> poll(Duration timeout) throws InterruptedException {
+		if (batches.isEmpty() && error == null && !timeout.isZero()) {
+			wait(timeout.toMillis());
+		}
+		if (batches.isEmpty()) {
+			if (error != null) {
+				throw error;
+			}
+			return Collections.emptyList();
+		}
+		List<SourceRecord> polled = new ArrayList<>(records);
+		for (Batch batch : batches) {
+			polled.addAll(batch.getRecords());
+		}
+		batches.clear();
+		records = 0;
+		bytes = 0;
+		notifyAll();
+		return polled;
+	}
+
+	/**
+	 * @return the number of queued records
+	 */
+	public synchronized int size() {
+		return records;
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			batches.clear();
+			records = 0;
+			bytes = 0;
+			notifyAll();
+		}
+		thread.interrupt();
+		try {
+			thread.join(CLOSE_TIMEOUT.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright © 2021 Redis
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.redis.kafka.connect.source;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.Limit;
+import io.lettuce.core.PendingMessage;
+import io.lettuce.core.PendingMessages;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisBusyException;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XPendingArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.XReadArgs.StreamOffset;
+import io.lettuce.core.XTrimArgs;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisStreamAsyncCommands;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Reads several Redis streams through a consumer group, with a single
+ * XREADGROUP call for all streams.
+ * <p>
+ * Entries that were delivered to the consumer but not acknowledged (e.g.
+ * before a task restart) are read first, starting after the given offset of
+ * each stream, then new entries are read. With automatic acknowledgement
+ * (at-most-once delivery) such pending entries are acknowledged when the
+ * reader is opened and new entries are read with NOACK.
+ * <p>
+ * When a claim idle time is set, entries left pending by other consumers of
+ * the group (e.g. a task that died or was scaled down) for at least that long
+ * are found with XPENDING, claimed with XCLAIM and returned ahead of new
+ * entries. Entries pending for this consumer are not claimed, as they may still
+ * be waiting for their acknowledgement. The pending entries of the streams are
+ * scanned at most once per claim idle time.
+ * <p>
+ * Against Redis Cluster streams are read with one XREADGROUP per hash slot,
+ * without blocking when there are several since each may go to another node.
+ * The reader then sleeps for the block duration after reading no entry, so an
+ * entry arriving meanwhile waits up to that long to be read where a blocking
+ * read would return it at once. Use hash tags so that the streams of a task
+ * share a slot.
+ * <p>
+ * Entries are acknowledged and streams trimmed on a second connection, so that
+ * they do not wait for a blocking XREADGROUP issued by another thread.
+ */
+public class StreamSourceReader<V> implements AutoCloseable {
+
+	private static final String OFFSET_LAST = "$";
+	private static final String OFFSET_FIRST = "0-0";
+
+	private final AbstractRedisClient client;
+	private final RedisCodec<String, V> codec;
+	private final Consumer<String> consumer;
+	private final Collection<List<String>> slots;
+	private final boolean autoAck;
+	private Duration block = Duration.ZERO;
+	private long count = 50;
+	private int ackChunk = 1000;
+	private Duration claimIdle = Duration.ZERO;
+	private long claimCount = 100;
+	private long nextClaim;
+	private StatefulConnection<String, V> connection;
+	private RedisStreamAsyncCommands<String, V> commands;
+	private StatefulConnection<String, V> ackConnection;
+	private RedisStreamAsyncCommands<String, V> ackCommands;
+	/**
+	 * ID of the last pending entry read for each stream whose pending entries
+	 * have not all been read yet.
+	 */
+	private final Map<String, String> pendingIds = new LinkedHashMap<>();
+	/**
+	 * ID to resume the current XPENDING scan from, for each stream whose pending
+	 * entries have not all been scanned yet.
+	 */
+	private final Map<String, String> claimIds = new LinkedHashMap<>();
+
+	/**
+	 * @param codec   codec of the stream and field names, and of the field values
+	 * @param streams names of the streams to read
+	 * @param autoAck whether entries are acknowledged as soon as they are read
+	 */
+	public StreamSourceReader(AbstractRedisClient client, RedisCodec<String, V> codec, Consumer<String> consumer,
+			List<String> streams, boolean autoAck) {
+		this.client = client;
+		this.codec = codec;
+		this.consumer = consumer;
+		this.autoAck = autoAck;
+		if (client instanceof RedisClusterClient) {
+			Map<Integer, List<String>> slotStreams = new LinkedHashMap<>();
+			for (String stream : streams) {
+				slotStreams.computeIfAbsent(SlotHash.getSlot(stream), s -> new ArrayList<>()).add(stream);
+			}
+			this.slots = slotStreams.values();
+		} else {
+			this.slots = streams.isEmpty() ? Collections.emptyList() : Collections.singletonList(streams);
+		}
+	}
+
+	public void setBlock(Duration block) {
+		this.block = block;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public void setAckChunk(int ackChunk) {
+		this.ackChunk = ackChunk;
+	}
+
+	/**
+	 * @param claimIdle minimum idle time of the pending entries to claim from
+	 *                  other consumers, or zero to not claim entries
+	 */
+	public void setClaimIdle(Duration claimIdle) {
+		this.claimIdle = claimIdle;
+	}
+
+	public void setClaimCount(long claimCount) {
+		this.claimCount = claimCount;
+	}
+
+	/**
+	 * Creates the consumer group of each stream that does not have one yet.
+	 *
+	 * @param offsets offset to create the group at and to read pending entries
+	 *                after, for each stream
+	 */
+	public void open(Function<String, String> offsets) {
+		connection = connect();
+		commands = async(connection);
+		ackConnection = connect();
+		ackCommands = async(ackConnection);
+		for (List<String> streams : slots) {
+			for (String stream : streams) {
+				String offset = offsets.apply(stream);
+				try {
+					await(commands.xgroupCreate(StreamOffset.from(stream, offset), consumer.getGroup(),
+							XGroupCreateArgs.Builder.mkstream(true)), connection.getTimeout());
+				} catch (RedisBusyException e) {
+					// Consumer group already exists
+				}
+				pendingIds.put(stream, OFFSET_LAST.equals(offset) ? OFFSET_FIRST : offset);
+			}
+		}
+		if (autoAck) {
+			while (!pendingIds.isEmpty()) {
+				ack(ids(readPending()));
+			}
+		}
+	}
+
+	private StatefulConnection<String, V> connect() {
+		if (client instanceof RedisClusterClient) {
+			return ((RedisClusterClient) client).connect(codec);
+		}
+		return ((RedisClient) client).connect(codec);
+	}
+
+	private static <V> RedisStreamAsyncCommands<String, V> async(StatefulConnection<String, V> connection) {
+		if (connection instanceof StatefulRedisClusterConnection) {
+			return ((StatefulRedisClusterConnection<String, V>) connection).async();
+		}
+		return ((StatefulRedisConnection<String, V>) connection).async();
+	}
+
+	/**
+	 * @return the next entries of the streams, pending ones first, then claimed
+	 *         ones, or an empty list if none arrived within the block duration
+	 */
+	public List<StreamMessage<String, V>> read() throws InterruptedException {
+		while (!pendingIds.isEmpty()) {
+			List<StreamMessage<String, V>> messages = readPending();
+			if (!messages.isEmpty()) {
+				return messages;
+			}
+		}
+		List<StreamMessage<String, V>> claimed = claim();
+		if (!claimed.isEmpty()) {
+			return claimed;
+		}
+		boolean blocking = slots.size() == 1 && !block.isZero();
+		XReadArgs args = XReadArgs.Builder.count(count).noack(autoAck);
+		if (blocking) {
+			args.block(block);
+		}
+		List<StreamMessage<String, V>> messages = read(args, StreamOffset::lastConsumed);
+		// Polling several slots trades up to one block duration of latency for
+		// not spinning on empty reads
+		if (messages.isEmpty() && !blocking && !block.isZero()) {
+			Thread.sleep(block.toMillis());
+		}
+		return messages;
+	}
+
+	private List<StreamMessage<String, V>> readPending() {
+		List<StreamMessage<String, V>> messages = read(XReadArgs.Builder.count(count),
+				s -> pendingIds.containsKey(s) ? StreamOffset.from(s, pendingIds.get(s)) : null);
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (StreamMessage<String, V> message : messages) {
+			pendingIds.put(message.getStream(), message.getId());
+			counts.merge(message.getStream(), 1, Integer::sum);
+		}
+		// A stream returning fewer entries than requested has no more pending ones
+		pendingIds.keySet().removeIf(s -> counts.getOrDefault(s, 0) < count);
+		return messages;
+	}
+
+	/**
+	 * Continues the current XPENDING scan, or starts a new one if the claim idle
+	 * time has elapsed since the previous one started, until entries of other
+	 * consumers are claimed or the scan completes.
+	 */
+	private List<StreamMessage<String, V>> claim() {
+		if (claimIdle.isZero()) {
+			return Collections.emptyList();
+		}
+		if (claimIds.isEmpty()) {
+			long now = System.currentTimeMillis();
+			if (now < nextClaim) {
+				return Collections.emptyList();
+			}
+			nextClaim = now + claimIdle.toMillis();
+			for (List<String> streams : slots) {
+				streams.forEach(s -> claimIds.put(s, OFFSET_FIRST));
+			}
+		}
+		List<StreamMessage<String, V>> messages = new ArrayList<>();
+		while (messages.isEmpty() && !claimIds.isEmpty()) {
+			Map<String, RedisFuture<List<PendingMessage>>> pending = new LinkedHashMap<>();
+			claimIds.forEach((stream, id) -> pending.put(stream, commands.xpending(stream, XPendingArgs.Builder
+					.xpending(consumer.getGroup(), Range.from(Range.Boundary.including(id), Range.Boundary.unbounded()),
+							Limit.from(claimCount))
+					.idle(claimIdle))));
+			List<RedisFuture<List<StreamMessage<String, V>>>> futures = new ArrayList<>();
+			for (Map.Entry<String, RedisFuture<List<PendingMessage>>> entry : pending.entrySet()) {
+				List<PendingMessage> idle = await(entry.getValue(), connection.getTimeout());
+				if (idle.size() < claimCount) {
+					claimIds.remove(entry.getKey());
+				} else {
+					claimIds.put(entry.getKey(), nextId(idle.get(idle.size() - 1).getId()));
+				}
+				String[] ids = idle.stream().filter(p -> !consumer.getName().equals(p.getConsumer()))
+						.map(PendingMessage::getId).toArray(String[]::new);
+				if (ids.length > 0) {
+					futures.add(commands.xclaim(entry.getKey(), consumer, claimIdle.toMillis(), ids));
+				}
+			}
+			for (RedisFuture<List<StreamMessage<String, V>>> future : futures) {
+				// Entries acknowledged or deleted since they were listed are not claimed
+				await(future, connection.getTimeout()).stream().filter(m -> m.getBody() != null)
+						.forEach(messages::add);
+			}
+		}
+		if (autoAck) {
+			ack(ids(messages));
+		}
+		return messages;
+	}
+
+	private static <V> Map<String, List<String>> ids(List<StreamMessage<String, V>> messages) {
+		Map<String, List<String>> ids = new LinkedHashMap<>();
+		for (StreamMessage<String, V> message : messages) {
+			ids.computeIfAbsent(message.getStream(), s -> new ArrayList<>()).add(message.getId());
+		}
+		return ids;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<StreamMessage<String, V>> read(XReadArgs args,
+			Function<String, StreamOffset<String>> offsetFunction) {
+		List<RedisFuture<List<StreamMessage<String, V>>>> futures = new ArrayList<>(slots.size());
+		for (List<String> streams : slots) {
+			List<StreamOffset<String>> offsets = new ArrayList<>(streams.size());
+			for (String stream : streams) {
+				StreamOffset<String> offset = offsetFunction.apply(stream);
+				if (offset != null) {
+					offsets.add(offset);
+				}
+			}
+			if (!offsets.isEmpty()) {
+				futures.add(commands.xreadgroup(consumer, args, offsets.toArray(new StreamOffset[0])));
+			}
+		}
+		Duration timeout = connection.getTimeout().plus(block);
+		List<StreamMessage<String, V>> messages = new ArrayList<>();
+		for (RedisFuture<List<StreamMessage<String, V>>> future : futures) {
+			messages.addAll(await(future, timeout));
+		}
+		return messages;
+	}
+
+	private static <T> T await(RedisFuture<T> future, Duration timeout) {
+		try {
+			return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw new RedisCommandTimeoutException(String.format("Command did not complete within %s", timeout));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RedisCommandInterruptedException(e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RedisException ? (RedisException) e.getCause()
+					: new RedisException(e.getCause());
+		}
+	}
+
+	/**
+	 * Acknowledges the given entries with pipelined XACK commands of at most
+	 * {@code ackChunk} entries each.
+	 *
+	 * @param ids IDs of the entries to acknowledge, by stream
+	 */
+	public void ack(Map<String, List<String>> ids) {
+		List<RedisFuture<Long>> futures = new ArrayList<>();
+		for (Map.Entry<String, List<String>> entry : ids.entrySet()) {
+			List<String> streamIds = entry.getValue();
+			for (int start = 0; start < streamIds.size(); start += ackChunk) {
+				List<String> chunk = streamIds.subList(start, Math.min(start + ackChunk, streamIds.size()));
+				futures.add(
+						ackCommands.xack(entry.getKey(), consumer.getGroup(), chunk.toArray(new String[0])));
+			}
+		}
+		for (RedisFuture<Long> future : futures) {
+			await(future, ackConnection.getTimeout());
+		}
+	}
+
+	/**
+	 * Trims each stream with XTRIM MINID ~ to the lowest entry ID that one of its
+	 * consumer groups has not acknowledged: the first pending entry of a group
+	 * or, if the group has no pending entries, its last delivered entry. Streams
+	 * without consumer groups are not trimmed.
+	 */
+	public void trimAcknowledged() {
+		Duration timeout = ackConnection.getTimeout();
+		Map<String, RedisFuture<List<Object>>> groups = new LinkedHashMap<>();
+		for (List<String> streams : slots) {
+			streams.forEach(s -> groups.put(s, ackCommands.xinfoGroups(s)));
+		}
+		List<RedisFuture<Long>> futures = new ArrayList<>();
+		for (Map.Entry<String, RedisFuture<List<Object>>> entry : groups.entrySet()) {
+			String minId = null;
+			for (Object group : await(entry.getValue(), timeout)) {
+				String id = unacknowledged(entry.getKey(), (List<?>) group, timeout);
+				if (minId == null || compareIds(id, minId) < 0) {
+					minId = id;
+				}
+			}
+			if (minId != null) {
+				futures.add(ackCommands.xtrim(entry.getKey(), XTrimArgs.Builder.minId(minId).approximateTrimming()));
+			}
+		}
+		for (RedisFuture<Long> future : futures) {
+			await(future, timeout);
+		}
+	}
+
+	/**
+	 * @param group reply of XINFO GROUPS for the group
+	 * @return the lowest ID that the given group has not acknowledged
+	 */
+	private String unacknowledged(String stream, List<?> group, Duration timeout) {
+		Map<String, Object> fields = new HashMap<>();
+		for (int index = 0; index + 1 < group.size(); index += 2) {
+			fields.put(string(group.get(index)), group.get(index + 1));
+		}
+		if (Long.parseLong(string(fields.get("pending"))) > 0) {
+			PendingMessages pending = await(ackCommands.xpending(stream, string(fields.get("name"))), timeout);
+			return pending.getMessageIds().getLower().getValue();
+		}
+		return string(fields.get("last-delivered-id"));
+	}
+
+	private static String string(Object value) {
+		if (value instanceof byte[]) {
+			return new String((byte[]) value, StandardCharsets.UTF_8);
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * @return the lowest entry ID above the given one
+	 */
+	private static String nextId(String id) {
+		int separator = id.indexOf('-');
+		return id.substring(0, separator) + "-" + (Long.parseLong(id.substring(separator + 1)) + 1);
+	}
+
+	private static int compareIds(String id, String other) {
+		int separator = id.indexOf('-');
+		int otherSeparator = other.indexOf('-');
+		int compare = Long.compare(Long.parseLong(id.substring(0, separator)),
+				Long.parseLong(other.substring(0, otherSeparator)));
+		if (compare != 0) {
+			return compare;
+		}
+		return Long.compare(Long.parseLong(id.substring(separator + 1)),
+				Long.parseLong(other.substring(otherSeparator + 1)));
+	}
+
+	/**
+	 * Trims each stream with XTRIM MAXLEN ~ to about the given number of entries.
+	 */
+	public void trimMaxlen(long maxlen) {
+		List<RedisFuture<Long>> futures = new ArrayList<>();
+		for (List<String> streams : slots) {
+			streams.forEach(
+					s -> futures.add(ackCommands.xtrim(s, XTrimArgs.Builder.maxlen(maxlen).approximateTrimming())));
+		}
+		for (RedisFuture<Long> future : futures) {
+			await(future, ackConnection.getTimeout());
+		}
+	}
+
+	@Override
+	public void close() {
+		if (connection != null) {
+			connection.close();
+			connection = null;
+			commands = null;
+		}
+		if (ackConnection != null) {
+			ackConnection.close();
+			ackConnection = null;
+			ackCommands = null;
+		}
+		pendingIds.clear();
+		claimIds.clear();
+	}
+
+}
@@ -16,6 +16,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Schema;
@@ -37,6 +38,7 @@ import com.github.jcustenborder.kafka.connect.utils.SinkRecordHelper;
 import com.redis.kafka.connect.sink.RedisSinkConfig.RedisCommand;
 import com.redis.kafka.connect.sink.RedisSinkConfigDef;
 import com.redis.kafka.connect.sink.RedisSinkTask;
+import com.redis.kafka.connect.sink.SinkOffsetStore;
 import com.redis.lettucemod.timeseries.Sample;
 import com.redis.lettucemod.timeseries.TimeRange;
 
@@ -400,6 +402,124 @@ abstract class AbstractSinkIntegrationTests extends AbstractIntegrationTests {
 		}
 	}
 
+	@Test
+	void putStringAsync() {
+		String topic = "stringAsync";
+		int count = 50;
+		Map<String, String> expected = new LinkedHashMap<>(count);
+		List<SinkRecord> records = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String key = String.valueOf(i);
+			String value = "This is value " + i;
+			expected.put(topic + ":" + key, value);
+			records.add(SinkRecordHelper.write(topic, new SchemaAndValue(Schema.STRING_SCHEMA, key),
+					new SchemaAndValue(Schema.STRING_SCHEMA, value)));
+		}
+		put(topic, RedisCommand.SET, records, RedisSinkConfigDef.ASYNC_CONFIG, "true",
+				RedisSinkConfigDef.MAX_IN_FLIGHT_CONFIG, "10");
+		task.flush(Collections.emptyMap());
+		String[] keys = expected.keySet().toArray(new String[0]);
+		List<KeyValue<String, String>> actual = connection.sync().mget(keys);
+		assertEquals(records.size(), actual.size());
+		for (KeyValue<String, String> keyValue : actual) {
+			assertEquals(expected.get(keyValue.getKey()), keyValue.getValue(),
+					String.format("Value for key '%s' does not match.", keyValue.getKey()));
+		}
+	}
+
+	@Test
+	void putLinger() {
+		String topic = "putLinger";
+		List<SinkRecord> records = new ArrayList<>();
+		for (int i = 0; i < 11; i++) {
+			records.add(new SinkRecord(topic, 1, Schema.STRING_SCHEMA, String.valueOf(i), Schema.STRING_SCHEMA,
+					"value" + i, i));
+		}
+		put(topic, RedisCommand.SET, records.subList(0, 3), RedisSinkConfigDef.LINGER_CONFIG, "600000",
+				RedisSinkConfigDef.BATCH_MAX_RECORDS_CONFIG, "5");
+		assertEquals(0L, connection.sync().exists(topic + ":0"));
+		task.put(records.subList(3, 7));
+		assertEquals(7L, connection.sync().exists(IntStream.range(0, 7).mapToObj(i -> topic + ":" + i)
+				.toArray(String[]::new)));
+		task.put(records.subList(7, 11));
+		task.put(Collections.emptyList());
+		assertEquals(0L, connection.sync().exists(topic + ":7"));
+		task.flush(Collections.emptyMap());
+		assertEquals("value10", connection.sync().get(topic + ":10"));
+		assertEquals("10", connection.sync().hget(SinkOffsetStore.key(topic), "1"));
+	}
+
+	@Test
+	void putOffsets() {
+		String topic = "putOffsets";
+		List<SinkRecord> records = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			records.add(new SinkRecord(topic, 1, Schema.STRING_SCHEMA, String.valueOf(i), Schema.STRING_SCHEMA,
+					"value" + i, i));
+		}
+		put(topic, RedisCommand.SET, records);
+		String offsetKey = SinkOffsetStore.key(topic);
+		assertEquals(0L, connection.sync().exists(offsetKey));
+		task.flush(Collections.emptyMap());
+		assertEquals("9", connection.sync().hget(offsetKey, "1"));
+	}
+
+	@Test
+	void putOffsetsAtomic() {
+		String topic = "putOffsetsAtomic";
+		List<SinkRecord> records = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			records.add(new SinkRecord(topic, 1, Schema.STRING_SCHEMA, String.valueOf(i), Schema.STRING_SCHEMA,
+					"value" + i, i));
+		}
+		put(topic, RedisCommand.SET, records, RedisSinkConfigDef.OFFSET_ATOMIC_CONFIG, "true");
+		assertEquals("9", connection.sync().hget(SinkOffsetStore.key(topic), "1"));
+	}
+
+	@Test
+	void putDeadLetter() {
+		String topic = "putDeadLetter";
+		String deadLetterStream = "putDeadLetterErrors";
+		connection.sync().set(topic + ":3", "not a hash");
+		List<SinkRecord> records = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			records.add(new SinkRecord(topic, 1, Schema.STRING_SCHEMA, String.valueOf(i), null,
+					map("field", "value" + i), i));
+		}
+		put(topic, RedisCommand.HSET, records, RedisSinkConfigDef.DLQ_STREAM_CONFIG, deadLetterStream);
+		for (int i = 0; i < 5; i++) {
+			if (i != 3) {
+				assertEquals("value" + i, connection.sync().hget(topic + ":" + i, "field"));
+			}
+		}
+		List<StreamMessage<String, String>> errors = connection.sync().xrange(deadLetterStream, Range.create("-", "+"));
+		assertEquals(1, errors.size());
+		assertEquals("3", errors.get(0).getBody().get(RedisSinkTask.DLQ_FIELD_OFFSET));
+		task.flush(Collections.emptyMap());
+		assertEquals("4", connection.sync().hget(SinkOffsetStore.key(topic), "1"));
+	}
+
+	@Test
+	void putKeyDeadLetter() {
+		String topic = "putKeyDeadLetter";
+		String deadLetterStream = "putKeyDeadLetterErrors";
+		List<SinkRecord> records = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Object key = i == 2 ? (Object) i : topic + i;
+			records.add(new SinkRecord(topic, 1, null, key, Schema.STRING_SCHEMA, "value" + i, i));
+		}
+		put(topic, RedisCommand.SET, records, RedisSinkConfigDef.KEY_CONFIG, "",
+				RedisSinkConfigDef.DLQ_STREAM_CONFIG, deadLetterStream);
+		for (int i = 0; i < 5; i++) {
+			if (i != 2) {
+				assertEquals("value" + i, connection.sync().get(topic + i));
+			}
+		}
+		List<StreamMessage<String, String>> errors = connection.sync().xrange(deadLetterStream, Range.create("-", "+"));
+		assertEquals(1, errors.size());
+		assertEquals("2", errors.get(0).getBody().get(RedisSinkTask.DLQ_FIELD_OFFSET));
+	}
+
 	@Test
 	void setBytes() {
 		String topic = "setBytes";
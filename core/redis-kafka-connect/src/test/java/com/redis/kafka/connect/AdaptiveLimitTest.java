@@ -0,0 +1,56 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.AdaptiveLimit;
+
+class AdaptiveLimitTest {
+
+	private static final long FAST = Duration.ofMillis(1).toNanos();
+	private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+	@Test
+	void slowStart() {
+		AdaptiveLimit limit = new AdaptiveLimit(16, 100, Duration.ofMillis(10));
+		assertEquals(16, limit.getLimit());
+		limit.onSample(System.nanoTime(), FAST, false);
+		assertEquals(32, limit.getLimit());
+		limit.onSample(System.nanoTime(), FAST, false);
+		limit.onSample(System.nanoTime(), FAST, false);
+		assertEquals(100, limit.getLimit());
+	}
+
+	@Test
+	void additiveIncreaseAfterDecrease() {
+		AdaptiveLimit limit = new AdaptiveLimit(16, 1000, Duration.ofMillis(10));
+		limit.onSample(System.nanoTime(), FAST, false);
+		limit.onSample(System.nanoTime(), FAST, false);
+		assertEquals(64, limit.getLimit());
+		limit.onSample(System.nanoTime(), SLOW, false);
+		assertEquals(32, limit.getLimit());
+		limit.onSample(System.nanoTime(), FAST, false);
+		assertEquals(40, limit.getLimit());
+		limit.onSample(System.nanoTime(), FAST, true);
+		assertEquals(20, limit.getLimit());
+		limit.onSample(System.nanoTime(), SLOW, false);
+		assertEquals(16, limit.getLimit());
+	}
+
+	@Test
+	void ignoreSamplesSentBeforeDecrease() {
+		AdaptiveLimit limit = new AdaptiveLimit(16, 1000, Duration.ofMillis(10));
+		long start = System.nanoTime();
+		limit.onSample(start, FAST, false);
+		limit.onSample(start, FAST, false);
+		limit.onSample(start, FAST, false);
+		assertEquals(128, limit.getLimit());
+		limit.onSample(start, SLOW, false);
+		limit.onSample(start, SLOW, false);
+		assertEquals(64, limit.getLimit());
+	}
+
+}
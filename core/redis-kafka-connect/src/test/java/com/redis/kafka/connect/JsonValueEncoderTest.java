@@ -0,0 +1,81 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.JsonValueEncoder;
+
+class JsonValueEncoderTest {
+
+	private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct().field("city", Schema.STRING_SCHEMA)
+			.field("zip", Schema.OPTIONAL_INT32_SCHEMA).build();
+	private static final Schema SCHEMA = SchemaBuilder.struct().field("int8", Schema.INT8_SCHEMA)
+			.field("int64", Schema.INT64_SCHEMA).field("float32", Schema.FLOAT32_SCHEMA)
+			.field("float64", Schema.FLOAT64_SCHEMA).field("boolean", Schema.BOOLEAN_SCHEMA)
+			.field("string", Schema.STRING_SCHEMA).field("optional", Schema.OPTIONAL_STRING_SCHEMA)
+			.field("bytes", Schema.BYTES_SCHEMA).field("decimal", Decimal.schema(2))
+			.field("timestamp", Timestamp.SCHEMA)
+			.field("array", SchemaBuilder.array(Schema.INT32_SCHEMA).build())
+			.field("map", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.FLOAT64_SCHEMA).build())
+			.field("intMap", SchemaBuilder.map(Schema.INT32_SCHEMA, Schema.STRING_SCHEMA).build())
+			.field("address", ADDRESS_SCHEMA).build();
+
+	private JsonConverter converter;
+	private JsonValueEncoder encoder;
+
+	@BeforeEach
+	void setup() {
+		converter = new JsonConverter();
+		converter.configure(Collections.singletonMap("schemas.enable", "false"), false);
+		encoder = new JsonValueEncoder();
+	}
+
+	private void assertConverted(Schema schema, Object value) {
+		assertEquals(new String(converter.fromConnectData("topic", schema, value), StandardCharsets.UTF_8),
+				new String(encoder.encode(schema, value), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void struct() {
+		Map<String, Double> map = new LinkedHashMap<>();
+		map.put("a", 1.5);
+		map.put("b\"", Double.NaN);
+		Struct struct = new Struct(SCHEMA).put("int8", (byte) -7).put("int64", Long.MIN_VALUE)
+				.put("float32", 1.1f).put("float64", 1e21).put("boolean", false)
+				.put("string", "quote\" backslash\\ tab\t ctrl\u0001 é € 😀").put("bytes", new byte[] { 1, 2, 3 })
+				.put("decimal", new BigDecimal("12.34")).put("timestamp", new java.util.Date(1234567890L))
+				.put("array", Arrays.asList(1, 2, 3)).put("map", map)
+				.put("intMap", Collections.singletonMap(1, "one"))
+				.put("address", new Struct(ADDRESS_SCHEMA).put("city", "Paris"));
+		assertConverted(SCHEMA, struct);
+		assertConverted(SCHEMA, struct);
+	}
+
+	@Test
+	void schemaless() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("string", "value");
+		map.put("long", 123L);
+		map.put("double", -0.5);
+		map.put("null", null);
+		map.put("list", Arrays.asList("a", true, 1));
+		map.put("nested", Collections.singletonMap(1, "one"));
+		assertConverted(null, map);
+	}
+
+}
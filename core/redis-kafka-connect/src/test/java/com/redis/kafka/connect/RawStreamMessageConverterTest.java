@@ -0,0 +1,113 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.source.RawStreamMessageConverter;
+import com.redis.kafka.connect.source.RedisStreamSourceConfig;
+import com.redis.kafka.connect.source.RedisStreamSourceConfigDef;
+
+import io.lettuce.core.StreamMessage;
+
+class RawStreamMessageConverterTest {
+
+	private static RawStreamMessageConverter converter(String format, String... props) {
+		Map<String, String> config = new HashMap<>();
+		config.put(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, "stream");
+		config.put(RedisStreamSourceConfigDef.STREAM_FORMAT_CONFIG, format);
+		for (int index = 0; index < props.length; index += 2) {
+			config.put(props[index], props[index + 1]);
+		}
+		return new RawStreamMessageConverter(Clock.systemUTC(), new RedisStreamSourceConfig(config));
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int index = 0; index < values.length; index++) {
+			bytes[index] = (byte) values[index];
+		}
+		return bytes;
+	}
+
+	@Test
+	void json() {
+		Map<String, byte[]> body = new LinkedHashMap<>();
+		body.put("user", bytes("alice"));
+		body.put("quote", bytes("say \"hi\"\\\n"));
+		body.put("unicode", bytes("caf\u00e9 \u0001"));
+		SourceRecord record = converter(RedisStreamSourceConfig.STREAM_FORMAT_JSON,
+				RedisStreamSourceConfigDef.STREAM_KEY_FIELD_CONFIG, "user")
+				.apply(new StreamMessage<>("stream", "1-0", body));
+		assertEquals(Schema.BYTES_SCHEMA, record.valueSchema());
+		assertEquals("alice", record.key());
+		assertEquals("{\"user\":\"alice\",\"quote\":\"say \\\"hi\\\"\\\\\\n\",\"unicode\":\"caf\u00e9 \\u0001\"}",
+				new String((byte[]) record.value(), StandardCharsets.UTF_8));
+		assertEquals("{}", new String((byte[]) converter(RedisStreamSourceConfig.STREAM_FORMAT_JSON)
+				.apply(new StreamMessage<>("stream", "2-0", new LinkedHashMap<>())).value(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void jsonInvalidUtf8() {
+		Map<String, byte[]> body = new LinkedHashMap<>();
+		// Lone byte, truncated sequence, surrogate, then a 3-byte and a 4-byte sequence
+		body.put("value", bytes('a', 0xff, 'b', 0xe2, 0x82, 'c', 0xed, 0xa0, 0x80, 0xe2, 0x82, 0xac, 0xf0, 0x9f, 0x98,
+				0x80));
+		SourceRecord record = converter(RedisStreamSourceConfig.STREAM_FORMAT_JSON)
+				.apply(new StreamMessage<>("stream", "1-0", body));
+		assertEquals("{\"value\":\"a\\ufffdb\\ufffd\\ufffdc\\ufffd\\ufffd\\ufffd\u20ac\ud83d\ude00\"}",
+				new String((byte[]) record.value(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void msgpack() {
+		Map<String, byte[]> body = new LinkedHashMap<>();
+		body.put("a", bytes("bc"));
+		RawStreamMessageConverter converter = converter(RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK);
+		assertArrayEquals(bytes(0x81, 0xa1, 'a', 0xa2, 'b', 'c'),
+				(byte[]) converter.apply(new StreamMessage<>("stream", "1-0", body)).value());
+		// str 8 value, map 16 header
+		byte[] value = new byte[40];
+		Arrays.fill(value, (byte) 'x');
+		Map<String, byte[]> large = new LinkedHashMap<>();
+		for (int index = 0; index < 16; index++) {
+			large.put(String.valueOf((char) ('a' + index)), value);
+		}
+		byte[] msgpack = (byte[]) converter.apply(new StreamMessage<>("stream", "2-0", large)).value();
+		assertEquals(3 + 16 * (2 + 2 + 40), msgpack.length);
+		assertArrayEquals(bytes(0xde, 0x00, 0x10, 0xa1, 'a', 0xd9, 40), Arrays.copyOf(msgpack, 7));
+	}
+
+	@Test
+	void msgpackInvalidUtf8() {
+		Map<String, byte[]> body = new LinkedHashMap<>();
+		body.put("a", bytes('x', 0xff));
+		body.put("b", bytes(0xe2, 0x82, 0xac));
+		assertArrayEquals(bytes(0x82, 0xa1, 'a', 0xc4, 2, 'x', 0xff, 0xa1, 'b', 0xa3, 0xe2, 0x82, 0xac),
+				(byte[]) converter(RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK)
+						.apply(new StreamMessage<>("stream", "1-0", body)).value());
+		// bin 16 header
+		byte[] value = new byte[300];
+		value[0] = (byte) 0xc0;
+		byte[] msgpack = (byte[]) converter(RedisStreamSourceConfig.STREAM_FORMAT_MSGPACK)
+				.apply(new StreamMessage<>("stream", "2-0", Collections.singletonMap("a", value))).value();
+		assertEquals(1 + 2 + 3 + 300, msgpack.length);
+		assertArrayEquals(bytes(0x81, 0xa1, 'a', 0xc5, 0x01, 0x2c, 0xc0), Arrays.copyOf(msgpack, 7));
+	}
+
+}
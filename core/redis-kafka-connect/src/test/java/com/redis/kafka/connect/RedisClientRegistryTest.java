@@ -0,0 +1,56 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.common.RedisClientRegistry;
+import com.redis.kafka.connect.sink.RedisSinkConfig;
+import com.redis.kafka.connect.sink.RedisSinkConfigDef;
+
+import io.lettuce.core.AbstractRedisClient;
+
+class RedisClientRegistryTest {
+
+	private static RedisSinkConfig config(String uri, String... props) {
+		Map<String, String> config = new HashMap<>();
+		config.put(RedisSinkConfigDef.URI_CONFIG, uri);
+		for (int index = 0; index < props.length; index += 2) {
+			config.put(props[index], props[index + 1]);
+		}
+		return new RedisSinkConfig(config);
+	}
+
+	@Test
+	void shareClients() {
+		String uri = "redis://localhost:16379";
+		AbstractRedisClient client = RedisClientRegistry.acquire(config(uri));
+		AbstractRedisClient other = RedisClientRegistry
+				.acquire(config(uri, RedisSinkConfigDef.COMMAND_CONFIG, RedisSinkConfig.RedisCommand.SET.name()));
+		AbstractRedisClient secured = RedisClientRegistry
+				.acquire(config(uri, RedisSinkConfigDef.PASSWORD_CONFIG, "secret"));
+		try {
+			assertSame(client, other);
+			assertNotSame(client, secured);
+			assertEquals(2, RedisClientRegistry.references(client));
+			RedisClientRegistry.release(other);
+			assertEquals(1, RedisClientRegistry.references(client));
+		} finally {
+			RedisClientRegistry.release(client);
+			RedisClientRegistry.release(secured);
+		}
+		assertEquals(0, RedisClientRegistry.references(client));
+		AbstractRedisClient recreated = RedisClientRegistry.acquire(config(uri));
+		try {
+			assertNotSame(client, recreated);
+		} finally {
+			RedisClientRegistry.release(recreated);
+		}
+	}
+
+}
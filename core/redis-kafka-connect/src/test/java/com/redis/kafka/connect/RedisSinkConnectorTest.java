@@ -3,10 +3,12 @@ package com.redis.kafka.connect;
 import java.util.HashMap;
 
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigValue;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import com.redis.kafka.connect.common.ManifestVersionProvider;
+import com.redis.kafka.connect.sink.RedisSinkConfigDef;
 import com.redis.kafka.connect.sink.RedisSinkTask;
 
 class RedisSinkConnectorTest {
@@ -17,6 +19,14 @@ class RedisSinkConnectorTest {
 		Assertions.assertNotNull(config);
 	}
 
+	@Test
+	void testInvalidLanes() {
+		HashMap<String, String> props = new HashMap<>();
+		props.put(RedisSinkConfigDef.LANES_CONFIG, "abc");
+		ConfigValue lanes = new RedisSinkConnector().config().validateAll(props).get(RedisSinkConfigDef.LANES_CONFIG);
+		Assertions.assertFalse(lanes.errorMessages().isEmpty());
+	}
+
 	@Test
 	void testTask() {
 		Assertions.assertEquals(RedisSinkTask.class, new RedisSinkConnector().taskClass());
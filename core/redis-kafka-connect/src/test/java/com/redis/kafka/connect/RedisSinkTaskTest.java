@@ -0,0 +1,333 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.google.common.collect.ImmutableSet;
+import com.redis.kafka.connect.sink.RedisSinkConfig.RedisCommand;
+import com.redis.kafka.connect.sink.RedisSinkConfig.TimestampSource;
+import com.redis.kafka.connect.sink.RedisSinkConfigDef;
+import com.redis.kafka.connect.sink.RedisSinkTask;
+import com.redis.kafka.connect.sink.SinkOffsetStore;
+
+import com.redis.lettucemod.RedisModulesClient;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.api.sync.RedisModulesCommands;
+import com.redis.lettucemod.timeseries.Sample;
+import com.redis.lettucemod.timeseries.TimeRange;
+
+import io.lettuce.core.Range;
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Sink task tests against {@link RespServer}, for behavior that depends on the
+ * commands sent rather than on the resulting data.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class RedisSinkTaskTest {
+
+	private RespServer server;
+	private RedisModulesClient client;
+	private StatefulRedisModulesConnection<String, String> connection;
+	private RedisSinkTask task;
+
+	@BeforeAll
+	void setupServer() throws Exception {
+		server = new RespServer();
+		client = RedisModulesClient.create(server.getRedisURI());
+		connection = client.connect();
+	}
+
+	@AfterAll
+	void teardownServer() throws Exception {
+		connection.close();
+		client.shutdown();
+		server.close();
+	}
+
+	@BeforeEach
+	void reset() {
+		server.reset();
+		task = new RedisSinkTask();
+	}
+
+	@AfterEach
+	void stopTask() {
+		task.stop();
+	}
+
+	private RedisModulesCommands<String, String> redis() {
+		return connection.sync();
+	}
+
+	private void start(String topic, String... props) {
+		SinkTaskContext context = mock(SinkTaskContext.class);
+		when(context.assignment()).thenReturn(ImmutableSet.of(new TopicPartition(topic, 0)));
+		task.initialize(context);
+		Map<String, String> config = new HashMap<>();
+		config.put(RedisSinkConfigDef.URI_CONFIG, server.getRedisURI());
+		for (int index = 0; index < props.length; index += 2) {
+			config.put(props[index], props[index + 1]);
+		}
+		task.start(config);
+	}
+
+	private static SinkRecord record(String topic, Object key, Schema valueSchema, Object value, long offset) {
+		return new SinkRecord(topic, 0, Schema.STRING_SCHEMA, key, valueSchema, value, offset);
+	}
+
+	@Test
+	void coalesceSet() {
+		String topic = "coalesceSet";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SADD.name(), RedisSinkConfigDef.COALESCE_CONFIG,
+				"4");
+		List<SinkRecord> records = new ArrayList<>();
+		for (int index = 0; index < 10; index++) {
+			records.add(record(topic, "member" + index, Schema.STRING_SCHEMA, "value", index));
+		}
+		records.add(record(topic, "member0", null, null, 10));
+		records.add(record(topic, "member1", null, null, 11));
+		records.add(record(topic, "member0", Schema.STRING_SCHEMA, "value", 12));
+		task.put(records);
+		assertEquals(4, server.commandCount("SADD"));
+		assertEquals(1, server.commandCount("SREM"));
+		assertEquals(9, redis().scard(topic));
+		assertEquals(false, redis().sismember(topic, "member1"));
+	}
+
+	@Test
+	void coalesceList() {
+		String topic = "coalesceList";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.RPUSH.name());
+		task.put(Arrays.asList(record(topic, "a", Schema.STRING_SCHEMA, "value", 0),
+				record(topic, "b", Schema.STRING_SCHEMA, "value", 1), record(topic, "a", null, null, 2),
+				record(topic, "c", Schema.STRING_SCHEMA, "value", 3),
+				record(topic, "a", Schema.STRING_SCHEMA, "value", 4)));
+		assertEquals(2, server.commandCount("RPUSH"));
+		assertEquals(1, server.commandCount("LREM"));
+		assertEquals(Arrays.asList("b", "c", "a"), redis().lrange(topic, 0, -1));
+	}
+
+	@Test
+	void coalesceSortedSet() {
+		String topic = "coalesceSortedSet";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.ZADD.name());
+		task.put(Arrays.asList(record(topic, "a", Schema.FLOAT64_SCHEMA, 1.0, 0),
+				record(topic, "b", Schema.FLOAT64_SCHEMA, 2.0, 1), record(topic, "a", Schema.FLOAT64_SCHEMA, 3.0, 2)));
+		assertEquals(1, server.commandCount("ZADD"));
+		assertEquals(Arrays.asList("b", "a"), redis().zrange(topic, 0, -1));
+		assertEquals(3.0, redis().zscore(topic, "a"));
+	}
+
+	@Test
+	void mset() {
+		String topic = "mset";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SET.name(), RedisSinkConfigDef.MSET_CONFIG,
+				"true");
+		task.put(Arrays.asList(record(topic, "key1", Schema.STRING_SCHEMA, "value1", 0),
+				record(topic, "key2", Schema.STRING_SCHEMA, "value2", 1), record(topic, "key1", null, null, 2),
+				record(topic, "key3", Schema.STRING_SCHEMA, "value3", 3),
+				record(topic, "key2", Schema.STRING_SCHEMA, "value4", 4)));
+		assertEquals(0, server.commandCount("SET"));
+		assertEquals(2, server.commandCount("MSET"));
+		assertEquals(1, server.commandCount("DEL"));
+		assertEquals(null, redis().get(topic + ":key1"));
+		assertEquals("value4", redis().get(topic + ":key2"));
+		assertEquals("value3", redis().get(topic + ":key3"));
+	}
+
+	@Test
+	void msetConversionError() {
+		String topic = "msetConversionError";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SET.name(), RedisSinkConfigDef.MSET_CONFIG,
+				"true");
+		task.put(Arrays.asList(record(topic, "key1", Schema.STRING_SCHEMA, "value1", 0),
+				record(topic, "key2", Schema.INT32_SCHEMA, 123, 1),
+				record(topic, "key3", Schema.STRING_SCHEMA, "value3", 2)));
+		assertEquals(0, server.commandCount("MSET"));
+		assertEquals(2, server.commandCount("SET"));
+		assertEquals("value1", redis().get(topic + ":key1"));
+		assertEquals(0, redis().exists(topic + ":key2"));
+		assertEquals("value3", redis().get(topic + ":key3"));
+	}
+
+	@Test
+	void jsonMset() {
+		String topic = "jsonMset";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.JSONSET.name(), RedisSinkConfigDef.MSET_CONFIG,
+				"true", RedisSinkConfigDef.COALESCE_CONFIG, "2");
+		List<SinkRecord> records = new ArrayList<>();
+		for (int index = 0; index < 5; index++) {
+			records.add(record(topic, "key" + index, Schema.STRING_SCHEMA, "{\"id\":" + index + "}", index));
+		}
+		task.put(records);
+		assertEquals(3, server.commandCount("JSON.MSET"));
+		assertEquals("{\"id\":4}", redis().jsonGet(topic + ":key4"));
+	}
+
+	@Test
+	void tsMadd() {
+		String topic = "tsMadd";
+		Schema schema = SchemaBuilder.struct().field("host", Schema.STRING_SCHEMA).field("value", Schema.FLOAT64_SCHEMA)
+				.build();
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.TSADD.name(), RedisSinkConfigDef.MSET_CONFIG,
+				"true", RedisSinkConfigDef.TS_KEY_CONFIG, "${topic}:${value.host}", RedisSinkConfigDef.TS_TIMESTAMP_CONFIG,
+				TimestampSource.RECORD.name(), RedisSinkConfigDef.TS_VALUE_FIELD_CONFIG, "value");
+		List<SinkRecord> records = new ArrayList<>();
+		for (int index = 0; index < 6; index++) {
+			Struct value = new Struct(schema).put("host", "host" + index % 2).put("value", (double) index);
+			records.add(new SinkRecord(topic, 0, null, null, schema, value, index, 1000L + index,
+					TimestampType.CREATE_TIME));
+		}
+		task.put(records);
+		assertEquals(0, server.commandCount("TS.ADD"));
+		assertEquals(1, server.commandCount("TS.MADD"));
+		assertEquals(2, server.commandCount("TS.CREATE"));
+		List<Sample> samples = redis().tsRange(topic + ":host1", TimeRange.unbounded());
+		assertEquals(3, samples.size());
+		for (int index = 0; index < samples.size(); index++) {
+			assertEquals(1001 + index * 2, samples.get(index).getTimestamp());
+			assertEquals(1 + index * 2, samples.get(index).getValue());
+		}
+		task.put(records);
+		assertEquals(2, server.commandCount("TS.CREATE"));
+	}
+
+	@Test
+	void tsMaddElementError() {
+		String topic = "tsMaddElementError";
+		String deadLetterStream = "tsMaddElementErrorErrors";
+		start(topic, tsMaddProps(RedisSinkConfigDef.DLQ_STREAM_CONFIG, deadLetterStream));
+		redis().set(topic + ":host1", "not a series");
+		task.put(tsMaddRecords(topic, 6));
+		assertEquals(1, server.commandCount("TS.MADD"));
+		assertEquals(3, redis().tsRange(topic + ":host0", TimeRange.unbounded()).size());
+		List<StreamMessage<String, String>> errors = redis().xrange(deadLetterStream, Range.create("-", "+"));
+		assertEquals(Arrays.asList("1", "3", "5"), errors.stream()
+				.map(m -> m.getBody().get(RedisSinkTask.DLQ_FIELD_OFFSET)).collect(Collectors.toList()));
+		assertTrue(errors.get(0).getBody().get(RedisSinkTask.DLQ_FIELD_ERROR).contains("WRONGTYPE"));
+	}
+
+	@Test
+	void tsMaddCreateError() {
+		String topic = "tsMaddCreateError";
+		String deadLetterStream = "tsMaddCreateErrorErrors";
+		start(topic, tsMaddProps(RedisSinkConfigDef.DLQ_STREAM_CONFIG, deadLetterStream));
+		server.fail("TS.CREATE", "ERR injected", 1);
+		task.put(tsMaddRecords(topic, 6));
+		List<StreamMessage<String, String>> errors = redis().xrange(deadLetterStream, Range.create("-", "+"));
+		assertEquals(3, errors.size());
+		for (StreamMessage<String, String> error : errors) {
+			assertTrue(error.getBody().get(RedisSinkTask.DLQ_FIELD_ERROR).contains("ERR injected"));
+		}
+		long creates = server.commandCount("TS.CREATE");
+		task.put(tsMaddRecords(topic, 6));
+		assertEquals(creates + 1, server.commandCount("TS.CREATE"));
+		assertEquals(3, redis().xlen(deadLetterStream));
+	}
+
+	private String[] tsMaddProps(String... props) {
+		List<String> all = new ArrayList<>(Arrays.asList(RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.TSADD.name(),
+				RedisSinkConfigDef.MSET_CONFIG, "true", RedisSinkConfigDef.TS_KEY_CONFIG, "${topic}:${value.host}",
+				RedisSinkConfigDef.TS_TIMESTAMP_CONFIG, TimestampSource.RECORD.name(),
+				RedisSinkConfigDef.TS_VALUE_FIELD_CONFIG, "value"));
+		all.addAll(Arrays.asList(props));
+		return all.toArray(new String[0]);
+	}
+
+	private List<SinkRecord> tsMaddRecords(String topic, int count) {
+		Schema schema = SchemaBuilder.struct().field("host", Schema.STRING_SCHEMA).field("value", Schema.FLOAT64_SCHEMA)
+				.build();
+		List<SinkRecord> records = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			Struct value = new Struct(schema).put("host", "host" + index % 2).put("value", (double) index);
+			records.add(new SinkRecord(topic, 0, null, null, schema, value, index, 1000L + index,
+					TimestampType.CREATE_TIME));
+		}
+		return records;
+	}
+
+	@Test
+	void flushOffsets() {
+		String topic = "flushOffsets";
+		String other = "flushOffsetsOther";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SET.name());
+		task.put(Arrays.asList(record(topic, "key1", Schema.STRING_SCHEMA, "value1", 3),
+				record(other, "key2", Schema.STRING_SCHEMA, "value2", 7)));
+		long hsets = server.commandCount("HSET");
+		task.flush(Collections.emptyMap());
+		assertEquals(hsets + 2, server.commandCount("HSET"));
+		assertEquals("3", redis().hget(SinkOffsetStore.key(topic), "0"));
+		assertEquals("7", redis().hget(SinkOffsetStore.key(other), "0"));
+	}
+
+	@Test
+	void lanes() {
+		String topic = "lanes";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SET.name(), RedisSinkConfigDef.LANES_CONFIG,
+				"4");
+		List<SinkRecord> records = new ArrayList<>();
+		for (int index = 0; index < 100; index++) {
+			records.add(record(topic, "key" + index % 10, Schema.STRING_SCHEMA, "value" + index, index));
+		}
+		task.put(records);
+		task.flush(Collections.emptyMap());
+		assertEquals(100, server.commandCount("SET"));
+		for (int index = 0; index < 10; index++) {
+			assertEquals("value" + (90 + index), redis().get(topic + ":key" + index));
+		}
+	}
+
+	@Test
+	void coalesceDisabled() {
+		String topic = "coalesceDisabled";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SADD.name(), RedisSinkConfigDef.COALESCE_CONFIG,
+				"1");
+		task.put(Collections.nCopies(3, record(topic, "member", Schema.STRING_SCHEMA, "value", 0)));
+		assertEquals(3, server.commandCount("SADD"));
+	}
+
+	@Test
+	void compactFailures() {
+		String topic = "compactFailures";
+		String deadLetterStream = "compactFailuresErrors";
+		start(topic, RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.HSET.name(), RedisSinkConfigDef.COMPACT_CONFIG,
+				"true", RedisSinkConfigDef.DLQ_STREAM_CONFIG, deadLetterStream);
+		redis().set(topic + ":string", "not a hash");
+		task.put(Arrays.asList(record(topic, "string", null, Collections.singletonMap("f1", "1"), 0),
+				record(topic, "hash", Schema.INT32_SCHEMA, 123, 1),
+				record(topic, "string", null, Collections.singletonMap("f2", "2"), 2),
+				record(topic, "hash", null, Collections.singletonMap("f1", "1"), 3)));
+		assertEquals("1", redis().hget(topic + ":hash", "f1"));
+		List<StreamMessage<String, String>> errors = redis().xrange(deadLetterStream, Range.create("-", "+"));
+		assertEquals(Arrays.asList("1", "0", "2"), errors.stream()
+				.map(m -> m.getBody().get(RedisSinkTask.DLQ_FIELD_OFFSET)).collect(Collectors.toList()));
+		assertEquals("{f2=2}", errors.get(2).getBody().get(RedisSinkTask.DLQ_FIELD_VALUE));
+	}
+
+}
@@ -1,11 +1,19 @@
 package com.redis.kafka.connect;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.kafka.connect.connector.ConnectorContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -17,8 +25,10 @@ import com.redis.kafka.connect.source.RedisStreamSourceTask;
 import com.redis.lettucemod.cluster.RedisModulesClusterClient;
 
 import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCredentials;
 import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
 
 class RedisStreamSourceConnectorTest {
 
@@ -74,6 +84,89 @@ class RedisStreamSourceConnectorTest {
 		assertEquals(expectedPartitionedConnectorConfigB, taskConfigs.get(1));
 	}
 
+	@Test
+	void assignStreams() {
+		List<String> streams = Arrays.asList("s1", "s2", "s3", "s4", "s5");
+		assertEquals(Arrays.asList(Arrays.asList("s1", "s3", "s5"), Arrays.asList("s2", "s4")),
+				RedisStreamSourceConnector.assign(streams, 2));
+		assertEquals(Arrays.asList(Arrays.asList("s1"), Arrays.asList("s2"), Arrays.asList("s1")),
+				RedisStreamSourceConnector.assign(Arrays.asList("s1", "s2"), 3));
+	}
+
+	@Test
+	void taskConfigsSpreadStreams() {
+		RedisStreamSourceConnector connector = new RedisStreamSourceConnector();
+		Map<String, String> props = new HashMap<>();
+		props.put(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, "s1,s2,s3");
+		connector.start(props);
+		List<Map<String, String>> taskConfigs = connector.taskConfigs(2);
+		assertEquals(2, taskConfigs.size());
+		assertEquals("s1,s3", taskConfigs.get(0).get(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG));
+		assertEquals("s2", taskConfigs.get(1).get(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG));
+		assertNull(taskConfigs.get(0).get(RedisStreamSourceTask.CONSUMER_ID));
+		assertEquals("0", taskConfigs.get(1).get(RedisStreamSourceTask.CONSUMER_ID));
+	}
+
+	@Test
+	void consumerIds() {
+		assertEquals(Arrays.asList(0, 0, 0), Arrays.asList(RedisStreamSourceConnector.consumer(0, 5, 3),
+				RedisStreamSourceConnector.consumer(1, 5, 3), RedisStreamSourceConnector.consumer(2, 3, 3)));
+		assertEquals(Arrays.asList(0, 0, 1, 1, 2), Arrays.asList(RedisStreamSourceConnector.consumer(0, 2, 5),
+				RedisStreamSourceConnector.consumer(1, 2, 5), RedisStreamSourceConnector.consumer(2, 2, 5),
+				RedisStreamSourceConnector.consumer(3, 2, 5), RedisStreamSourceConnector.consumer(4, 2, 5)));
+	}
+
+	@Test
+	void taskConfigsStreamPattern() throws Exception {
+		try (RespServer server = new RespServer()) {
+			RedisClient client = RedisClient.create(server.getRedisURI());
+			try (StatefulRedisConnection<String, String> connection = client.connect()) {
+				connection.sync().xadd("tenant:2", Collections.singletonMap("field", "value"));
+				connection.sync().xadd("tenant:1", Collections.singletonMap("field", "value"));
+				connection.sync().set("tenant:3", "value");
+			} finally {
+				client.shutdown();
+			}
+			RedisStreamSourceConnector connector = new RedisStreamSourceConnector();
+			Map<String, String> props = new HashMap<>();
+			props.put(RedisStreamSourceConfigDef.URI_CONFIG, server.getRedisURI());
+			props.put(RedisStreamSourceConfigDef.STREAM_PATTERN_CONFIG, "tenant:*");
+			connector.start(props);
+			List<Map<String, String>> taskConfigs = connector.taskConfigs(1);
+			assertEquals(1, taskConfigs.size());
+			assertEquals("tenant:1,tenant:2", taskConfigs.get(0).get(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG));
+		}
+	}
+
+	@Test
+	void taskConfigsStreamPatternRediscovery() throws Exception {
+		try (RespServer server = new RespServer()) {
+			RedisStreamSourceConnector connector = new RedisStreamSourceConnector();
+			ConnectorContext context = mock(ConnectorContext.class);
+			connector.initialize(context);
+			Map<String, String> props = new HashMap<>();
+			props.put(RedisStreamSourceConfigDef.URI_CONFIG, server.getRedisURI());
+			props.put(RedisStreamSourceConfigDef.STREAM_PATTERN_CONFIG, "tenant:*");
+			props.put(RedisStreamSourceConfigDef.STREAM_PATTERN_INTERVAL_CONFIG, "10");
+			connector.start(props);
+			try {
+				assertTrue(connector.taskConfigs(2).isEmpty());
+				RedisClient client = RedisClient.create(server.getRedisURI());
+				try (StatefulRedisConnection<String, String> connection = client.connect()) {
+					connection.sync().xadd("tenant:1", Collections.singletonMap("field", "value"));
+				} finally {
+					client.shutdown();
+				}
+				verify(context, timeout(5000)).requestTaskReconfiguration();
+				List<Map<String, String>> taskConfigs = connector.taskConfigs(2);
+				assertEquals(2, taskConfigs.size());
+				assertEquals("tenant:1", taskConfigs.get(1).get(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG));
+			} finally {
+				connector.stop();
+			}
+		}
+	}
+
 	@Test
 	void testRedisStreamConfig() {
 		final Map<String, String> props = new HashMap<>();
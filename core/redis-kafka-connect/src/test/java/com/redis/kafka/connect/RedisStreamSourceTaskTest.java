@@ -0,0 +1,364 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.source.SourceTaskContext;
+import org.apache.kafka.connect.storage.OffsetStorageReader;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import com.redis.kafka.connect.source.RedisStreamSourceConfig;
+import com.redis.kafka.connect.source.RedisStreamSourceConfigDef;
+import com.redis.kafka.connect.source.RedisStreamSourceTask;
+
+import io.lettuce.core.Consumer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.XReadArgs.StreamOffset;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+
+/**
+ * Stream source task tests against {@link RespServer}, for behavior that
+ * depends on the commands sent.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+class RedisStreamSourceTaskTest {
+
+	private RespServer server;
+	private RedisClient client;
+	private StatefulRedisConnection<String, String> connection;
+	private RedisStreamSourceTask task;
+
+	@BeforeAll
+	void setupServer() throws Exception {
+		server = new RespServer();
+		client = RedisClient.create(server.getRedisURI());
+		connection = client.connect();
+	}
+
+	@AfterAll
+	void teardownServer() throws Exception {
+		connection.close();
+		client.shutdown();
+		server.close();
+	}
+
+	@BeforeEach
+	void reset() {
+		server.reset();
+		task = new RedisStreamSourceTask();
+	}
+
+	@AfterEach
+	void stopTask() {
+		task.stop();
+	}
+
+	private RedisCommands<String, String> redis() {
+		return connection.sync();
+	}
+
+	private void start(String... props) {
+		Map<String, String> config = new HashMap<>();
+		config.put(RedisStreamSourceConfigDef.URI_CONFIG, server.getRedisURI());
+		for (int index = 0; index < props.length; index += 2) {
+			config.put(props[index], props[index + 1]);
+		}
+		task.start(config);
+	}
+
+	private static List<String> streams(List<SourceRecord> records) {
+		return records.stream().map(SourceRecord::topic).collect(Collectors.toList());
+	}
+
+	@Test
+	void multipleStreams() throws InterruptedException {
+		List<String> streams = Arrays.asList("orders:1", "orders:2", "orders:3");
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, String.join(",", streams));
+		for (String stream : streams) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		redis().xadd("orders:1", Collections.singletonMap("field", "value"));
+		long reads = server.commandCount("XREADGROUP");
+		List<SourceRecord> records = task.poll();
+		assertEquals(Arrays.asList("orders:1", "orders:1", "orders:2", "orders:3"), streams(records));
+		// One pending read for all streams, then one read of new entries
+		assertEquals(reads + 2, server.commandCount("XREADGROUP"));
+	}
+
+	@Test
+	void multipleStreamsRecover() throws InterruptedException {
+		List<String> streams = Arrays.asList("recover:1", "recover:2");
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, String.join(",", streams));
+		for (String stream : streams) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		List<SourceRecord> records = new ArrayList<>(task.poll());
+		assertEquals(2, records.size());
+		task.commitRecord(records.get(0), null);
+		task.commit();
+		task.stop();
+		task = new RedisStreamSourceTask();
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, String.join(",", streams));
+		assertEquals(Collections.singletonList(records.get(1).topic()), streams(task.poll()));
+		assertEquals(Collections.emptyList(), task.poll());
+	}
+
+	@Test
+	void reassignedStreamPending() throws InterruptedException {
+		String stream = "reassigned";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceTask.TASK_ID, "1",
+				RedisStreamSourceTask.CONSUMER_ID, "0");
+		redis().xadd(stream, Collections.singletonMap("field", "value"));
+		assertEquals(1, task.poll().size());
+		task.stop();
+		// The stream moves to another task, which reads it as the same consumer
+		task = new RedisStreamSourceTask();
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceTask.TASK_ID, "0");
+		assertEquals(Collections.singletonList(stream), streams(task.poll()));
+		assertEquals(Collections.singletonMap("consumer-0", 1L), redis()
+				.xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getConsumerMessageCount());
+	}
+
+	@Test
+	void ackBatch() throws Exception {
+		String stream = "acks";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceConfigDef.STREAM_ACK_BATCH_CONFIG,
+				"2", "name", "acks-connector");
+		for (int index = 0; index < 3; index++) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		List<SourceRecord> records = task.poll();
+		assertEquals(3, records.size());
+		for (SourceRecord record : records) {
+			task.commitRecord(record, null);
+		}
+		ObjectName name = new ObjectName(RedisStreamSourceTask.MBEAN_DOMAIN
+				+ ":type=stream-source-task,connector=" + ObjectName.quote("acks-connector") + ",task=0");
+		MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(3L, mbeans.getAttribute(name, "Depth"));
+		long acks = server.commandCount("XACK");
+		// Enough entries are waiting: they are acknowledged before reading, 2 IDs per XACK
+		assertEquals(Collections.emptyList(), task.poll());
+		assertEquals(acks + 2, server.commandCount("XACK"));
+		assertEquals(0L, mbeans.getAttribute(name, "Depth"));
+		assertEquals(3L, mbeans.getAttribute(name, "Acknowledged"));
+		assertEquals(0, redis().xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getCount());
+		task.commit();
+		assertEquals(acks + 2, server.commandCount("XACK"));
+		task.stop();
+		assertFalse(mbeans.isRegistered(name));
+	}
+
+	@Test
+	void claimIdlePending() throws InterruptedException {
+		String stream = "claims";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream,
+				RedisStreamSourceConfigDef.STREAM_CLAIM_IDLE_CONFIG, "50");
+		List<String> ids = new ArrayList<>();
+		for (int index = 0; index < 2; index++) {
+			ids.add(redis().xadd(stream, Collections.singletonMap("field", "value")));
+		}
+		// Entries delivered to a consumer that went away
+		Consumer<String> dead = Consumer.from(RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT, "dead");
+		assertEquals(2, redis().xreadgroup(dead, StreamOffset.lastConsumed(stream)).size());
+		Thread.sleep(100);
+		List<SourceRecord> records = task.poll();
+		assertEquals(ids, records.stream().map(r -> r.sourceOffset().get(RedisStreamSourceTask.OFFSET_FIELD))
+				.collect(Collectors.toList()));
+		assertEquals(Collections.singletonMap("consumer-0", 2L), redis()
+				.xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getConsumerMessageCount());
+		long scans = server.commandCount("XPENDING");
+		// Next scan is due after the claim idle time
+		assertEquals(Collections.emptyList(), task.poll());
+		assertEquals(scans, server.commandCount("XPENDING"));
+	}
+
+	@Test
+	void claimIdleOwnPending() throws InterruptedException {
+		String stream = "claims:own";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream,
+				RedisStreamSourceConfigDef.STREAM_CLAIM_IDLE_CONFIG, "50");
+		for (int index = 0; index < 2; index++) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		assertEquals(2, task.poll().size());
+		long scans = server.commandCount("XPENDING");
+		// Entries still waiting for their offset commit when the claim idle time
+		// elapses are not claimed again
+		Thread.sleep(100);
+		assertEquals(Collections.emptyList(), task.poll());
+		assertEquals(scans + 1, server.commandCount("XPENDING"));
+		assertEquals(0, server.commandCount("XCLAIM"));
+		assertEquals(Collections.singletonMap("consumer-0", 2L), redis()
+				.xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getConsumerMessageCount());
+	}
+
+	@Test
+	void offsetsPerStream() throws InterruptedException {
+		List<String> ids = new ArrayList<>();
+		for (String stream : Arrays.asList("offsets:1", "offsets:1", "offsets:2", "offsets:2")) {
+			ids.add(redis().xadd(stream, Collections.singletonMap("field", "value")));
+		}
+		Map<String, String> stored = Collections.singletonMap("offsets:1", ids.get(0));
+		task.initialize(new SourceTaskContext() {
+
+			@Override
+			public OffsetStorageReader offsetStorageReader() {
+				return new OffsetStorageReader() {
+
+					@Override
+					public <T> Map<Map<String, T>, Map<String, Object>> offsets(Collection<Map<String, T>> partitions) {
+						throw new UnsupportedOperationException("OffsetStorageReader.offsets()");
+					}
+
+					@Override
+					public <T> Map<String, Object> offset(Map<String, T> partition) {
+						String offset = stored.get(partition.get(RedisStreamSourceTask.PARTITION_FIELD));
+						return offset == null ? null
+								: Collections.singletonMap(RedisStreamSourceTask.OFFSET_FIELD, offset);
+					}
+
+				};
+			}
+
+			@Override
+			public Map<String, String> configs() {
+				throw new UnsupportedOperationException("SourceTaskContext.configs()");
+			}
+
+		});
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, "offsets:1,offsets:2");
+		List<SourceRecord> records = task.poll();
+		assertEquals(ids.subList(1, 4), records.stream()
+				.map(r -> r.sourceOffset().get(RedisStreamSourceTask.OFFSET_FIELD)).collect(Collectors.toList()));
+		assertEquals(Collections.singletonMap(RedisStreamSourceTask.PARTITION_FIELD, "offsets:1"),
+				records.get(0).sourcePartition());
+	}
+
+	@Test
+	void rawJson() throws InterruptedException {
+		String stream = "raw";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceConfigDef.STREAM_FORMAT_CONFIG,
+				RedisStreamSourceConfig.STREAM_FORMAT_JSON);
+		Map<String, String> body = new LinkedHashMap<>();
+		body.put("page", "/home");
+		body.put("user", "alice");
+		String id = redis().xadd(stream, body);
+		List<SourceRecord> records = task.poll();
+		assertEquals(1, records.size());
+		assertEquals(id, records.get(0).key());
+		assertEquals(Schema.BYTES_SCHEMA, records.get(0).valueSchema());
+		assertEquals("{\"page\":\"/home\",\"user\":\"alice\"}",
+				new String((byte[]) records.get(0).value(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void prefetch() throws InterruptedException {
+		String stream = "prefetch";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream,
+				RedisStreamSourceConfigDef.STREAM_PREFETCH_RECORDS_CONFIG, "10");
+		List<String> ids = new ArrayList<>();
+		for (int index = 0; index < 3; index++) {
+			ids.add(redis().xadd(stream, Collections.singletonMap("field", "value")));
+		}
+		List<SourceRecord> records = new ArrayList<>();
+		Awaitility.await().until(() -> records.addAll(task.poll()) && records.size() == ids.size());
+		assertEquals(ids, records.stream().map(SourceRecord::key).collect(Collectors.toList()));
+		for (SourceRecord record : records) {
+			task.commitRecord(record, null);
+		}
+		task.commit();
+		assertEquals(0, redis().xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getCount());
+	}
+
+	@Test
+	void prefetchAckWhileBlocking() throws InterruptedException {
+		String stream = "prefetch:block";
+		List<String> ids = new ArrayList<>();
+		for (int index = 0; index < 3; index++) {
+			ids.add(redis().xadd(stream, Collections.singletonMap("field", "value")));
+		}
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceConfigDef.STREAM_BLOCK_CONFIG,
+				"10000", RedisStreamSourceConfigDef.STREAM_PREFETCH_RECORDS_CONFIG, "10",
+				RedisStreamSourceConfigDef.STREAM_TRIM_CONFIG, RedisStreamSourceConfig.STREAM_TRIM_MINID);
+		List<SourceRecord> records = new ArrayList<>();
+		Awaitility.await().until(() -> records.addAll(task.poll()) && records.size() == ids.size());
+		// Pending read, read of the entries, then a read blocking for new ones
+		Awaitility.await().until(() -> server.commandCount("XREADGROUP") >= 3);
+		for (SourceRecord record : records) {
+			task.commitRecord(record, null);
+		}
+		assertTimeout(Duration.ofSeconds(5), task::commit);
+		assertEquals(0, redis().xpending(stream, RedisStreamSourceConfigDef.STREAM_CONSUMER_GROUP_DEFAULT).getCount());
+		assertEquals(1, redis().xlen(stream));
+	}
+
+	@Test
+	void trimAcknowledged() throws InterruptedException {
+		String stream = "trim:minid";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceConfigDef.STREAM_TRIM_CONFIG,
+				RedisStreamSourceConfig.STREAM_TRIM_MINID);
+		redis().xgroupCreate(StreamOffset.from(stream, "0-0"), "laggard");
+		for (int index = 0; index < 5; index++) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		List<SourceRecord> records = task.poll();
+		assertEquals(5, records.size());
+		for (SourceRecord record : records.subList(0, 3)) {
+			task.commitRecord(record, null);
+		}
+		task.commit();
+		// Another group has not read any entry yet
+		assertEquals(5, redis().xlen(stream));
+		redis().xgroupDestroy(stream, "laggard");
+		task.commit();
+		// Entries up to the first pending one are acknowledged
+		assertEquals(2, redis().xlen(stream));
+		for (SourceRecord record : records.subList(3, 5)) {
+			task.commitRecord(record, null);
+		}
+		task.commit();
+		// All entries are acknowledged: only the last delivered one is kept
+		assertEquals(1, redis().xlen(stream));
+	}
+
+	@Test
+	void trimMaxlen() throws InterruptedException {
+		String stream = "trim:maxlen";
+		start(RedisStreamSourceConfigDef.STREAM_NAME_CONFIG, stream, RedisStreamSourceConfigDef.STREAM_TRIM_CONFIG,
+				RedisStreamSourceConfig.STREAM_TRIM_MAXLEN, RedisStreamSourceConfigDef.STREAM_TRIM_MAXLEN_CONFIG, "2");
+		for (int index = 0; index < 5; index++) {
+			redis().xadd(stream, Collections.singletonMap("field", "value"));
+		}
+		task.commit();
+		assertEquals(2, redis().xlen(stream));
+	}
+
+}
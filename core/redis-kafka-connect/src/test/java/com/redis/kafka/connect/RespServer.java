@@ -0,0 +1,1588 @@
+package com.redis.kafka.connect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import io.lettuce.core.cluster.SlotHash;
+
+/**
+ * In-JVM Redis server speaking RESP2 and RESP3 (after {@code HELLO 3}) for
+ * tests that need to inject latency, errors or cluster redirections. Data
+ * lives in memory and every command runs under a single lock, like Redis.
+ * Strings are handled as ISO-8859-1 so that binary keys and values round-trip.
+ * <p>
+ * Supported commands: connection and server (PING, HELLO, AUTH, SELECT,
+ * CLIENT, COMMAND, INFO, QUIT, FLUSHALL, FLUSHDB, DBSIZE, WAIT, MULTI, EXEC,
+ * DISCARD), keys (DEL, UNLINK, EXISTS, TYPE, KEYS, SCAN), strings (GET, SET,
+ * MGET, MSET), hashes (HSET, HGET, HMGET, HGETALL, HDEL), lists (LPUSH, RPUSH,
+ * LRANGE, LREM, LLEN), sets (SADD, SREM, SMEMBERS, SCARD), sorted sets (ZADD,
+ * ZREM, ZRANGE, ZSCORE, ZCARD), streams (XADD, XLEN, XRANGE, XDEL, XTRIM,
+ * XGROUP, XREADGROUP, XACK, XPENDING, XAUTOCLAIM, XINFO GROUPS), RedisJSON
+ * (JSON.SET, JSON.MSET, JSON.GET, JSON.DEL) and RedisTimeSeries (TS.CREATE,
+ * TS.ADD, TS.MADD, TS.RANGE, TS.GET). Command options that do not affect the
+ * stored data are ignored, and approximate stream trimming is exact.
+ */
+class RespServer implements Closeable {
+
+	private static final String WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+	private static final String OK = "OK";
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+		Thread thread = new Thread(r, "resp-server");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+	private final Map<String, Object> data = new HashMap<>();
+	private final List<Fault> faults = new ArrayList<>();
+	private final Map<String, AtomicLong> commandCounts = new ConcurrentHashMap<>();
+	private final AtomicLong clientIds = new AtomicLong();
+	private volatile Duration latency = Duration.ZERO;
+	private volatile long replicas;
+	private volatile boolean closed;
+
+	private static class StatusReply {
+
+		private final String message;
+
+		public StatusReply(String message) {
+			this.message = message;
+		}
+
+	}
+
+	private static class ErrorReply {
+
+		private final String message;
+
+		public ErrorReply(String message) {
+			this.message = message;
+		}
+
+	}
+
+	private static class CommandException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		public CommandException(String message) {
+			super(message);
+		}
+
+	}
+
+	private static class Fault {
+
+		private final String command;
+		private final Function<List<String>, String> error;
+		private int remaining;
+
+		public Fault(String command, Function<List<String>, String> error, int times) {
+			this.command = command;
+			this.error = error;
+			this.remaining = times;
+		}
+
+	}
+
+	private static class Json {
+
+		private final String value;
+
+		public Json(String value) {
+			this.value = value;
+		}
+
+	}
+
+	private static class SortedSet {
+
+		private final Map<String, Double> scores = new HashMap<>();
+
+		public List<Map.Entry<String, Double>> sorted() {
+			List<Map.Entry<String, Double>> entries = new ArrayList<>(scores.entrySet());
+			entries.sort(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+			return entries;
+		}
+
+	}
+
+	private static class TimeSeries {
+
+		private final TreeMap<Long, Double> samples = new TreeMap<>();
+
+	}
+
+	private static class StreamId implements Comparable<StreamId> {
+
+		private static final StreamId MIN = new StreamId(0, 0);
+		private static final StreamId MAX = new StreamId(Long.MAX_VALUE, Long.MAX_VALUE);
+
+		private final long millis;
+		private final long sequence;
+
+		public StreamId(long millis, long sequence) {
+			this.millis = millis;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * @param defaultSequence sequence of IDs given as milliseconds only
+		 */
+		public static StreamId parse(String id, long defaultSequence) {
+			if (id.equals("-")) {
+				return MIN;
+			}
+			if (id.equals("+")) {
+				return MAX;
+			}
+			try {
+				int dash = id.indexOf('-');
+				if (dash < 0) {
+					return new StreamId(Long.parseLong(id), defaultSequence);
+				}
+				return new StreamId(Long.parseLong(id.substring(0, dash)), Long.parseLong(id.substring(dash + 1)));
+			} catch (NumberFormatException e) {
+				throw new CommandException("ERR Invalid stream ID specified as stream command argument");
+			}
+		}
+
+		public StreamId next() {
+			return sequence == Long.MAX_VALUE ? new StreamId(millis + 1, 0) : new StreamId(millis, sequence + 1);
+		}
+
+		@Override
+		public int compareTo(StreamId other) {
+			int result = Long.compare(millis, other.millis);
+			return result == 0 ? Long.compare(sequence, other.sequence) : result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof StreamId && compareTo((StreamId) obj) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(millis) * 31 + Long.hashCode(sequence);
+		}
+
+		@Override
+		public String toString() {
+			return millis + "-" + sequence;
+		}
+
+	}
+
+	private static class PendingEntry {
+
+		private String consumer;
+		private long deliveryTime;
+		private long deliveryCount;
+
+		public PendingEntry(String consumer, long deliveryTime) {
+			this.consumer = consumer;
+			this.deliveryTime = deliveryTime;
+			this.deliveryCount = 1;
+		}
+
+	}
+
+	private static class ConsumerGroup {
+
+		private StreamId lastDelivered;
+		private final Set<String> consumers = new LinkedHashSet<>();
+		private final TreeMap<StreamId, PendingEntry> pending = new TreeMap<>();
+
+		public ConsumerGroup(StreamId lastDelivered) {
+			this.lastDelivered = lastDelivered;
+		}
+
+	}
+
+	private static class Stream {
+
+		private final TreeMap<StreamId, List<String>> entries = new TreeMap<>();
+		private final Map<String, ConsumerGroup> groups = new LinkedHashMap<>();
+		private StreamId lastId = StreamId.MIN;
+
+	}
+
+	private class Session {
+
+		private int protocol = 2;
+		private List<List<String>> transaction;
+		private boolean quit;
+		private final long id = clientIds.incrementAndGet();
+
+	}
+
+	public RespServer() throws IOException {
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		executor.execute(this::accept);
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public String getHost() {
+		return serverSocket.getInetAddress().getHostAddress();
+	}
+
+	public String getRedisURI() {
+		return "redis://" + getHost() + ":" + getPort();
+	}
+
+	/**
+	 * @param latency delay before each batch of replies is sent, simulating the
+	 *                network round trip of a pipeline
+	 */
+	public void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * @param replicas number of replicas acknowledged by WAIT
+	 */
+	public void setReplicas(long replicas) {
+		this.replicas = replicas;
+	}
+
+	/**
+	 * Replies to the next calls of the given command with an error instead of
+	 * running it.
+	 *
+	 * @param error error message including its code, e.g.
+	 *              {@code "ERR injected"}
+	 */
+	public void fail(String command, String error, int times) {
+		addFault(command, args -> error, times);
+	}
+
+	/**
+	 * Replies to the next calls of the given command with a MOVED redirection to
+	 * the given node for the slot of the command's first key.
+	 */
+	public void moved(String command, String hostAndPort, int times) {
+		addFault(command, args -> "MOVED " + slot(args) + " " + hostAndPort, times);
+	}
+
+	/**
+	 * Replies to the next calls of the given command with an ASK redirection to
+	 * the given node for the slot of the command's first key.
+	 */
+	public void ask(String command, String hostAndPort, int times) {
+		addFault(command, args -> "ASK " + slot(args) + " " + hostAndPort, times);
+	}
+
+	private static int slot(List<String> args) {
+		return args.size() > 1 ? SlotHash.getSlot(args.get(1).getBytes(StandardCharsets.ISO_8859_1)) : 0;
+	}
+
+	private synchronized void addFault(String command, Function<List<String>, String> error, int times) {
+		faults.add(new Fault(command.toUpperCase(Locale.ROOT), error, times));
+	}
+
+	/**
+	 * @return number of times the given command was received, including calls
+	 *         rejected by injected faults
+	 */
+	public long commandCount(String command) {
+		AtomicLong count = commandCounts.get(command.toUpperCase(Locale.ROOT));
+		return count == null ? 0 : count.get();
+	}
+
+	public synchronized void reset() {
+		data.clear();
+		faults.clear();
+		commandCounts.clear();
+		latency = Duration.ZERO;
+		replicas = 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		executor.shutdownNow();
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+				executor.execute(() -> serve(socket));
+			} catch (IOException e) {
+				// Server socket closed
+				return;
+			}
+		}
+	}
+
+	private void serve(Socket socket) {
+		Session session = new Session();
+		try (InputStream in = new BufferedInputStream(socket.getInputStream());
+				OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+			while (!closed && !session.quit) {
+				List<String> command = readCommand(in);
+				if (command == null) {
+					return;
+				}
+				if (command.isEmpty()) {
+					continue;
+				}
+				write(out, dispatch(session, command), session.protocol);
+				if (in.available() == 0 || session.quit) {
+					sleep(latency);
+					out.flush();
+				}
+			}
+		} catch (SocketException | EOFException e) {
+			// Client disconnected
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			sockets.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	private static void sleep(Duration duration) {
+		if (duration.isZero()) {
+			return;
+		}
+		try {
+			Thread.sleep(duration.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static List<String> readCommand(InputStream in) throws IOException {
+		int first = in.read();
+		if (first == -1) {
+			return null;
+		}
+		if (first != '*') {
+			String line = (char) first + readLine(in);
+			List<String> args = new ArrayList<>();
+			for (String arg : line.trim().split("\\s+")) {
+				if (!arg.isEmpty()) {
+					args.add(arg);
+				}
+			}
+			return args;
+		}
+		int count = Integer.parseInt(readLine(in));
+		List<String> args = new ArrayList<>(Math.max(count, 0));
+		for (int index = 0; index < count; index++) {
+			if (in.read() != '$') {
+				throw new IOException("Protocol error: expected bulk string");
+			}
+			int length = Integer.parseInt(readLine(in));
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length) {
+				int read = in.read(bytes, offset, length - offset);
+				if (read == -1) {
+					throw new EOFException();
+				}
+				offset += read;
+			}
+			readLine(in);
+			args.add(new String(bytes, StandardCharsets.ISO_8859_1));
+		}
+		return args;
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) != '\r') {
+			if (c == -1) {
+				throw new EOFException();
+			}
+			line.write(c);
+		}
+		if (in.read() != '\n') {
+			throw new IOException("Protocol error: expected LF");
+		}
+		return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+	}
+
+	private static void write(OutputStream out, Object reply, int protocol) throws IOException {
+		if (reply == null) {
+			writeLine(out, protocol == 3 ? "_" : "$-1");
+		} else if (reply instanceof StatusReply) {
+			writeLine(out, "+" + ((StatusReply) reply).message);
+		} else if (reply instanceof ErrorReply) {
+			writeLine(out, "-" + ((ErrorReply) reply).message);
+		} else if (reply instanceof Long || reply instanceof Integer) {
+			writeLine(out, ":" + reply);
+		} else if (reply instanceof Double) {
+			if (protocol == 3) {
+				writeLine(out, "," + formatDouble((Double) reply));
+			} else {
+				writeBulk(out, formatDouble((Double) reply));
+			}
+		} else if (reply instanceof String) {
+			writeBulk(out, (String) reply);
+		} else if (reply instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) reply;
+			writeLine(out, (protocol == 3 ? "%" : "*") + (protocol == 3 ? map.size() : map.size() * 2));
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				write(out, entry.getKey(), protocol);
+				write(out, entry.getValue(), protocol);
+			}
+		} else if (reply instanceof Collection) {
+			Collection<?> collection = (Collection<?>) reply;
+			writeLine(out, (protocol == 3 && reply instanceof Set ? "~" : "*") + collection.size());
+			for (Object element : collection) {
+				write(out, element, protocol);
+			}
+		} else {
+			throw new IllegalArgumentException("Unsupported reply type: " + reply.getClass());
+		}
+	}
+
+	private static void writeBulk(OutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+		writeLine(out, "$" + bytes.length);
+		out.write(bytes);
+		out.write('\r');
+		out.write('\n');
+	}
+
+	private static void writeLine(OutputStream out, String line) throws IOException {
+		out.write(line.getBytes(StandardCharsets.ISO_8859_1));
+		out.write('\r');
+		out.write('\n');
+	}
+
+	private static String formatDouble(double value) {
+		if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e17) {
+			return String.valueOf((long) value);
+		}
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "inf" : "-inf";
+		}
+		return String.valueOf(value);
+	}
+
+	private Object dispatch(Session session, List<String> args) {
+		String name = args.get(0).toUpperCase(Locale.ROOT);
+		commandCounts.computeIfAbsent(name, n -> new AtomicLong()).incrementAndGet();
+		if (session.transaction != null && !name.equals("EXEC") && !name.equals("DISCARD")
+				&& !name.equals("MULTI")) {
+			session.transaction.add(args);
+			return new StatusReply("QUEUED");
+		}
+		switch (name) {
+		case "MULTI":
+			if (session.transaction != null) {
+				return new ErrorReply("ERR MULTI calls can not be nested");
+			}
+			session.transaction = new ArrayList<>();
+			return new StatusReply(OK);
+		case "DISCARD":
+			if (session.transaction == null) {
+				return new ErrorReply("ERR DISCARD without MULTI");
+			}
+			session.transaction = null;
+			return new StatusReply(OK);
+		case "EXEC":
+			if (session.transaction == null) {
+				return new ErrorReply("ERR EXEC without MULTI");
+			}
+			List<List<String>> commands = session.transaction;
+			session.transaction = null;
+			List<Object> replies = new ArrayList<>(commands.size());
+			synchronized (this) {
+				for (List<String> command : commands) {
+					replies.add(execute(session, command));
+				}
+			}
+			return replies;
+		default:
+			if (name.equals("XREADGROUP")) {
+				return execute(session, args);
+			}
+			synchronized (this) {
+				return execute(session, args);
+			}
+		}
+	}
+
+	/**
+	 * Runs a command under the server lock, except XREADGROUP which acquires it
+	 * itself so that it can block.
+	 */
+	private Object execute(Session session, List<String> args) {
+		String name = args.get(0).toUpperCase(Locale.ROOT);
+		try {
+			String error = fault(name, args);
+			if (error != null) {
+				return new ErrorReply(error);
+			}
+			return command(session, name, args);
+		} catch (CommandException e) {
+			return new ErrorReply(e.getMessage());
+		} catch (IndexOutOfBoundsException e) {
+			return new ErrorReply("ERR wrong number of arguments for '" + name.toLowerCase(Locale.ROOT) + "' command");
+		} catch (NumberFormatException e) {
+			return new ErrorReply("ERR value is not an integer or out of range");
+		}
+	}
+
+	private synchronized String fault(String name, List<String> args) {
+		for (Iterator<Fault> iterator = faults.iterator(); iterator.hasNext();) {
+			Fault fault = iterator.next();
+			if (fault.command.equals(name)) {
+				if (--fault.remaining <= 0) {
+					iterator.remove();
+				}
+				return fault.error.apply(args);
+			}
+		}
+		return null;
+	}
+
+	private Object command(Session session, String name, List<String> args) {
+		switch (name) {
+		case "PING":
+			return args.size() > 1 ? args.get(1) : new StatusReply("PONG");
+		case "HELLO":
+			return hello(session, args);
+		case "AUTH":
+		case "SELECT":
+		case "READONLY":
+		case "READWRITE":
+			return new StatusReply(OK);
+		case "QUIT":
+			session.quit = true;
+			return new StatusReply(OK);
+		case "CLIENT":
+			return args.get(1).equalsIgnoreCase("ID") ? (Object) session.id : new StatusReply(OK);
+		case "COMMAND":
+			return Collections.emptyList();
+		case "INFO":
+			return "# Server\r\nredis_version:7.0.0\r\nredis_mode:standalone\r\n";
+		case "CLUSTER":
+			return new ErrorReply("ERR This instance has cluster support disabled");
+		case "FLUSHALL":
+		case "FLUSHDB":
+			data.clear();
+			return new StatusReply(OK);
+		case "DBSIZE":
+			return (long) data.size();
+		case "WAIT":
+			return replicas;
+		case "DEL":
+		case "UNLINK":
+			return del(args);
+		case "EXISTS":
+			return args.subList(1, args.size()).stream().filter(data::containsKey).count();
+		case "TYPE":
+			return new StatusReply(type(data.get(args.get(1))));
+		case "KEYS":
+			return keys(args.get(1), null);
+		case "SCAN":
+			return scan(args);
+		case "GET":
+			return string(args.get(1));
+		case "SET":
+			data.put(args.get(1), args.get(2));
+			return new StatusReply(OK);
+		case "MGET":
+			return mget(args);
+		case "MSET":
+			for (int index = 1; index < args.size(); index += 2) {
+				data.put(args.get(index), args.get(index + 1));
+			}
+			return new StatusReply(OK);
+		case "HSET":
+			return hset(args);
+		case "HGET":
+			return hash(args.get(1), false).get(args.get(2));
+		case "HMGET":
+			return hmget(args);
+		case "HGETALL":
+			return new LinkedHashMap<>(hash(args.get(1), false));
+		case "HDEL":
+			return hdel(args);
+		case "LPUSH":
+		case "RPUSH":
+			return push(args, name.equals("LPUSH"));
+		case "LRANGE":
+			return range(list(args.get(1), false), Long.parseLong(args.get(2)), Long.parseLong(args.get(3)));
+		case "LREM":
+			return lrem(args);
+		case "LLEN":
+			return (long) list(args.get(1), false).size();
+		case "SADD":
+			return sadd(args);
+		case "SREM":
+			return srem(args);
+		case "SMEMBERS":
+			return new LinkedHashSet<>(set(args.get(1), false));
+		case "SCARD":
+			return (long) set(args.get(1), false).size();
+		case "ZADD":
+			return zadd(args);
+		case "ZREM":
+			return zrem(args);
+		case "ZRANGE":
+			return zrange(args);
+		case "ZSCORE":
+			return sortedSet(args.get(1), false).scores.get(args.get(2));
+		case "ZCARD":
+			return (long) sortedSet(args.get(1), false).scores.size();
+		case "XADD":
+			return xadd(args);
+		case "XLEN":
+			return (long) stream(args.get(1), false).entries.size();
+		case "XRANGE":
+			return xrange(args);
+		case "XDEL":
+			return xdel(args);
+		case "XTRIM":
+			return xtrim(args);
+		case "XGROUP":
+			return xgroup(args);
+		case "XREADGROUP":
+			return xreadgroup(session, args);
+		case "XACK":
+			return xack(args);
+		case "XPENDING":
+			return xpending(args);
+		case "XCLAIM":
+			return xclaim(args);
+		case "XAUTOCLAIM":
+			return xautoclaim(args);
+		case "XINFO":
+			return xinfo(args);
+		case "JSON.SET":
+			return jsonSet(args.get(1), args.get(2), args.get(3), args.size() > 4 ? args.get(4) : null);
+		case "JSON.MSET":
+			for (int index = 1; index < args.size(); index += 3) {
+				jsonSet(args.get(index), args.get(index + 1), args.get(index + 2), null);
+			}
+			return new StatusReply(OK);
+		case "JSON.GET":
+			return jsonGet(args);
+		case "JSON.DEL":
+			return del(args.subList(0, 2));
+		case "TS.CREATE":
+			if (data.containsKey(args.get(1))) {
+				return new ErrorReply("ERR TSDB: key already exists");
+			}
+			data.put(args.get(1), new TimeSeries());
+			return new StatusReply(OK);
+		case "TS.ADD":
+			return tsAdd(args.get(1), args.get(2), args.get(3));
+		case "TS.MADD":
+			return tsMadd(args);
+		case "TS.RANGE":
+			return tsRange(args);
+		case "TS.GET":
+			return tsGet(args);
+		default:
+			return new ErrorReply("ERR unknown command '" + args.get(0) + "'");
+		}
+	}
+
+	private Object hello(Session session, List<String> args) {
+		if (args.size() > 1) {
+			int protocol;
+			try {
+				protocol = Integer.parseInt(args.get(1));
+			} catch (NumberFormatException e) {
+				return new ErrorReply("ERR Protocol version is not an integer or out of range");
+			}
+			if (protocol != 2 && protocol != 3) {
+				return new ErrorReply("NOPROTO unsupported protocol version");
+			}
+			session.protocol = protocol;
+		}
+		Map<String, Object> reply = new LinkedHashMap<>();
+		reply.put("server", "redis");
+		reply.put("version", "7.0.0");
+		reply.put("proto", (long) session.protocol);
+		reply.put("id", session.id);
+		reply.put("mode", "standalone");
+		reply.put("role", "master");
+		reply.put("modules", Collections.emptyList());
+		return reply;
+	}
+
+	private static String type(Object value) {
+		if (value == null) {
+			return "none";
+		}
+		if (value instanceof String) {
+			return "string";
+		}
+		if (value instanceof Map) {
+			return "hash";
+		}
+		if (value instanceof List) {
+			return "list";
+		}
+		if (value instanceof Set) {
+			return "set";
+		}
+		if (value instanceof SortedSet) {
+			return "zset";
+		}
+		if (value instanceof Stream) {
+			return "stream";
+		}
+		if (value instanceof Json) {
+			return "ReJSON-RL";
+		}
+		return "TSDB-TYPE";
+	}
+
+	private <T> T value(String key, Class<T> type, boolean create, Supplier<T> factory) {
+		Object value = data.get(key);
+		if (value == null) {
+			T created = factory.get();
+			if (create) {
+				data.put(key, created);
+			}
+			return created;
+		}
+		if (!type.isInstance(value)) {
+			throw new CommandException(WRONGTYPE);
+		}
+		return type.cast(value);
+	}
+
+	/**
+	 * Removes the given key if its value became empty, like Redis does.
+	 */
+	private void removeIfEmpty(String key) {
+		Object value = data.get(key);
+		if ((value instanceof Collection && ((Collection<?>) value).isEmpty())
+				|| (value instanceof Map && ((Map<?, ?>) value).isEmpty())
+				|| (value instanceof SortedSet && ((SortedSet) value).scores.isEmpty())) {
+			data.remove(key);
+		}
+	}
+
+	private String string(String key) {
+		return value(key, String.class, false, () -> null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, String> hash(String key, boolean create) {
+		return value(key, Map.class, create, LinkedHashMap::new);
+	}
+
+	@SuppressWarnings("unchecked")
+	private LinkedList<String> list(String key, boolean create) {
+		return value(key, LinkedList.class, create, LinkedList::new);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<String> set(String key, boolean create) {
+		return value(key, Set.class, create, LinkedHashSet::new);
+	}
+
+	private SortedSet sortedSet(String key, boolean create) {
+		return value(key, SortedSet.class, create, SortedSet::new);
+	}
+
+	private Stream stream(String key, boolean create) {
+		return value(key, Stream.class, create, Stream::new);
+	}
+
+	private TimeSeries timeSeries(String key, boolean create) {
+		return value(key, TimeSeries.class, create, TimeSeries::new);
+	}
+
+	private long del(List<String> args) {
+		long count = 0;
+		for (String key : args.subList(1, args.size())) {
+			if (data.remove(key) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private List<String> keys(String pattern, String type) {
+		Pattern regex = glob(pattern);
+		List<String> keys = new ArrayList<>();
+		for (Map.Entry<String, Object> entry : data.entrySet()) {
+			if (regex.matcher(entry.getKey()).matches()
+					&& (type == null || type.equalsIgnoreCase(type(entry.getValue())))) {
+				keys.add(entry.getKey());
+			}
+		}
+		return keys;
+	}
+
+	private static Pattern glob(String pattern) {
+		StringBuilder regex = new StringBuilder();
+		for (int index = 0; index < pattern.length(); index++) {
+			char c = pattern.charAt(index);
+			switch (c) {
+			case '*':
+				regex.append(".*");
+				break;
+			case '?':
+				regex.append('.');
+				break;
+			case '[':
+				int end = pattern.indexOf(']', index);
+				if (end < 0) {
+					regex.append("\\[");
+				} else {
+					regex.append('[').append(pattern.substring(index + 1, end).replace("\\", "\\\\")).append(']');
+					index = end;
+				}
+				break;
+			case '\\':
+				if (index + 1 < pattern.length()) {
+					regex.append(Pattern.quote(String.valueOf(pattern.charAt(++index))));
+				}
+				break;
+			default:
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+
+	/**
+	 * Returns all matching keys in a single iteration.
+	 */
+	private Object scan(List<String> args) {
+		String pattern = "*";
+		String type = null;
+		for (int index = 2; index < args.size(); index += 2) {
+			String option = args.get(index).toUpperCase(Locale.ROOT);
+			if (option.equals("MATCH")) {
+				pattern = args.get(index + 1);
+			} else if (option.equals("TYPE")) {
+				type = args.get(index + 1);
+			}
+		}
+		return Arrays.asList("0", keys(pattern, type));
+	}
+
+	private List<String> mget(List<String> args) {
+		List<String> values = new ArrayList<>(args.size() - 1);
+		for (String key : args.subList(1, args.size())) {
+			Object value = data.get(key);
+			values.add(value instanceof String ? (String) value : null);
+		}
+		return values;
+	}
+
+	private long hset(List<String> args) {
+		if (args.size() < 4 || args.size() % 2 != 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		Map<String, String> hash = hash(args.get(1), true);
+		long count = 0;
+		for (int index = 2; index < args.size(); index += 2) {
+			if (hash.put(args.get(index), args.get(index + 1)) == null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private List<String> hmget(List<String> args) {
+		Map<String, String> hash = hash(args.get(1), false);
+		List<String> values = new ArrayList<>(args.size() - 2);
+		for (String field : args.subList(2, args.size())) {
+			values.add(hash.get(field));
+		}
+		return values;
+	}
+
+	private long hdel(List<String> args) {
+		Map<String, String> hash = hash(args.get(1), false);
+		long count = 0;
+		for (String field : args.subList(2, args.size())) {
+			if (hash.remove(field) != null) {
+				count++;
+			}
+		}
+		removeIfEmpty(args.get(1));
+		return count;
+	}
+
+	private long push(List<String> args, boolean left) {
+		LinkedList<String> list = list(args.get(1), true);
+		for (String element : args.subList(2, args.size())) {
+			if (left) {
+				list.addFirst(element);
+			} else {
+				list.addLast(element);
+			}
+		}
+		return list.size();
+	}
+
+	private static List<String> range(List<String> list, long start, long stop) {
+		int size = list.size();
+		int from = (int) Math.max(0, start < 0 ? size + start : start);
+		int to = (int) Math.min(size - 1, stop < 0 ? size + stop : stop);
+		if (from > to) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(list.subList(from, to + 1));
+	}
+
+	private long lrem(List<String> args) {
+		LinkedList<String> list = list(args.get(1), false);
+		long count = Long.parseLong(args.get(2));
+		String element = args.get(3);
+		long removed = 0;
+		Iterator<String> iterator = count < 0 ? list.descendingIterator() : list.iterator();
+		while (iterator.hasNext() && (count == 0 || removed < Math.abs(count))) {
+			if (iterator.next().equals(element)) {
+				iterator.remove();
+				removed++;
+			}
+		}
+		removeIfEmpty(args.get(1));
+		return removed;
+	}
+
+	private long sadd(List<String> args) {
+		Set<String> set = set(args.get(1), true);
+		long count = 0;
+		for (String member : args.subList(2, args.size())) {
+			if (set.add(member)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private long srem(List<String> args) {
+		Set<String> set = set(args.get(1), false);
+		long count = 0;
+		for (String member : args.subList(2, args.size())) {
+			if (set.remove(member)) {
+				count++;
+			}
+		}
+		removeIfEmpty(args.get(1));
+		return count;
+	}
+
+	private long zadd(List<String> args) {
+		int index = 2;
+		while (index < args.size() && !isNumber(args.get(index))) {
+			// NX, XX, GT, LT, CH, INCR
+			index++;
+		}
+		if (index >= args.size() || (args.size() - index) % 2 != 0) {
+			throw new CommandException("ERR syntax error");
+		}
+		SortedSet sortedSet = sortedSet(args.get(1), true);
+		long count = 0;
+		for (; index < args.size(); index += 2) {
+			if (sortedSet.scores.put(args.get(index + 1), parseDouble(args.get(index))) == null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean isNumber(String value) {
+		try {
+			parseDouble(value);
+			return true;
+		} catch (CommandException e) {
+			return false;
+		}
+	}
+
+	private static double parseDouble(String value) {
+		switch (value.toLowerCase(Locale.ROOT)) {
+		case "inf":
+		case "+inf":
+			return Double.POSITIVE_INFINITY;
+		case "-inf":
+			return Double.NEGATIVE_INFINITY;
+		default:
+			try {
+				return Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw new CommandException("ERR value is not a valid float");
+			}
+		}
+	}
+
+	private long zrem(List<String> args) {
+		SortedSet sortedSet = sortedSet(args.get(1), false);
+		long count = 0;
+		for (String member : args.subList(2, args.size())) {
+			if (sortedSet.scores.remove(member) != null) {
+				count++;
+			}
+		}
+		removeIfEmpty(args.get(1));
+		return count;
+	}
+
+	private List<Object> zrange(List<String> args) {
+		List<Map.Entry<String, Double>> sorted = sortedSet(args.get(1), false).sorted();
+		boolean withScores = args.size() > 4 && args.get(4).equalsIgnoreCase("WITHSCORES");
+		List<String> members = new ArrayList<>(sorted.size());
+		for (Map.Entry<String, Double> entry : sorted) {
+			members.add(entry.getKey());
+		}
+		List<Object> reply = new ArrayList<>();
+		for (String member : range(members, Long.parseLong(args.get(2)), Long.parseLong(args.get(3)))) {
+			reply.add(member);
+			if (withScores) {
+				reply.add(sortedSet(args.get(1), false).scores.get(member));
+			}
+		}
+		return reply;
+	}
+
+	private Object xadd(List<String> args) {
+		String key = args.get(1);
+		int index = 2;
+		boolean create = true;
+		String trimStrategy = null;
+		String trimThreshold = null;
+		while (true) {
+			String option = args.get(index).toUpperCase(Locale.ROOT);
+			if (option.equals("NOMKSTREAM")) {
+				create = false;
+				index++;
+			} else if (option.equals("MAXLEN") || option.equals("MINID")) {
+				trimStrategy = option;
+				index++;
+				if (args.get(index).equals("~") || args.get(index).equals("=")) {
+					index++;
+				}
+				trimThreshold = args.get(index++);
+			} else if (option.equals("LIMIT")) {
+				index += 2;
+			} else {
+				break;
+			}
+		}
+		if (!create && !data.containsKey(key)) {
+			return null;
+		}
+		String idArg = args.get(index++);
+		if (index >= args.size() || (args.size() - index) % 2 != 0) {
+			throw new CommandException("ERR wrong number of arguments for 'xadd' command");
+		}
+		Stream stream = stream(key, true);
+		StreamId id;
+		if (idArg.equals("*")) {
+			long now = System.currentTimeMillis();
+			id = now > stream.lastId.millis ? new StreamId(now, 0) : stream.lastId.next();
+		} else {
+			id = StreamId.parse(idArg, 0);
+			if (id.compareTo(stream.lastId) <= 0) {
+				throw new CommandException(
+						"ERR The ID specified in XADD is equal or smaller than the target stream top item");
+			}
+		}
+		stream.entries.put(id, new ArrayList<>(args.subList(index, args.size())));
+		stream.lastId = id;
+		if (trimStrategy != null) {
+			trim(stream, trimStrategy, trimThreshold);
+		}
+		notifyAll();
+		return id.toString();
+	}
+
+	private static long trim(Stream stream, String strategy, String threshold) {
+		long removed = 0;
+		if (strategy.equals("MAXLEN")) {
+			long maxLength = Long.parseLong(threshold);
+			while (stream.entries.size() > maxLength) {
+				stream.entries.pollFirstEntry();
+				removed++;
+			}
+		} else {
+			StreamId minId = StreamId.parse(threshold, 0);
+			while (!stream.entries.isEmpty() && stream.entries.firstKey().compareTo(minId) < 0) {
+				stream.entries.pollFirstEntry();
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	private static List<Object> entry(StreamId id, List<String> fields) {
+		return Arrays.asList(id.toString(), fields);
+	}
+
+	private Object xrange(List<String> args) {
+		Stream stream = stream(args.get(1), false);
+		StreamId start = StreamId.parse(args.get(2), 0);
+		StreamId end = StreamId.parse(args.get(3), Long.MAX_VALUE);
+		long count = args.size() > 5 ? Long.parseLong(args.get(5)) : Long.MAX_VALUE;
+		List<Object> entries = new ArrayList<>();
+		if (start.compareTo(end) > 0) {
+			return entries;
+		}
+		for (Map.Entry<StreamId, List<String>> entry : stream.entries.subMap(start, true, end, true).entrySet()) {
+			if (entries.size() >= count) {
+				break;
+			}
+			entries.add(entry(entry.getKey(), entry.getValue()));
+		}
+		return entries;
+	}
+
+	private long xdel(List<String> args) {
+		Stream stream = stream(args.get(1), false);
+		long count = 0;
+		for (String id : args.subList(2, args.size())) {
+			if (stream.entries.remove(StreamId.parse(id, 0)) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private long xtrim(List<String> args) {
+		Stream stream = stream(args.get(1), false);
+		String strategy = args.get(2).toUpperCase(Locale.ROOT);
+		if (!strategy.equals("MAXLEN") && !strategy.equals("MINID")) {
+			throw new CommandException("ERR syntax error");
+		}
+		int index = 3;
+		if (args.get(index).equals("~") || args.get(index).equals("=")) {
+			index++;
+		}
+		return trim(stream, strategy, args.get(index));
+	}
+
+	private Object xgroup(List<String> args) {
+		String subcommand = args.get(1).toUpperCase(Locale.ROOT);
+		String key = args.get(2);
+		switch (subcommand) {
+		case "CREATE":
+			boolean mkstream = args.subList(5, args.size()).stream().anyMatch(a -> a.equalsIgnoreCase("MKSTREAM"));
+			if (!data.containsKey(key) && !mkstream) {
+				throw new CommandException(
+						"ERR The XGROUP subcommand requires the key to exist. Note that for CREATE you may want to use the MKSTREAM option to create an empty stream automatically.");
+			}
+			Stream stream = stream(key, true);
+			if (stream.groups.containsKey(args.get(3))) {
+				throw new CommandException("BUSYGROUP Consumer Group name already exists");
+			}
+			String id = args.get(4);
+			stream.groups.put(args.get(3), new ConsumerGroup(id.equals("$") ? stream.lastId : StreamId.parse(id, 0)));
+			return new StatusReply(OK);
+		case "SETID":
+			group(key, args.get(3)).lastDelivered = args.get(4).equals("$") ? stream(key, false).lastId
+					: StreamId.parse(args.get(4), 0);
+			return new StatusReply(OK);
+		case "DESTROY":
+			return stream(key, false).groups.remove(args.get(3)) == null ? 0L : 1L;
+		case "CREATECONSUMER":
+			return group(key, args.get(3)).consumers.add(args.get(4)) ? 1L : 0L;
+		case "DELCONSUMER":
+			ConsumerGroup group = group(key, args.get(3));
+			group.consumers.remove(args.get(4));
+			long pending = group.pending.values().stream().filter(p -> p.consumer.equals(args.get(4))).count();
+			group.pending.values().removeIf(p -> p.consumer.equals(args.get(4)));
+			return pending;
+		default:
+			throw new CommandException("ERR unknown subcommand '" + args.get(1) + "'");
+		}
+	}
+
+	private ConsumerGroup group(String key, String name) {
+		Object value = data.get(key);
+		if (!(value instanceof Stream) || !((Stream) value).groups.containsKey(name)) {
+			throw new CommandException("NOGROUP No such key '" + key + "' or consumer group '" + name + "'");
+		}
+		return ((Stream) value).groups.get(name);
+	}
+
+	private Object xreadgroup(Session session, List<String> args) {
+		String groupName = null;
+		String consumer = null;
+		long count = Long.MAX_VALUE;
+		long block = -1;
+		boolean noack = false;
+		int index = 1;
+		while (index < args.size()) {
+			String option = args.get(index).toUpperCase(Locale.ROOT);
+			if (option.equals("GROUP")) {
+				groupName = args.get(index + 1);
+				consumer = args.get(index + 2);
+				index += 3;
+			} else if (option.equals("COUNT")) {
+				count = Long.parseLong(args.get(index + 1));
+				index += 2;
+			} else if (option.equals("BLOCK")) {
+				block = Long.parseLong(args.get(index + 1));
+				index += 2;
+			} else if (option.equals("NOACK")) {
+				noack = true;
+				index++;
+			} else if (option.equals("STREAMS")) {
+				index++;
+				break;
+			} else {
+				throw new CommandException("ERR syntax error");
+			}
+		}
+		int streams = (args.size() - index) / 2;
+		if (groupName == null || streams == 0 || (args.size() - index) % 2 != 0) {
+			throw new CommandException("ERR syntax error");
+		}
+		List<String> keys = args.subList(index, index + streams);
+		List<String> ids = args.subList(index + streams, args.size());
+		long deadline = System.currentTimeMillis() + block;
+		synchronized (this) {
+			while (true) {
+				Map<String, Object> reply = readGroup(groupName, consumer, count, noack, keys, ids);
+				boolean blocking = block >= 0 && ids.contains(">");
+				long remaining = deadline - System.currentTimeMillis();
+				if (!reply.isEmpty() || !blocking || (block > 0 && remaining <= 0) || closed) {
+					if (reply.isEmpty()) {
+						return null;
+					}
+					return session.protocol == 3 ? reply : toArrays(reply);
+				}
+				try {
+					wait(block == 0 ? 1000 : remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+		}
+	}
+
+	private static List<Object> toArrays(Map<String, Object> reply) {
+		List<Object> streams = new ArrayList<>(reply.size());
+		reply.forEach((key, entries) -> streams.add(Arrays.asList(key, entries)));
+		return streams;
+	}
+
+	private Map<String, Object> readGroup(String groupName, String consumer, long count, boolean noack,
+			List<String> keys, List<String> ids) {
+		Map<String, Object> reply = new LinkedHashMap<>();
+		long now = System.currentTimeMillis();
+		for (int index = 0; index < keys.size(); index++) {
+			String key = keys.get(index);
+			ConsumerGroup group = group(key, groupName);
+			group.consumers.add(consumer);
+			Stream stream = (Stream) data.get(key);
+			List<Object> entries = new ArrayList<>();
+			if (ids.get(index).equals(">")) {
+				for (Map.Entry<StreamId, List<String>> entry : stream.entries.tailMap(group.lastDelivered, false)
+						.entrySet()) {
+					if (entries.size() >= count) {
+						break;
+					}
+					entries.add(entry(entry.getKey(), entry.getValue()));
+					group.lastDelivered = entry.getKey();
+					if (!noack) {
+						group.pending.put(entry.getKey(), new PendingEntry(consumer, now));
+					}
+				}
+				if (!entries.isEmpty()) {
+					reply.put(key, entries);
+				}
+			} else {
+				StreamId start = StreamId.parse(ids.get(index), 0);
+				for (Map.Entry<StreamId, PendingEntry> pending : group.pending.tailMap(start, false).entrySet()) {
+					if (entries.size() >= count) {
+						break;
+					}
+					if (pending.getValue().consumer.equals(consumer)) {
+						pending.getValue().deliveryTime = now;
+						pending.getValue().deliveryCount++;
+						List<String> fields = stream.entries.get(pending.getKey());
+						entries.add(Arrays.asList(pending.getKey().toString(), fields));
+					}
+				}
+				reply.put(key, entries);
+			}
+		}
+		return reply;
+	}
+
+	private long xack(List<String> args) {
+		Object value = data.get(args.get(1));
+		if (!(value instanceof Stream) || !((Stream) value).groups.containsKey(args.get(2))) {
+			return 0;
+		}
+		ConsumerGroup group = ((Stream) value).groups.get(args.get(2));
+		long count = 0;
+		for (String id : args.subList(3, args.size())) {
+			if (group.pending.remove(StreamId.parse(id, 0)) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private Object xpending(List<String> args) {
+		ConsumerGroup group = group(args.get(1), args.get(2));
+		if (args.size() == 3) {
+			if (group.pending.isEmpty()) {
+				return Arrays.asList(0L, null, null, null);
+			}
+			Map<String, Long> consumers = new LinkedHashMap<>();
+			group.pending.values().forEach(p -> consumers.merge(p.consumer, 1L, Long::sum));
+			List<Object> counts = new ArrayList<>();
+			consumers.forEach((consumer, count) -> counts.add(Arrays.asList(consumer, String.valueOf(count))));
+			return Arrays.asList((long) group.pending.size(), group.pending.firstKey().toString(),
+					group.pending.lastKey().toString(), counts);
+		}
+		int index = 3;
+		long minIdle = 0;
+		if (args.get(index).equalsIgnoreCase("IDLE")) {
+			minIdle = Long.parseLong(args.get(index + 1));
+			index += 2;
+		}
+		StreamId start = StreamId.parse(args.get(index), 0);
+		StreamId end = StreamId.parse(args.get(index + 1), Long.MAX_VALUE);
+		long count = Long.parseLong(args.get(index + 2));
+		String consumer = args.size() > index + 3 ? args.get(index + 3) : null;
+		long now = System.currentTimeMillis();
+		List<Object> reply = new ArrayList<>();
+		for (Map.Entry<StreamId, PendingEntry> entry : group.pending.subMap(start, true, end, true).entrySet()) {
+			PendingEntry pending = entry.getValue();
+			long idle = now - pending.deliveryTime;
+			if (reply.size() >= count) {
+				break;
+			}
+			if ((consumer == null || consumer.equals(pending.consumer)) && idle >= minIdle) {
+				reply.add(Arrays.asList(entry.getKey().toString(), pending.consumer, idle, pending.deliveryCount));
+			}
+		}
+		return reply;
+	}
+
+	private List<Object> xclaim(List<String> args) {
+		String key = args.get(1);
+		ConsumerGroup group = group(key, args.get(2));
+		Stream stream = (Stream) data.get(key);
+		String consumer = args.get(3);
+		long minIdle = Long.parseLong(args.get(4));
+		long now = System.currentTimeMillis();
+		List<Object> claimed = new ArrayList<>();
+		for (String id : args.subList(5, args.size())) {
+			StreamId streamId = StreamId.parse(id, 0);
+			PendingEntry pending = group.pending.get(streamId);
+			if (pending == null || now - pending.deliveryTime < minIdle) {
+				continue;
+			}
+			List<String> fields = stream.entries.get(streamId);
+			if (fields == null) {
+				group.pending.remove(streamId);
+				continue;
+			}
+			pending.consumer = consumer;
+			pending.deliveryTime = now;
+			pending.deliveryCount++;
+			claimed.add(entry(streamId, fields));
+		}
+		group.consumers.add(consumer);
+		return claimed;
+	}
+
+	private Object xautoclaim(List<String> args) {
+		String key = args.get(1);
+		ConsumerGroup group = group(key, args.get(2));
+		Stream stream = (Stream) data.get(key);
+		String consumer = args.get(3);
+		long minIdle = Long.parseLong(args.get(4));
+		StreamId start = StreamId.parse(args.get(5), 0);
+		long count = 100;
+		boolean justId = false;
+		for (int index = 6; index < args.size(); index++) {
+			if (args.get(index).equalsIgnoreCase("COUNT")) {
+				count = Long.parseLong(args.get(++index));
+			} else if (args.get(index).equalsIgnoreCase("JUSTID")) {
+				justId = true;
+			}
+		}
+		long now = System.currentTimeMillis();
+		List<Object> claimed = new ArrayList<>();
+		List<Object> deleted = new ArrayList<>();
+		StreamId next = StreamId.MIN;
+		NavigableMap<StreamId, PendingEntry> candidates = group.pending.tailMap(start, true);
+		Iterator<Map.Entry<StreamId, PendingEntry>> iterator = candidates.entrySet().iterator();
+		long scanned = 0;
+		while (iterator.hasNext()) {
+			Map.Entry<StreamId, PendingEntry> entry = iterator.next();
+			if (scanned++ >= count) {
+				next = entry.getKey();
+				break;
+			}
+			PendingEntry pending = entry.getValue();
+			if (now - pending.deliveryTime < minIdle) {
+				continue;
+			}
+			List<String> fields = stream.entries.get(entry.getKey());
+			if (fields == null) {
+				iterator.remove();
+				deleted.add(entry.getKey().toString());
+				continue;
+			}
+			pending.consumer = consumer;
+			pending.deliveryTime = now;
+			if (!justId) {
+				pending.deliveryCount++;
+			}
+			claimed.add(justId ? entry.getKey().toString() : entry(entry.getKey(), fields));
+		}
+		group.consumers.add(consumer);
+		return Arrays.asList(next.toString(), claimed, deleted);
+	}
+
+	private Object xinfo(List<String> args) {
+		if (!args.get(1).equalsIgnoreCase("GROUPS")) {
+			throw new CommandException("ERR unknown subcommand '" + args.get(1) + "'");
+		}
+		Object value = data.get(args.get(2));
+		if (value == null) {
+			throw new CommandException("ERR no such key");
+		}
+		if (!(value instanceof Stream)) {
+			throw new CommandException(WRONGTYPE);
+		}
+		List<Object> groups = new ArrayList<>();
+		((Stream) value).groups.forEach((name, group) -> {
+			Map<String, Object> info = new LinkedHashMap<>();
+			info.put("name", name);
+			info.put("consumers", (long) group.consumers.size());
+			info.put("pending", (long) group.pending.size());
+			info.put("last-delivered-id", group.lastDelivered.toString());
+			groups.add(info);
+		});
+		return groups;
+	}
+
+	private Object jsonSet(String key, String path, String json, String condition) {
+		if (!path.equals("$") && !path.equals(".")) {
+			throw new CommandException("ERR only the root path is supported");
+		}
+		Object existing = data.get(key);
+		if (existing != null && !(existing instanceof Json)) {
+			throw new CommandException(WRONGTYPE);
+		}
+		if (("NX".equalsIgnoreCase(condition) && existing != null)
+				|| ("XX".equalsIgnoreCase(condition) && existing == null)) {
+			return null;
+		}
+		data.put(key, new Json(json));
+		return new StatusReply(OK);
+	}
+
+	private Object jsonGet(List<String> args) {
+		Json json = value(args.get(1), Json.class, false, () -> null);
+		if (json == null) {
+			return null;
+		}
+		String path = args.size() > 2 ? args.get(args.size() - 1) : ".";
+		return path.equals("$") ? "[" + json.value + "]" : json.value;
+	}
+
+	private long tsAdd(String key, String timestamp, String value) {
+		TimeSeries timeSeries = timeSeries(key, true);
+		long millis = timestamp.equals("*") ? System.currentTimeMillis() : Long.parseLong(timestamp);
+		timeSeries.samples.put(millis, parseDouble(value));
+		return millis;
+	}
+
+	private List<Object> tsMadd(List<String> args) {
+		List<Object> timestamps = new ArrayList<>();
+		for (int index = 1; index < args.size(); index += 3) {
+			try {
+				timestamps.add(tsAdd(args.get(index), args.get(index + 1), args.get(index + 2)));
+			} catch (CommandException e) {
+				timestamps.add(new ErrorReply(e.getMessage()));
+			}
+		}
+		return timestamps;
+	}
+
+	private List<Object> tsRange(List<String> args) {
+		TimeSeries timeSeries = value(args.get(1), TimeSeries.class, false, () -> null);
+		if (timeSeries == null) {
+			throw new CommandException("ERR TSDB: the key does not exist");
+		}
+		long from = args.get(2).equals("-") ? Long.MIN_VALUE : Long.parseLong(args.get(2));
+		long to = args.get(3).equals("+") ? Long.MAX_VALUE : Long.parseLong(args.get(3));
+		List<Object> samples = new ArrayList<>();
+		timeSeries.samples.subMap(from, true, to, true).forEach((timestamp, value) -> samples
+				.add(Arrays.asList(timestamp, new StatusReply(formatDouble(value)))));
+		return samples;
+	}
+
+	private List<Object> tsGet(List<String> args) {
+		TimeSeries timeSeries = value(args.get(1), TimeSeries.class, false, () -> null);
+		if (timeSeries == null) {
+			throw new CommandException("ERR TSDB: the key does not exist");
+		}
+		if (timeSeries.samples.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map.Entry<Long, Double> last = timeSeries.samples.lastEntry();
+		return Arrays.asList(last.getKey(), new StatusReply(formatDouble(last.getValue())));
+	}
+
+}
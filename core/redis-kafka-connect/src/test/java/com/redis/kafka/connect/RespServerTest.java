@@ -0,0 +1,200 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.RetriableException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.google.common.collect.ImmutableSet;
+import com.redis.kafka.connect.sink.RedisSinkConfig.RedisCommand;
+import com.redis.kafka.connect.sink.RedisSinkConfigDef;
+import com.redis.kafka.connect.sink.RedisSinkTask;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.XReadArgs.StreamOffset;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.protocol.ProtocolVersion;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class RespServerTest {
+
+	private RespServer server;
+	private RedisClient client;
+
+	@BeforeAll
+	void setupServer() throws Exception {
+		server = new RespServer();
+		client = RedisClient.create(server.getRedisURI());
+	}
+
+	@AfterAll
+	void teardownServer() throws Exception {
+		client.shutdown();
+		server.close();
+	}
+
+	@BeforeEach
+	void reset() {
+		server.reset();
+	}
+
+	private StatefulRedisConnection<String, String> connect(ProtocolVersion protocolVersion) {
+		client.setOptions(ClientOptions.builder().protocolVersion(protocolVersion).build());
+		return client.connect();
+	}
+
+	@ParameterizedTest
+	@EnumSource(ProtocolVersion.class)
+	void dataStructures(ProtocolVersion protocolVersion) {
+		try (StatefulRedisConnection<String, String> connection = connect(protocolVersion)) {
+			RedisCommands<String, String> redis = connection.sync();
+			assertEquals("PONG", redis.ping());
+			redis.mset(map("string1", "value1", "string2", "value2"));
+			assertEquals("value1", redis.get("string1"));
+			assertEquals(2, redis.mget("string1", "string2", "missing").stream().filter(v -> v.hasValue()).count());
+			redis.hset("hash", map("field1", "value1", "field2", "value2"));
+			assertEquals(map("field1", "value1", "field2", "value2"), redis.hgetall("hash"));
+			redis.rpush("list", "a", "b");
+			redis.lpush("list", "c");
+			assertEquals(Arrays.asList("c", "a", "b"), redis.lrange("list", 0, -1));
+			redis.sadd("set", "a", "b", "a");
+			assertEquals(2, redis.scard("set"));
+			redis.zadd("zset", 2, "b", 1, "a");
+			assertEquals(Arrays.asList("a", "b"), redis.zrange("zset", 0, -1));
+			assertEquals(2.0, redis.zscore("zset", "b"));
+			assertEquals(5, redis.dbsize());
+			assertEquals("hash", redis.type("hash"));
+			assertEquals(Arrays.asList("string1", "string2"),
+					redis.scan(ScanArgs.Builder.matches("string*")).getKeys());
+			redis.del("list");
+			assertEquals(0, redis.exists("list"));
+			assertThrows(RedisCommandExecutionException.class, () -> redis.hget("set", "field"));
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(ProtocolVersion.class)
+	void streams(ProtocolVersion protocolVersion) {
+		try (StatefulRedisConnection<String, String> connection = connect(protocolVersion)) {
+			RedisCommands<String, String> redis = connection.sync();
+			String stream = "stream";
+			redis.xgroupCreate(StreamOffset.from(stream, "0-0"), "group",
+					XGroupCreateArgs.Builder.mkstream());
+			for (int index = 0; index < 5; index++) {
+				redis.xadd(stream, map("field", String.valueOf(index)));
+			}
+			assertEquals(5, redis.xlen(stream));
+			List<StreamMessage<String, String>> messages = redis.xreadgroup(Consumer.from("group", "consumer"),
+					XReadArgs.Builder.count(3), StreamOffset.lastConsumed(stream));
+			assertEquals(3, messages.size());
+			assertEquals("0", messages.get(0).getBody().get("field"));
+			assertEquals(3, redis.xpending(stream, "group").getCount());
+			assertEquals(2, redis.xack(stream, "group", messages.get(0).getId(), messages.get(1).getId()));
+			assertEquals(1, redis.xpending(stream, "group").getCount());
+			List<StreamMessage<String, String>> pending = redis.xreadgroup(Consumer.from("group", "consumer"),
+					StreamOffset.from(stream, "0-0"));
+			assertEquals(1, pending.size());
+			assertEquals(messages.get(2).getId(), pending.get(0).getId());
+			assertEquals(2, redis.xreadgroup(Consumer.from("group", "consumer"), XReadArgs.Builder.block(10),
+					StreamOffset.lastConsumed(stream)).size());
+			assertTrue(redis.xreadgroup(Consumer.from("group", "consumer"), XReadArgs.Builder.block(10),
+					StreamOffset.lastConsumed(stream)).isEmpty());
+			redis.xtrim(stream, 2);
+			assertEquals(2, redis.xlen(stream));
+		}
+	}
+
+	@Test
+	void injectErrors() {
+		try (StatefulRedisConnection<String, String> connection = connect(ProtocolVersion.RESP3)) {
+			RedisCommands<String, String> redis = connection.sync();
+			server.fail("SET", "ERR injected", 1);
+			RedisCommandExecutionException error = assertThrows(RedisCommandExecutionException.class,
+					() -> redis.set("key", "value"));
+			assertEquals("ERR injected", error.getMessage());
+			assertNull(redis.get("key"));
+			assertEquals("OK", redis.set("key", "value"));
+			server.moved("GET", "127.0.0.1:7000", 1);
+			error = assertThrows(RedisCommandExecutionException.class, () -> redis.get("key"));
+			assertTrue(error.getMessage().startsWith("MOVED 12539 127.0.0.1:7000"));
+			assertEquals(2, server.commandCount("GET"));
+		}
+	}
+
+	@Test
+	void latency() {
+		try (StatefulRedisConnection<String, String> connection = connect(ProtocolVersion.RESP2)) {
+			server.setLatency(Duration.ofMillis(100));
+			long start = System.nanoTime();
+			connection.sync().ping();
+			assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 100);
+		}
+	}
+
+	@Test
+	void sinkRetry() {
+		String topic = "sinkRetry";
+		RedisSinkTask task = new RedisSinkTask();
+		SinkTaskContext context = mock(SinkTaskContext.class);
+		when(context.assignment()).thenReturn(ImmutableSet.of(new TopicPartition(topic, 0)));
+		task.initialize(context);
+		Map<String, String> props = new HashMap<>();
+		props.put(RedisSinkConfigDef.URI_CONFIG, server.getRedisURI());
+		props.put(RedisSinkConfigDef.COMMAND_CONFIG, RedisCommand.SET.name());
+		task.start(props);
+		try {
+			List<SinkRecord> records = Arrays.asList(
+					new SinkRecord(topic, 0, Schema.STRING_SCHEMA, "key1", Schema.STRING_SCHEMA, "value1", 0),
+					new SinkRecord(topic, 0, Schema.STRING_SCHEMA, "key2", Schema.STRING_SCHEMA, "value2", 1));
+			server.fail("SET", "LOADING Redis is loading the dataset in memory", 1);
+			assertThrows(RetriableException.class, () -> task.put(records));
+			task.put(records);
+			try (StatefulRedisConnection<String, String> connection = connect(ProtocolVersion.RESP3)) {
+				assertEquals("value1", connection.sync().get(topic + ":key1"));
+				assertEquals("value2", connection.sync().get(topic + ":key2"));
+			}
+		} finally {
+			task.stop();
+		}
+	}
+
+	private static Map<String, String> map(String... keyValues) {
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int index = 0; index < keyValues.length; index += 2) {
+			map.put(keyValues[index], keyValues[index + 1]);
+		}
+		return map;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.SinkKeyBuilder;
+
+class SinkKeyBuilderTest {
+
+	private static byte[] bytes(String string, Charset charset) {
+		return string.getBytes(charset);
+	}
+
+	@Test
+	void keys() {
+		SinkKeyBuilder builder = new SinkKeyBuilder("kafka_${topic}", ":", StandardCharsets.UTF_8);
+		assertFalse(builder.isPassthrough());
+		assertArrayEquals(bytes("kafka_orders", StandardCharsets.UTF_8), builder.keyspace("orders"));
+		assertArrayEquals(bytes("kafka_orders:123", StandardCharsets.UTF_8), builder.key("orders", "123"));
+		assertArrayEquals(bytes("kafka_orders:123", StandardCharsets.UTF_8), builder.key("orders", 123L));
+		assertArrayEquals(bytes("kafka_orders:-45", StandardCharsets.UTF_8), builder.key("orders", -45));
+		assertArrayEquals(bytes("kafka_orders:0", StandardCharsets.UTF_8), builder.key("orders", 0));
+		assertArrayEquals(bytes("kafka_orders:" + Long.MIN_VALUE, StandardCharsets.UTF_8),
+				builder.key("orders", Long.MIN_VALUE));
+		assertArrayEquals(bytes("kafka_orders:1.5", StandardCharsets.UTF_8), builder.key("orders", 1.5));
+		assertArrayEquals(bytes("kafka_users:abc", StandardCharsets.UTF_8),
+				builder.key("users", "abc".getBytes(StandardCharsets.UTF_8)));
+		assertArrayEquals(bytes("kafka_users:é€", StandardCharsets.UTF_8), builder.key("users", "é€"));
+	}
+
+	@Test
+	void longKeys() {
+		SinkKeyBuilder builder = new SinkKeyBuilder("${topic}", ":", StandardCharsets.UTF_8);
+		StringBuilder key = new StringBuilder();
+		for (int index = 0; index < 100; index++) {
+			key.append("0123456789");
+		}
+		assertArrayEquals(bytes("topic:" + key, StandardCharsets.UTF_8), builder.key("topic", key.toString()));
+		assertArrayEquals(bytes("topic:short", StandardCharsets.UTF_8), builder.key("topic", "short"));
+	}
+
+	@Test
+	void charset() {
+		Charset charset = StandardCharsets.UTF_16BE;
+		SinkKeyBuilder builder = new SinkKeyBuilder("${topic}", ":", charset);
+		byte[] prefix = bytes("orders:", charset);
+		byte[] suffix = bytes("42", charset);
+		byte[] expected = new byte[prefix.length + suffix.length];
+		System.arraycopy(prefix, 0, expected, 0, prefix.length);
+		System.arraycopy(suffix, 0, expected, prefix.length, suffix.length);
+		assertArrayEquals(expected, builder.key("orders", 42));
+	}
+
+	@Test
+	void passthrough() {
+		assertTrue(new SinkKeyBuilder("", ":", StandardCharsets.UTF_8).isPassthrough());
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.SinkRecordCompactor;
+import com.redis.kafka.connect.sink.SinkRecordCompactor.MergedHash;
+
+class SinkRecordCompactorTest {
+
+	private static byte[] key(SinkRecord sinkRecord) {
+		if (!(sinkRecord.key() instanceof String)) {
+			throw new DataException("Invalid key");
+		}
+		return ((String) sinkRecord.key()).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<byte[], byte[]> hash(SinkRecord sinkRecord) {
+		if (sinkRecord.value() == null) {
+			return null;
+		}
+		if (!(sinkRecord.value() instanceof Map)) {
+			throw new DataException("Invalid value");
+		}
+		Map<byte[], byte[]> hash = new LinkedHashMap<>();
+		((Map<String, String>) sinkRecord.value()).forEach((k, v) -> hash
+				.put(k.getBytes(StandardCharsets.UTF_8), v.getBytes(StandardCharsets.UTF_8)));
+		return hash;
+	}
+
+	private static SinkRecord record(String key, Object value, long offset) {
+		return new SinkRecord("topic", 0, Schema.STRING_SCHEMA, key, null, value, offset);
+	}
+
+	private static Map<String, String> map(String... args) {
+		Map<String, String> map = new LinkedHashMap<>();
+		for (int index = 0; index < args.length; index += 2) {
+			map.put(args[index], args[index + 1]);
+		}
+		return map;
+	}
+
+	private static Map<String, String> strings(Map<byte[], byte[]> fields) {
+		Map<String, String> map = new LinkedHashMap<>();
+		fields.forEach((k, v) -> map.put(new String(k, StandardCharsets.UTF_8), new String(v, StandardCharsets.UTF_8)));
+		return map;
+	}
+
+	@Test
+	void lastWriteWins() {
+		SinkRecordCompactor compactor = new SinkRecordCompactor(SinkRecordCompactorTest::key, null);
+		List<SinkRecord> compacted = compactor.compact(Arrays.asList(record("a", "1", 0), record("b", "1", 1),
+				record("a", "2", 2), record("a", null, 3), record("b", "2", 4)));
+		assertEquals(2, compacted.size());
+		assertEquals("a", compacted.get(0).key());
+		assertNull(compacted.get(0).value());
+		assertEquals("2", compacted.get(1).value());
+		assertEquals(4, compacted.get(1).kafkaOffset());
+	}
+
+	@Test
+	void mergeHashes() {
+		SinkRecordCompactor compactor = new SinkRecordCompactor(SinkRecordCompactorTest::key,
+				SinkRecordCompactorTest::hash);
+		List<SinkRecord> compacted = compactor.compact(Arrays.asList(record("a", map("f1", "1", "f2", "1"), 0),
+				record("b", map("f1", "1"), 1), record("a", map("f2", "2", "f3", "2"), 2)));
+		assertEquals(2, compacted.size());
+		assertInstanceOf(MergedHash.class, compacted.get(0).value());
+		assertEquals(map("f1", "1", "f2", "2", "f3", "2"),
+				strings(((MergedHash) compacted.get(0).value()).getFields()));
+		assertEquals(Arrays.asList(0L, 2L), offsets(((MergedHash) compacted.get(0).value()).getRecords()));
+		assertEquals(map("f1", "1"), compacted.get(1).value());
+	}
+
+	@Test
+	void mergeHashesAfterDelete() {
+		SinkRecordCompactor compactor = new SinkRecordCompactor(SinkRecordCompactorTest::key,
+				SinkRecordCompactorTest::hash);
+		List<SinkRecord> compacted = compactor.compact(Arrays.asList(record("a", map("f1", "1"), 0),
+				record("a", null, 1), record("a", map("f2", "2"), 2), record("a", map("f3", "3"), 3)));
+		assertEquals(2, compacted.size());
+		assertNull(compacted.get(0).value());
+		assertEquals(map("f2", "2", "f3", "3"), strings(((MergedHash) compacted.get(1).value()).getFields()));
+		assertEquals(Arrays.asList(2L, 3L), offsets(((MergedHash) compacted.get(1).value()).getRecords()));
+	}
+
+	@Test
+	void passThroughConversionErrors() {
+		SinkRecordCompactor compactor = new SinkRecordCompactor(SinkRecordCompactorTest::key,
+				SinkRecordCompactorTest::hash);
+		SinkRecord badKey = new SinkRecord("topic", 0, null, 123, null, map("f1", "1"), 1);
+		SinkRecord badValue = record("a", "not a map", 2);
+		List<SinkRecord> compacted = compactor.compact(Arrays.asList(record("a", map("f1", "1"), 0), badKey,
+				badValue, record("a", map("f2", "2"), 3)));
+		assertEquals(3, compacted.size());
+		assertSame(badKey, compacted.get(0));
+		assertSame(badValue, compacted.get(1));
+		assertEquals(map("f1", "1", "f2", "2"), strings(((MergedHash) compacted.get(2).value()).getFields()));
+		SinkRecordCompactor lastWriteWins = new SinkRecordCompactor(SinkRecordCompactorTest::key, null);
+		compacted = lastWriteWins.compact(Arrays.asList(record("a", "1", 0), badKey, record("a", "2", 2)));
+		assertEquals(2, compacted.size());
+		assertSame(badKey, compacted.get(0));
+		assertEquals("2", compacted.get(1).value());
+	}
+
+	private static List<Long> offsets(List<SinkRecord> records) {
+		return records.stream().map(SinkRecord::kafkaOffset).collect(Collectors.toList());
+	}
+
+}
@@ -2,7 +2,9 @@ package com.redis.kafka.connect;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
@@ -10,10 +12,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
 
+import org.apache.kafka.common.utils.Utils;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -49,13 +53,28 @@ class StreamMessageConverterTest {
 		assertThat(got, equalTo(args.want));
 	}
 
+	@Test
+	void cacheStreamTargets() {
+		RedisStreamSourceConfig config = new RedisStreamSourceConfig(
+				mapOf("redis.stream.name", "orders,payments", "topic", "redis_${stream}"));
+		StreamMessageConverter converter = new StreamMessageConverter(CLOCK, config);
+		SourceRecord first = converter.apply(new StreamMessage<>("orders", "1-0", mapOf()));
+		SourceRecord second = converter.apply(new StreamMessage<>("orders", "2-0", mapOf()));
+		SourceRecord other = converter.apply(new StreamMessage<>("payments", "1-0", mapOf()));
+		assertSame(first.sourcePartition(), second.sourcePartition());
+		assertSame(first.topic(), second.topic());
+		assertThat(second.topic(), equalTo("redis_orders"));
+		assertThat(other.topic(), equalTo("redis_payments"));
+		assertThat(other.sourcePartition(), equalTo(mapOf("stream", "payments")));
+	}
+
 	static class ConvertArgs implements ArgumentsProvider, Arguments {
 		@Override
 		public Stream<? extends Arguments> provideArguments(ExtensionContext context) throws Exception {
 			return Stream.of(
 					new ConvertArgs(mapOf("redis.stream.name", "stream1"),
 							new StreamMessage<>("stream1", "1-0", mapOf()),
-							new SourceRecord(mapOf(), mapOf("offset", "1-0"), "stream1", null, Schema.STRING_SCHEMA,
+							new SourceRecord(mapOf("stream", "stream1"), mapOf("offset", "1-0"), "stream1", null, Schema.STRING_SCHEMA,
 									"1-0", PUBLISHED_SCHEMA,
 									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "1-0").put(FIELD_STREAM, "stream1")
 											.put(FIELD_BODY, mapOf()),
@@ -63,7 +82,7 @@ class StreamMessageConverterTest {
 
 					new ConvertArgs(mapOf("redis.stream.name", "stream2"),
 							new StreamMessage<>("stream2", "2-0", mapOf("key2", "value2")),
-							new SourceRecord(mapOf(), mapOf("offset", "2-0"), "stream2", null, Schema.STRING_SCHEMA,
+							new SourceRecord(mapOf("stream", "stream2"), mapOf("offset", "2-0"), "stream2", null, Schema.STRING_SCHEMA,
 									"2-0", PUBLISHED_SCHEMA,
 									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "2-0").put(FIELD_STREAM, "stream2")
 											.put(FIELD_BODY, mapOf("key2", "value2")),
@@ -71,10 +90,54 @@ class StreamMessageConverterTest {
 
 					new ConvertArgs(mapOf("redis.stream.name", "stream3", "topic", "topic3"),
 							new StreamMessage<>("stream3", "3-0", mapOf("key3", "value3")),
-							new SourceRecord(mapOf(), mapOf("offset", "3-0"), "topic3", null, Schema.STRING_SCHEMA,
+							new SourceRecord(mapOf("stream", "stream3"), mapOf("offset", "3-0"), "topic3", null, Schema.STRING_SCHEMA,
 									"3-0", PUBLISHED_SCHEMA, new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "3-0")
 											.put(FIELD_STREAM, "stream3").put(FIELD_BODY, mapOf("key3", "value3")),
-									NOW)));
+									NOW)),
+
+					new ConvertArgs(
+							mapOf("redis.stream.name", "stream4", "redis.stream.key.field", "user",
+									"redis.stream.partitioner", "field", "redis.stream.partitioner.field", "user",
+									"redis.stream.partitions", "8"),
+							new StreamMessage<>("stream4", "4-0", mapOf("user", "alice")),
+							new SourceRecord(mapOf("stream", "stream4"), mapOf("offset", "4-0"), "stream4",
+									partition("alice", 8), Schema.STRING_SCHEMA, "alice", PUBLISHED_SCHEMA,
+									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "4-0").put(FIELD_STREAM, "stream4")
+											.put(FIELD_BODY, mapOf("user", "alice")),
+									NOW)),
+
+					new ConvertArgs(
+							mapOf("redis.stream.name", "stream5", "redis.stream.key.field", "user",
+									"redis.stream.partitioner", "field", "redis.stream.partitioner.field", "user",
+									"redis.stream.partitions", "8"),
+							new StreamMessage<>("stream5", "5-0", mapOf("key5", "value5")),
+							new SourceRecord(mapOf("stream", "stream5"), mapOf("offset", "5-0"), "stream5", null,
+									Schema.STRING_SCHEMA, "5-0", PUBLISHED_SCHEMA,
+									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "5-0").put(FIELD_STREAM, "stream5")
+											.put(FIELD_BODY, mapOf("key5", "value5")),
+									NOW)),
+
+					new ConvertArgs(
+							mapOf("redis.stream.name", "stream6", "redis.stream.partitioner", "stream",
+									"redis.stream.partitions", "8"),
+							new StreamMessage<>("stream6", "6-0", mapOf("key6", "value6")),
+							new SourceRecord(mapOf("stream", "stream6"), mapOf("offset", "6-0"), "stream6",
+									partition("stream6", 8), Schema.STRING_SCHEMA, "6-0", PUBLISHED_SCHEMA,
+									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "6-0").put(FIELD_STREAM, "stream6")
+											.put(FIELD_BODY, mapOf("key6", "value6")),
+									NOW)),
+
+					new ConvertArgs(mapOf("redis.stream.name", "stream7", "redis.stream.timestamp", "id"),
+							new StreamMessage<>("stream7", "1700000000123-4", mapOf("key7", "value7")),
+							new SourceRecord(mapOf("stream", "stream7"), mapOf("offset", "1700000000123-4"), "stream7",
+									null, Schema.STRING_SCHEMA, "1700000000123-4", PUBLISHED_SCHEMA,
+									new Struct(PUBLISHED_SCHEMA).put(FIELD_ID, "1700000000123-4")
+											.put(FIELD_STREAM, "stream7").put(FIELD_BODY, mapOf("key7", "value7")),
+									1700000000123L)));
+		}
+
+		private static int partition(String value, int partitions) {
+			return Utils.toPositive(Utils.murmur2(value.getBytes(StandardCharsets.UTF_8))) % partitions;
 		}
 
 		Map<String, String> props;
@@ -0,0 +1,70 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.connect.source.SourceRecord;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.source.StreamPrefetcher;
+import com.redis.kafka.connect.source.StreamPrefetcher.Batch;
+
+import io.lettuce.core.RedisException;
+
+class StreamPrefetcherTest {
+
+	private static Batch batch(int index, long bytes) {
+		SourceRecord record = new SourceRecord(null, null, "topic", null, String.valueOf(index));
+		return new Batch(Collections.singletonList(record), bytes);
+	}
+
+	@Test
+	void boundedByRecords() throws InterruptedException {
+		AtomicInteger reads = new AtomicInteger();
+		try (StreamPrefetcher prefetcher = new StreamPrefetcher("prefetch-records",
+				() -> batch(reads.incrementAndGet(), 1), 3, Long.MAX_VALUE)) {
+			prefetcher.start();
+			Awaitility.await().until(() -> prefetcher.size() == 3);
+			Thread.sleep(50);
+			assertEquals(3, reads.get());
+			assertEquals(3, prefetcher.poll(Duration.ofMillis(100)).size());
+			Awaitility.await().until(() -> prefetcher.size() == 3);
+			assertEquals(6, reads.get());
+		}
+	}
+
+	@Test
+	void boundedByBytes() throws InterruptedException {
+		AtomicInteger reads = new AtomicInteger();
+		try (StreamPrefetcher prefetcher = new StreamPrefetcher("prefetch-bytes",
+				() -> batch(reads.incrementAndGet(), 100), 1000, 250)) {
+			prefetcher.start();
+			Awaitility.await().until(() -> prefetcher.size() == 3);
+			Thread.sleep(50);
+			assertEquals(3, reads.get());
+		}
+	}
+
+	@Test
+	void error() {
+		AtomicInteger reads = new AtomicInteger();
+		try (StreamPrefetcher prefetcher = new StreamPrefetcher("prefetch-error", () -> {
+			if (reads.incrementAndGet() > 1) {
+				throw new RedisException("Connection lost");
+			}
+			return batch(1, 1);
+		}, 10, Long.MAX_VALUE)) {
+			prefetcher.start();
+			Awaitility.await().until(() -> reads.get() > 1);
+			// Records read before the error come first
+			assertEquals(1, prefetcher.poll(Duration.ofMillis(100)).size());
+			assertThrows(RedisException.class, () -> prefetcher.poll(Duration.ofMillis(100)));
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.StructHashEncoder;
+
+class StructHashEncoderTest {
+
+	private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct().field("city", Schema.STRING_SCHEMA)
+			.field("zip", Schema.INT32_SCHEMA).build();
+	private static final Schema SCHEMA = SchemaBuilder.struct().field("int8", Schema.INT8_SCHEMA)
+			.field("int64", Schema.INT64_SCHEMA).field("float32", Schema.FLOAT32_SCHEMA)
+			.field("float64", Schema.FLOAT64_SCHEMA).field("boolean", Schema.BOOLEAN_SCHEMA)
+			.field("string", Schema.OPTIONAL_STRING_SCHEMA).field("address", ADDRESS_SCHEMA).build();
+
+	private static Map<String, String> strings(Map<byte[], byte[]> fields) {
+		Map<String, String> map = new LinkedHashMap<>();
+		fields.forEach((k, v) -> map.put(new String(k, StandardCharsets.UTF_8),
+				v == null ? null : new String(v, StandardCharsets.UTF_8)));
+		return map;
+	}
+
+	private static Struct struct(long int64, double float64) {
+		return new Struct(SCHEMA).put("int8", (byte) -7).put("int64", int64).put("float32", 1.5f)
+				.put("float64", float64).put("boolean", true)
+				.put("address", new Struct(ADDRESS_SCHEMA).put("city", "Paris").put("zip", 75001));
+	}
+
+	@Test
+	void matchesStringRepresentation() {
+		StructHashEncoder encoder = new StructHashEncoder(StandardCharsets.UTF_8, false);
+		long[] longs = { 0, 9, 10, -123456789, Long.MAX_VALUE, Long.MIN_VALUE };
+		double[] doubles = { 0, -0.0, 3, -42, 0.1, 1e7, 123456.0, 1e-5, Double.NaN, Double.POSITIVE_INFINITY };
+		for (long int64 : longs) {
+			for (double float64 : doubles) {
+				Struct struct = struct(int64, float64);
+				Map<String, String> expected = new LinkedHashMap<>();
+				SCHEMA.fields().forEach(f -> {
+					Object value = struct.get(f);
+					expected.put(f.name(), value == null ? null : value.toString());
+				});
+				assertEquals(expected, strings(encoder.encode(struct)));
+			}
+		}
+	}
+
+	@Test
+	void flatten() {
+		StructHashEncoder encoder = new StructHashEncoder(StandardCharsets.UTF_8, true);
+		Map<String, String> fields = strings(encoder.encode(struct(1, 2)));
+		assertEquals("Paris", fields.get("address.city"));
+		assertEquals("75001", fields.get("address.zip"));
+		assertEquals(8, fields.size());
+	}
+
+	@Test
+	void bytes() {
+		Schema schema = SchemaBuilder.struct().field("bytes", Schema.BYTES_SCHEMA).build();
+		StructHashEncoder encoder = new StructHashEncoder(StandardCharsets.UTF_8, false);
+		byte[] value = { 1, 2, 3 };
+		assertArrayEquals(value, encoder.encode(new Struct(schema).put("bytes", value)).values().iterator().next());
+		assertArrayEquals(value, encoder.encode(new Struct(schema).put("bytes", ByteBuffer.wrap(value))).values()
+				.iterator().next());
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.redis.kafka.connect;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.jupiter.api.Test;
+
+import com.redis.kafka.connect.sink.RedisSinkConfig.TimestampSource;
+import com.redis.kafka.connect.sink.TimeSeriesMapper;
+
+class TimeSeriesMapperTest {
+
+	private static final Schema SCHEMA = SchemaBuilder.struct().field("host", Schema.STRING_SCHEMA)
+			.field("time", Timestamp.SCHEMA).field("value", Schema.OPTIONAL_FLOAT64_SCHEMA).build();
+
+	private static SinkRecord record(Object key, Schema valueSchema, Object value) {
+		return new SinkRecord("metrics", 0, null, key, valueSchema, value, 0, 123L, TimestampType.CREATE_TIME);
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void topicKey() {
+		TimeSeriesMapper mapper = new TimeSeriesMapper("ts:${topic}", StandardCharsets.UTF_8, TimestampSource.KEY, "",
+				"");
+		SinkRecord sinkRecord = record(1000L, Schema.FLOAT64_SCHEMA, 1.5);
+		assertArrayEquals(bytes("ts:metrics"), mapper.key(sinkRecord));
+		assertSame(mapper.key(sinkRecord), mapper.key(sinkRecord));
+		assertEquals(1000L, mapper.timestamp(sinkRecord));
+		assertEquals(1.5, mapper.value(sinkRecord));
+		assertThrows(DataException.class, () -> mapper.timestamp(record("abc", Schema.FLOAT64_SCHEMA, 1.5)));
+	}
+
+	@Test
+	void fieldKey() {
+		TimeSeriesMapper mapper = new TimeSeriesMapper("${topic}:${value.host}:${key}:${other}", StandardCharsets.UTF_8,
+				TimestampSource.FIELD, "time", "value");
+		Struct struct = new Struct(SCHEMA).put("host", "host1").put("time", new Date(1000)).put("value", 2.5);
+		SinkRecord sinkRecord = record("cpu", SCHEMA, struct);
+		assertArrayEquals(bytes("metrics:host1:cpu:${other}"), mapper.key(sinkRecord));
+		assertEquals(1000L, mapper.timestamp(sinkRecord));
+		assertEquals(2.5, mapper.value(sinkRecord));
+		assertNull(mapper.value(record("cpu", SCHEMA, struct.put("value", null))));
+	}
+
+	@Test
+	void mapValue() {
+		TimeSeriesMapper mapper = new TimeSeriesMapper("${value.host}", StandardCharsets.UTF_8,
+				TimestampSource.RECORD, "", "value");
+		Map<String, Object> map = new HashMap<>();
+		map.put("host", "host2");
+		map.put("value", 3);
+		SinkRecord sinkRecord = record(null, null, map);
+		assertArrayEquals(bytes("host2"), mapper.key(sinkRecord));
+		assertEquals(123L, mapper.timestamp(sinkRecord));
+		assertEquals(3.0, mapper.value(sinkRecord));
+		assertNull(mapper.value(record(null, null, null)));
+	}
+
+}